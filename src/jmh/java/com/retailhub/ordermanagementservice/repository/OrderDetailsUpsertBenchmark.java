@@ -0,0 +1,120 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.metrics.StatementStatistics;
+import com.retailhub.ordermanagementservice.model.OrderDetails;
+import com.retailhub.ordermanagementservice.support.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding {@code lines} lines to an existing cart in one transaction: one batched upsert versus the
+ * former path, which read each line by order and product and then inserted it or wrote back the
+ * incremented quantity. The {@code statements} and {@code adds} counters give the round trips per
+ * add; they should read 1 for the upsert and 2 per line for the former path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderDetailsUpsertBenchmark {
+
+    private static final String RETRIEVE_ORDER_DETAILS_BY_ORDER_ID_AND_PRODUCT_ID =
+            "SELECT order_id, product_id, product_name, product_price, quantity FROM order_details WHERE order_id = ? AND product_id = ?";
+    private static final String INSERT_ORDER_DETAILS =
+            "INSERT INTO order_details(order_id, product_id, quantity, product_name, product_price) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID =
+            "UPDATE order_details SET quantity = ? WHERE order_id = ? AND product_id = ?";
+
+    @Param({"1", "20", "100"})
+    public int lines;
+
+    private BenchmarkDatabase database;
+    private TransactionTemplate transactionTemplate;
+    private List<OrderDetails> orderDetailsList;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.seedDraftOrders(10_000);
+        transactionTemplate = new TransactionTemplate(database.transactionManager);
+        int orderId = database.seededDraftOrderOfUser(1);
+        orderDetailsList = new ArrayList<>(lines);
+        for (int productId = 1; productId <= lines; productId++) {
+            orderDetailsList.add(new OrderDetails(orderId, productId, "Product " + productId, new BigDecimal("10.00"), 1));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void batchedUpsert(StatementCounters statementCounters) {
+        statementCounters.count(() -> transactionTemplate.executeWithoutResult(
+                status -> database.orderDetailsRepository.upsertOrderDetails(orderDetailsList)));
+    }
+
+    @Benchmark
+    public void selectThenWritePerLine(StatementCounters statementCounters) {
+        statementCounters.count(() -> transactionTemplate.executeWithoutResult(status -> {
+            for (OrderDetails orderDetails : orderDetailsList) {
+                List<OrderDetails> storedLines = database.jdbcTemplate.query(RETRIEVE_ORDER_DETAILS_BY_ORDER_ID_AND_PRODUCT_ID,
+                        OrderDetailsRepository.orderDetailsRowMapper(), orderDetails.getOrderId(), orderDetails.getProductId());
+                if (storedLines.isEmpty()) {
+                    database.jdbcTemplate.update(INSERT_ORDER_DETAILS, orderDetails.getOrderId(), orderDetails.getProductId(),
+                            orderDetails.getQuantity(), orderDetails.getProductName(), orderDetails.getProductPrice());
+                } else {
+                    database.jdbcTemplate.update(UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID,
+                            storedLines.get(0).getQuantity() + orderDetails.getQuantity(), orderDetails.getOrderId(), orderDetails.getProductId());
+                }
+            }
+        }));
+    }
+
+    /**
+     * Statements run and carts added during the iteration, as counted by the benchmark database's
+     * {@link com.retailhub.ordermanagementservice.metrics.StatementCountingDataSource}.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StatementCounters {
+        public long statements;
+        public long adds;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            adds = 0;
+        }
+
+        void count(Runnable add) {
+            StatementStatistics statementStatistics = new StatementStatistics();
+            try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+                add.run();
+            }
+            statements += statementStatistics.getStatementCount();
+            adds++;
+        }
+    }
+}
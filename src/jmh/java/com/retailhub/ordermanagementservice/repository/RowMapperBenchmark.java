@@ -0,0 +1,124 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderDetails;
+import com.retailhub.ordermanagementservice.model.OrderHeader;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps an in-memory result set so that only the row mappers are measured, not the driver.
+ * The {@code builder*} benchmarks keep the former mappers, which read columns by label into
+ * builders, as the baseline. Run with {@code -PjmhProfilers=gc} to compare the bytes allocated per
+ * operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RowMapperBenchmark {
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final RowMapper<CartDetailsDTO> cartDetailsRowMapper = OrderHeaderRepository.cartDetailsRowMapper();
+    private final RowMapper<OrderDetails> orderDetailsRowMapper = OrderDetailsRepository.orderDetailsRowMapper();
+    private final RowMapper<CartLineDetailsDTO> cartLineDetailsRowMapper = OrderDetailsRepository.cartLineDetailsRowMapper();
+    private final RowMapper<OrderHeader> builderOrderHeaderRowMapper = (rs, rowNum) -> OrderHeader.builder()
+            .userId(rs.getInt("user_id"))
+            .orderId(rs.getInt("order_id"))
+            .totalOrderValue(rs.getBigDecimal("total_order_value"))
+            .orderStatus(OrderStatus.fromCode(rs.getString("order_status")))
+            .build();
+    private final RowMapper<OrderDetails> builderOrderDetailsRowMapper = (rs, rowNum) -> OrderDetails.builder()
+            .orderId(rs.getInt("order_id"))
+            .productId(rs.getInt("product_id"))
+            .quantity(rs.getInt("quantity"))
+            .productName(rs.getString("product_name"))
+            .productPrice(rs.getBigDecimal("product_price"))
+            .build();
+    private SimpleResultSet orderHeaderRows;
+    private SimpleResultSet orderDetailsRows;
+
+    @Setup
+    public void setUp() {
+        orderHeaderRows = new SimpleResultSet();
+        orderHeaderRows.setAutoClose(false);
+        orderHeaderRows.addColumn("order_id", Types.INTEGER, 10, 0);
+        orderHeaderRows.addColumn("user_id", Types.INTEGER, 10, 0);
+        orderHeaderRows.addColumn("total_order_value", Types.DECIMAL, 19, 2);
+        orderHeaderRows.addColumn("order_status", Types.VARCHAR, 20, 0);
+        orderDetailsRows = new SimpleResultSet();
+        orderDetailsRows.setAutoClose(false);
+        orderDetailsRows.addColumn("order_id", Types.INTEGER, 10, 0);
+        orderDetailsRows.addColumn("product_id", Types.INTEGER, 10, 0);
+        orderDetailsRows.addColumn("product_name", Types.VARCHAR, 255, 0);
+        orderDetailsRows.addColumn("product_price", Types.DECIMAL, 19, 2);
+        orderDetailsRows.addColumn("quantity", Types.INTEGER, 10, 0);
+        for (int row = 0; row < rows; row++) {
+            orderHeaderRows.addRow(10_000 + row, row % 100, new BigDecimal("30.00"), "D");
+            orderDetailsRows.addRow(10_000 + row / 3, row % 3, "Product " + row % 3, new BigDecimal("10.00"), 1);
+        }
+    }
+
+    @Benchmark
+    public void cartDetailsRowMapper(Blackhole blackhole) throws SQLException {
+        orderHeaderRows.beforeFirst();
+        while (orderHeaderRows.next()) {
+            blackhole.consume(cartDetailsRowMapper.mapRow(orderHeaderRows, orderHeaderRows.getRow()));
+        }
+    }
+
+    @Benchmark
+    public void orderDetailsRowMapper(Blackhole blackhole) throws SQLException {
+        orderDetailsRows.beforeFirst();
+        while (orderDetailsRows.next()) {
+            blackhole.consume(orderDetailsRowMapper.mapRow(orderDetailsRows, orderDetailsRows.getRow()));
+        }
+    }
+
+    @Benchmark
+    public void cartLineDetailsRowMapper(Blackhole blackhole) throws SQLException {
+        orderDetailsRows.beforeFirst();
+        while (orderDetailsRows.next()) {
+            blackhole.consume(cartLineDetailsRowMapper.mapRow(orderDetailsRows, orderDetailsRows.getRow()));
+        }
+    }
+
+    @Benchmark
+    public void builderOrderHeaderRowMapper(Blackhole blackhole) throws SQLException {
+        orderHeaderRows.beforeFirst();
+        while (orderHeaderRows.next()) {
+            blackhole.consume(builderOrderHeaderRowMapper.mapRow(orderHeaderRows, orderHeaderRows.getRow()));
+        }
+    }
+
+    @Benchmark
+    public void builderOrderDetailsRowMapper(Blackhole blackhole) throws SQLException {
+        orderDetailsRows.beforeFirst();
+        while (orderDetailsRows.next()) {
+            blackhole.consume(builderOrderDetailsRowMapper.mapRow(orderDetailsRows, orderDetailsRows.getRow()));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.BulkOrderResult;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.support.BenchmarkDatabase;
+import com.retailhub.ordermanagementservice.support.CartRequests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders per second through the bulk endpoints' service compared with the same orders sent one
+ * transaction at a time, as the single-order endpoints do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BulkOrderBenchmark {
+
+    private static final int ORDERS_PER_CALL = 100;
+
+    @Param({"1", "10"})
+    public int linesPerOrder;
+
+    private BenchmarkDatabase database;
+    private TransactionTemplate transactionTemplate;
+    private List<CartDetailsDTO> submitRequests;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.seedDraftOrders(10_000);
+        transactionTemplate = new TransactionTemplate(database.transactionManager);
+    }
+
+    @Setup(Level.Invocation)
+    public void insertDraftOrders() {
+        submitRequests = new ArrayList<>(ORDERS_PER_CALL);
+        for (BulkOrderResult result : database.bulkOrderService.addProductsToCarts(newCartRequests())) {
+            submitRequests.add(CartRequests.cartRequest(result.getOrderId(), result.getUserId(), linesPerOrder));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_CALL)
+    public void addToCartOneByOne() {
+        for (CartDetailsDTO cartRequest : newCartRequests()) {
+            transactionTemplate.execute(status -> database.orderService.addProductsToCart(cartRequest));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_CALL)
+    public List<BulkOrderResult> addToCartInBulk() {
+        return database.bulkOrderService.addProductsToCarts(newCartRequests());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_CALL)
+    public void submitOneByOne() {
+        for (CartDetailsDTO submitRequest : submitRequests) {
+            transactionTemplate.executeWithoutResult(status -> database.orderService.submitApprovedOrder(submitRequest));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_CALL)
+    public List<BulkOrderResult> submitInBulk() {
+        return database.bulkOrderService.submitApprovedOrders(submitRequests);
+    }
+
+    private List<CartDetailsDTO> newCartRequests() {
+        List<CartDetailsDTO> cartRequests = new ArrayList<>(ORDERS_PER_CALL);
+        for (int i = 0; i < ORDERS_PER_CALL; i++) {
+            cartRequests.add(CartRequests.cartRequest(0, i % BenchmarkDatabase.USERS, linesPerOrder));
+        }
+        return cartRequests;
+    }
+}
@@ -0,0 +1,79 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.CartDetails;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderDetails;
+import com.retailhub.ordermanagementservice.model.OrderHeader;
+import com.retailhub.ordermanagementservice.support.CartRequests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-to-model transformation of the add-to-cart path. {@code transformCartDetailsToDTO} keeps
+ * the former model-to-response copy of the read path, which the repositories no longer need since
+ * they map rows straight into response objects, as the baseline for that change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CartTransformationBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int lines;
+
+    private OrderService orderService;
+    private CartDetailsDTO cartDetailsDTO;
+    private CartDetails cartDetails;
+
+    @Setup
+    public void setUp() {
+        orderService = new OrderService(null, null, null, null, null, null, null, null, null, null, 5);
+        cartDetailsDTO = CartRequests.cartRequest(10_000, 1, lines);
+        cartDetails = orderService.transformCartDetailsDTOToCartDetails(cartDetailsDTO);
+    }
+
+    @Benchmark
+    public CartDetails transformCartDetailsDTOToCartDetails() {
+        return orderService.transformCartDetailsDTOToCartDetails(cartDetailsDTO);
+    }
+
+    @Benchmark
+    public CartDetailsDTO transformCartDetailsToDTO() {
+        return transformCartDetailsToDTO(cartDetails.getOrderHeader(), cartDetails.getOrderDetailsList());
+    }
+
+    private static CartDetailsDTO transformCartDetailsToDTO(OrderHeader orderHeader, List<OrderDetails> orderDetailsList) {
+        CartDetailsDTO cartDetailsDTO = new CartDetailsDTO();
+        cartDetailsDTO.setOrderId(orderHeader.getOrderId());
+        cartDetailsDTO.setUserId(orderHeader.getUserId());
+        cartDetailsDTO.setTotalOrderValue(orderHeader.getTotalOrderValue());
+        cartDetailsDTO.setOrderStatus(orderHeader.getOrderStatus());
+        cartDetailsDTO.setCartLineDetailsDTOList(orderDetailsList.stream()
+                .map(orderDetails -> {
+                    CartLineDetailsDTO cartLine = new CartLineDetailsDTO();
+                    cartLine.setProductId(orderDetails.getProductId());
+                    cartLine.setProductName(orderDetails.getProductName());
+                    cartLine.setProductPrice(orderDetails.getProductPrice());
+                    cartLine.setQuantity(orderDetails.getQuantity());
+                    return cartLine;
+                })
+                .toList());
+        return cartDetailsDTO;
+    }
+}
@@ -0,0 +1,73 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.support.BenchmarkDatabase;
+import com.retailhub.ordermanagementservice.support.CartRequests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Add-to-cart and cart-details latency against a table holding {@code draftOrders} open carts.
+ * The per-operation cost is expected to stay flat as the table grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderFlowBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int draftOrders;
+
+    private BenchmarkDatabase database;
+    private OrderService orderService;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.seedDraftOrders(draftOrders);
+        orderService = database.orderService;
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void addToExistingCart() {
+        int userId = randomUser();
+        int productId = ThreadLocalRandom.current().nextInt(1, 50);
+        orderService.addProductsToCart(CartRequests.cartRequest(database.seededDraftOrderOfUser(userId), userId, productId, 1));
+    }
+
+    @Benchmark
+    public void addToNewCart() {
+        orderService.addProductsToCart(CartRequests.cartRequest(0, randomUser(), 1));
+    }
+
+    @Benchmark
+    public List<CartDetailsDTO> retrieveCartDetails() {
+        return orderService.retrieveCartDetailsByDraftStatus(randomUser());
+    }
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(Math.min(draftOrders, BenchmarkDatabase.USERS));
+    }
+}
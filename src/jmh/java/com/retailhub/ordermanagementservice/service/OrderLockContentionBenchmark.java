@@ -0,0 +1,70 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.support.BenchmarkDatabase;
+import com.retailhub.ordermanagementservice.support.CartRequests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Add-to-cart throughput from 8 threads when {@code hotPercent} of the calls go to one hot order
+ * and the rest to orders spread over all users. With 0 every thread works on a different order and
+ * the order locks should cost nothing; with 100 every call queues on the same stripe.
+ * {@link #addToHotLine()} increments one line of the hot order from every thread, the throughput
+ * of the same-line increments that OrderServiceConcurrencyTest checks for lost updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderLockContentionBenchmark {
+
+    private static final int HOT_USER = 0;
+
+    @Param({"0", "10", "100"})
+    public int hotPercent;
+
+    private BenchmarkDatabase database;
+    private OrderService orderService;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.seedDraftOrders(BenchmarkDatabase.USERS);
+        orderService = database.orderService;
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int addToCart() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = random.nextInt(100) < hotPercent ? HOT_USER : random.nextInt(1, BenchmarkDatabase.USERS);
+        int productId = random.nextInt(1, 50);
+        return orderService.addProductsToCart(CartRequests.cartRequest(database.seededDraftOrderOfUser(userId), userId, productId, 1));
+    }
+
+    @Benchmark
+    public int addToHotLine() {
+        return orderService.addProductsToCart(CartRequests.cartRequest(database.seededDraftOrderOfUser(HOT_USER), HOT_USER, 1, 1));
+    }
+}
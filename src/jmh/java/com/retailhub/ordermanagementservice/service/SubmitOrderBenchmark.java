@@ -0,0 +1,68 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.CartDetails;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.support.BenchmarkDatabase;
+import com.retailhub.ordermanagementservice.support.CartRequests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submit latency by order size. Each invocation submits a freshly inserted draft; the insert runs
+ * in an invocation-level setup and is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SubmitOrderBenchmark {
+
+    private static final int USER_ID = 1;
+
+    @Param({"10", "100", "1000"})
+    public int lines;
+
+    private BenchmarkDatabase database;
+    private CartDetailsDTO submitRequest;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.seedDraftOrders(10_000);
+    }
+
+    @Setup(Level.Invocation)
+    public void insertDraftOrder() {
+        int orderId = database.orderIdGenerator.generateOrderId();
+        submitRequest = CartRequests.cartRequest(orderId, USER_ID, lines);
+        CartDetails cartDetails = database.orderService.transformCartDetailsDTOToCartDetails(submitRequest);
+        cartDetails.getOrderDetailsList().forEach(orderDetails -> orderDetails.setOrderId(orderId));
+        database.orderHeaderRepository.insertOrderHeader(cartDetails.getOrderHeader());
+        database.orderDetailsRepository.insertOrderDetails(cartDetails.getOrderDetailsList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void submitApprovedOrder() {
+        database.orderService.submitApprovedOrder(submitRequest);
+    }
+}
@@ -0,0 +1,106 @@
+package com.retailhub.ordermanagementservice.support;
+
+import com.retailhub.ordermanagementservice.cache.CaffeineCartDetailsCache;
+import com.retailhub.ordermanagementservice.datasource.ReadYourWritesWindow;
+import com.retailhub.ordermanagementservice.lock.OrderLockManager;
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.metrics.StatementCountingDataSource;
+import com.retailhub.ordermanagementservice.repository.OrderChangeEventRepository;
+import com.retailhub.ordermanagementservice.repository.OrderDetailsRepository;
+import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderSummaryRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderVersionRepository;
+import com.retailhub.ordermanagementservice.service.BulkOrderService;
+import com.retailhub.ordermanagementservice.service.OrderService;
+import com.retailhub.ordermanagementservice.util.OrderIdGenerator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.UUID;
+
+/**
+ * A migrated, pooled H2 database with the service wired by hand. The cart cache is disabled so
+ * that read benchmarks measure the database path, and statements are counted as in the application.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    public static final int USERS = 10_000;
+    public static final int LINES_PER_SEEDED_ORDER = 3;
+    private static final int FIRST_SEEDED_ORDER_ID = 10_000;
+
+    public final HikariDataSource dataSource;
+    public final StatementCountingDataSource countingDataSource;
+    public final JdbcTemplate jdbcTemplate;
+    public final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    public final DataSourceTransactionManager transactionManager;
+    public final QueryMetrics queryMetrics;
+    public final OrderHeaderRepository orderHeaderRepository;
+    public final OrderDetailsRepository orderDetailsRepository;
+    public final UserOrderVersionRepository userOrderVersionRepository;
+    public final OrderIdGenerator orderIdGenerator;
+    public final OrderLockManager orderLockManager;
+    public final OrderService orderService;
+    public final BulkOrderService bulkOrderService;
+
+    public BenchmarkDatabase() {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        hikariConfig.setUsername("sa");
+        hikariConfig.setMaximumPoolSize(16);
+        dataSource = new HikariDataSource(hikariConfig);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        countingDataSource = new StatementCountingDataSource(dataSource);
+        jdbcTemplate = new JdbcTemplate(countingDataSource);
+        namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(countingDataSource);
+        transactionManager = new DataSourceTransactionManager(countingDataSource);
+        queryMetrics = new QueryMetrics(new SimpleMeterRegistry());
+        orderHeaderRepository = new OrderHeaderRepository(namedParameterJdbcTemplate, queryMetrics, 500);
+        orderDetailsRepository = new OrderDetailsRepository(namedParameterJdbcTemplate, queryMetrics);
+        userOrderVersionRepository = new UserOrderVersionRepository(namedParameterJdbcTemplate, queryMetrics);
+        orderIdGenerator = new OrderIdGenerator(namedParameterJdbcTemplate, transactionManager, 1000);
+        CaffeineCartDetailsCache cartDetailsCache = new CaffeineCartDetailsCache(0, 1);
+        OrderChangeEventRepository orderChangeEventRepository = new OrderChangeEventRepository(namedParameterJdbcTemplate, queryMetrics);
+        UserOrderSummaryRepository userOrderSummaryRepository = new UserOrderSummaryRepository(namedParameterJdbcTemplate, queryMetrics);
+        orderLockManager = new OrderLockManager(new SimpleMeterRegistry(), 64, 2000);
+        ReadYourWritesWindow readYourWritesWindow = new ReadYourWritesWindow(false, 0, 1);
+        orderService = new OrderService(orderHeaderRepository, orderDetailsRepository, orderIdGenerator, cartDetailsCache,
+                userOrderVersionRepository, orderChangeEventRepository, userOrderSummaryRepository, orderLockManager,
+                readYourWritesWindow, transactionManager, 5);
+        bulkOrderService = new BulkOrderService(orderService, orderHeaderRepository, orderDetailsRepository, orderIdGenerator,
+                cartDetailsCache, userOrderVersionRepository, orderChangeEventRepository, userOrderSummaryRepository, orderLockManager,
+                readYourWritesWindow, transactionManager, 100, 5);
+    }
+
+    /**
+     * Seeds {@code draftOrders} draft orders spread over {@link #USERS} users, each with
+     * {@link #LINES_PER_SEEDED_ORDER} lines, and moves the id sequence past them.
+     */
+    public void seedDraftOrders(int draftOrders) {
+        int lastOrderId = FIRST_SEEDED_ORDER_ID + draftOrders - 1;
+        jdbcTemplate.update("INSERT INTO orders (order_id, user_id, total_order_value, order_status, line_count, total_quantity) " +
+                "SELECT x, MOD(x, ?), 30.00, 'D', ?, ? FROM SYSTEM_RANGE(?, ?)",
+                USERS, LINES_PER_SEEDED_ORDER, LINES_PER_SEEDED_ORDER, FIRST_SEEDED_ORDER_ID, lastOrderId);
+        for (int productId = 1; productId <= LINES_PER_SEEDED_ORDER; productId++) {
+            jdbcTemplate.update("INSERT INTO order_details (order_id, product_id, product_name, product_price, quantity) " +
+                    "SELECT x, ?, 'Seeded product', 10.00, 1 FROM SYSTEM_RANGE(?, ?)", productId, FIRST_SEEDED_ORDER_ID, lastOrderId);
+        }
+        jdbcTemplate.update("INSERT INTO user_order_summary (user_id, open_carts, approved_orders, lifetime_value) " +
+                "SELECT user_id, COUNT(*), 0, 0 FROM orders WHERE order_id BETWEEN ? AND ? GROUP BY user_id", FIRST_SEEDED_ORDER_ID, lastOrderId);
+        jdbcTemplate.update("UPDATE order_id_sequence SET next_value = ? WHERE sequence_name = 'order_id'", (long) lastOrderId + 1);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    public int seededDraftOrderOfUser(int userId) {
+        return FIRST_SEEDED_ORDER_ID + userId;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
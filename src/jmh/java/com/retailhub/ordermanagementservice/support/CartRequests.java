@@ -0,0 +1,28 @@
+package com.retailhub.ordermanagementservice.support;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class CartRequests {
+
+    private static final BigDecimal PRODUCT_PRICE = new BigDecimal("10.00");
+
+    private CartRequests() {
+    }
+
+    public static CartDetailsDTO cartRequest(int orderId, int userId, int lines) {
+        return cartRequest(orderId, userId, 1, lines);
+    }
+
+    public static CartDetailsDTO cartRequest(int orderId, int userId, int firstProductId, int lines) {
+        List<CartLineDetailsDTO> cartLines = new ArrayList<>(lines);
+        for (int productId = firstProductId; productId < firstProductId + lines; productId++) {
+            cartLines.add(new CartLineDetailsDTO(productId, "Product " + productId, PRODUCT_PRICE, 1));
+        }
+        return new CartDetailsDTO(orderId, userId, PRODUCT_PRICE.multiply(BigDecimal.valueOf(lines)), null, cartLines);
+    }
+}
@@ -0,0 +1,54 @@
+package com.retailhub.ordermanagementservice.util;
+
+import com.retailhub.ordermanagementservice.support.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order id allocations per second from eight threads sharing one generator, reserving one id per
+ * round trip versus a block of 1000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderIdGeneratorBenchmark {
+
+    @Param({"1", "1000"})
+    public int blockSize;
+
+    private BenchmarkDatabase database;
+    private OrderIdGenerator orderIdGenerator;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        orderIdGenerator = new OrderIdGenerator(database.namedParameterJdbcTemplate, database.transactionManager, blockSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int generateOrderIdUnderContention() {
+        return orderIdGenerator.generateOrderId();
+    }
+}
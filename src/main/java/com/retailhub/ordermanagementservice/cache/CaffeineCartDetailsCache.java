@@ -0,0 +1,54 @@
+package com.retailhub.ordermanagementservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.retailhub.ordermanagementservice.model.VersionedOrders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Node-local cart cache. Loads run inside the cache's per-key compute, so an invalidation of the
+ * same user waits for the load to finish and then removes its result.
+ */
+@Component
+public class CaffeineCartDetailsCache implements CartDetailsCache {
+
+    private final Cache<Integer, VersionedOrders> cache;
+
+    public CaffeineCartDetailsCache(@Value("${order.cart-cache.maximum-size:10000}") long maximumSize,
+                                    @Value("${order.cart-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public VersionedOrders get(int userId, Function<Integer, VersionedOrders> loader) {
+        return cache.get(userId, key -> {
+            VersionedOrders versionedOrders = loader.apply(key);
+            return new VersionedOrders(versionedOrders.getVersion(), List.copyOf(versionedOrders.getOrders()));
+        });
+    }
+
+    @Override
+    public void evict(int userId) {
+        cache.invalidate(userId);
+    }
+
+    @Override
+    public CartDetailsCacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return CartDetailsCacheStatistics.builder()
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+}
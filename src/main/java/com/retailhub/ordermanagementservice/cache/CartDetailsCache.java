@@ -0,0 +1,19 @@
+package com.retailhub.ordermanagementservice.cache;
+
+import com.retailhub.ordermanagementservice.model.VersionedOrders;
+
+import java.util.function.Function;
+
+/**
+ * Assembled draft carts keyed by user id, each with the order version it was loaded at.
+ * Implementations must make {@link #evict(int)} win over a load that is still in flight for the
+ * same user, so a read after an eviction never sees the value that was loaded before it.
+ */
+public interface CartDetailsCache {
+
+    VersionedOrders get(int userId, Function<Integer, VersionedOrders> loader);
+
+    void evict(int userId);
+
+    CartDetailsCacheStatistics statistics();
+}
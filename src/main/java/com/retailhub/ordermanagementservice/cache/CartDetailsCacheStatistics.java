@@ -0,0 +1,16 @@
+package com.retailhub.ordermanagementservice.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartDetailsCacheStatistics {
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+}
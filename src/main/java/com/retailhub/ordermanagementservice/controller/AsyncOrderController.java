@@ -0,0 +1,156 @@
+package com.retailhub.ordermanagementservice.controller;
+
+import com.retailhub.ordermanagementservice.executor.OrderRequestExecutor;
+import com.retailhub.ordermanagementservice.model.BulkOrderResult;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderChangesPage;
+import com.retailhub.ordermanagementservice.model.OrderHistoryPage;
+import com.retailhub.ordermanagementservice.model.UserOrderSummary;
+import com.retailhub.ordermanagementservice.service.BulkOrderService;
+import com.retailhub.ordermanagementservice.service.CartWriteCoalescer;
+import com.retailhub.ordermanagementservice.service.OrderChangeFeed;
+import com.retailhub.ordermanagementservice.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The endpoints of {@link OrderController}, registered in its place when {@code order.async.enabled}
+ * is set. Each one runs the synchronous handler in the read or write bulkhead of the
+ * {@link OrderRequestExecutor} and releases the servlet thread until it completes.
+ */
+@RestController
+@RequestMapping("/order")
+@ConditionalOnProperty(name = "order.async.enabled", havingValue = "true")
+public class AsyncOrderController {
+
+    private final OrderRequestExecutor orderRequestExecutor;
+    private final OrderController orderController;
+
+    public AsyncOrderController(OrderRequestExecutor orderRequestExecutor, OrderService orderDetailsService,
+                                BulkOrderService bulkOrderService, CartWriteCoalescer cartWriteCoalescer,
+                                OrderVersionETags orderVersionETags, OrderChangeFeed orderChangeFeed,
+                                @Value("${order.history.max-page-size:500}") int maxHistoryPageSize,
+                                @Value("${order.changes.max-page-size:1000}") int maxChangesPageSize) {
+        this.orderRequestExecutor = orderRequestExecutor;
+        this.orderController = new OrderController(orderDetailsService, bulkOrderService, cartWriteCoalescer,
+                orderVersionETags, orderChangeFeed, maxHistoryPageSize, maxChangesPageSize);
+    }
+
+    @Operation(summary = "Adds products to cart")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "add to cart"),
+            @ApiResponse(responseCode = "503", description = "write bulkhead full or timed out")
+    })
+    @PostMapping(value = "/add-to-cart")
+    public CompletableFuture<ResponseEntity<Void>> insertOrderDetails(@RequestBody CartDetailsDTO cartDetailsDTO) {
+        return orderRequestExecutor.write(() -> orderController.insertOrderDetails(cartDetailsDTO));
+    }
+
+    @Operation(summary = "Retrieves cart details for a user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve cart details"),
+            @ApiResponse(responseCode = "304", description = "cart details unchanged since the given ETag"),
+            @ApiResponse(responseCode = "503", description = "read bulkhead full or timed out")
+    })
+    @GetMapping(value = "/cart-details")
+    public CompletableFuture<ResponseEntity<List<CartDetailsDTO>>> retrieveCartDetails(
+            @RequestParam int userId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return orderRequestExecutor.read(() -> orderController.retrieveCartDetails(userId, ifNoneMatch));
+    }
+
+    @Operation(summary = "Retrieves order details for a user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve order details"),
+            @ApiResponse(responseCode = "304", description = "order details unchanged since the given ETag"),
+            @ApiResponse(responseCode = "503", description = "read bulkhead full or timed out")
+    })
+    @GetMapping(value = "/details")
+    public CompletableFuture<ResponseEntity<List<CartDetailsDTO>>> retrieveOrderDetails(
+            @RequestParam int userId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return orderRequestExecutor.read(() -> orderController.retrieveOrderDetails(userId, ifNoneMatch));
+    }
+
+    @Operation(summary = "Retrieves the number of open carts and approved orders and the lifetime value of a user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve the order summary"),
+            @ApiResponse(responseCode = "503", description = "read bulkhead full or timed out")
+    })
+    @GetMapping(value = "/summary")
+    public CompletableFuture<ResponseEntity<UserOrderSummary>> retrieveOrderSummary(@RequestParam int userId) {
+        return orderRequestExecutor.read(() -> orderController.retrieveOrderSummary(userId));
+    }
+
+    @Operation(summary = "Retrieves one page of order details for a user, ordered by order id")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve a page of order details"),
+            @ApiResponse(responseCode = "503", description = "read bulkhead full or timed out")
+    })
+    @GetMapping(value = "/details/page")
+    public CompletableFuture<ResponseEntity<OrderHistoryPage>> retrieveOrderDetailsPage(@RequestParam int userId,
+                                                                                        @RequestParam(defaultValue = "0") int after,
+                                                                                        @RequestParam(defaultValue = "100") int limit) {
+        return orderRequestExecutor.read(() -> orderController.retrieveOrderDetailsPage(userId, after, limit));
+    }
+
+    @Operation(summary = "Retrieves the order changes committed after a cursor, in commit order")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve a page of order changes and the cursor to continue from"),
+            @ApiResponse(responseCode = "503", description = "read bulkhead full or timed out")
+    })
+    @GetMapping(value = "/changes")
+    public CompletableFuture<ResponseEntity<OrderChangesPage>> retrieveOrderChanges(@RequestParam(defaultValue = "0") long after,
+                                                                                    @RequestParam(defaultValue = "100") int limit) {
+        return orderRequestExecutor.read(() -> orderController.retrieveOrderChanges(after, limit));
+    }
+
+    @Operation(summary = "Deletes products from cart")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "delete products from cart"),
+            @ApiResponse(responseCode = "503", description = "write bulkhead full or timed out")
+    })
+    @DeleteMapping(value = "/delete-order/{orderId}")
+    public CompletableFuture<ResponseEntity<Void>> deleteOrderFromCart(@PathVariable int orderId, @RequestParam int productId) {
+        return orderRequestExecutor.write(() -> orderController.deleteOrderFromCart(orderId, productId));
+    }
+
+    @Operation(summary = "Submits an order from its cart")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "order approved"),
+            @ApiResponse(responseCode = "404", description = "no such order for the user"),
+            @ApiResponse(responseCode = "409", description = "order is no longer a draft"),
+            @ApiResponse(responseCode = "503", description = "write bulkhead full or timed out")
+    })
+    @PostMapping(value = "/submit-order")
+    public CompletableFuture<ResponseEntity<Void>> submitOrderFromCart(@RequestBody CartDetailsDTO cartDetailsDTO) {
+        return orderRequestExecutor.write(() -> orderController.submitOrderFromCart(cartDetailsDTO));
+    }
+
+    @Operation(summary = "Adds products to the carts of several orders")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "per-order result of the bulk add to cart"),
+            @ApiResponse(responseCode = "503", description = "write bulkhead full or timed out")
+    })
+    @PostMapping(value = "/bulk/add-to-cart")
+    public CompletableFuture<ResponseEntity<List<BulkOrderResult>>> bulkInsertOrderDetails(@RequestBody List<CartDetailsDTO> cartDetailsDTOList) {
+        return orderRequestExecutor.write(() -> orderController.bulkInsertOrderDetails(cartDetailsDTOList));
+    }
+
+    @Operation(summary = "Submits several orders from their carts")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "per-order result of the bulk submit"),
+            @ApiResponse(responseCode = "503", description = "write bulkhead full or timed out")
+    })
+    @PostMapping(value = "/bulk/submit-order")
+    public CompletableFuture<ResponseEntity<List<BulkOrderResult>>> bulkSubmitOrdersFromCart(@RequestBody List<CartDetailsDTO> cartDetailsDTOList) {
+        return orderRequestExecutor.write(() -> orderController.bulkSubmitOrdersFromCart(cartDetailsDTOList));
+    }
+}
@@ -1,26 +1,58 @@
 package com.retailhub.ordermanagementservice.controller;
 
+import com.retailhub.ordermanagementservice.model.BulkOrderResult;
 import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderChangesPage;
+import com.retailhub.ordermanagementservice.model.OrderHistoryPage;
+import com.retailhub.ordermanagementservice.model.UserOrderSummary;
+import com.retailhub.ordermanagementservice.model.VersionedOrders;
+import com.retailhub.ordermanagementservice.service.BulkOrderService;
+import com.retailhub.ordermanagementservice.service.CartWriteCoalescer;
+import com.retailhub.ordermanagementservice.service.OrderChangeFeed;
 import com.retailhub.ordermanagementservice.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.function.Supplier;
 
+/**
+ * The order endpoints answered on the servlet thread. With {@code order.async.enabled} set,
+ * {@link AsyncOrderController} serves them from the bulkheads instead.
+ */
 @Slf4j
 @RestController
 @RequestMapping("/order")
+@ConditionalOnProperty(name = "order.async.enabled", havingValue = "false", matchIfMissing = true)
 public class OrderController {
 
     private final OrderService orderDetailsService;
+    private final BulkOrderService bulkOrderService;
+    private final CartWriteCoalescer cartWriteCoalescer;
+    private final OrderVersionETags orderVersionETags;
+    private final OrderChangeFeed orderChangeFeed;
+    private final int maxHistoryPageSize;
+    private final int maxChangesPageSize;
 
-    public OrderController(OrderService orderDetailsService) {
+    public OrderController(OrderService orderDetailsService, BulkOrderService bulkOrderService, CartWriteCoalescer cartWriteCoalescer,
+                           OrderVersionETags orderVersionETags, OrderChangeFeed orderChangeFeed,
+                           @Value("${order.history.max-page-size:500}") int maxHistoryPageSize,
+                           @Value("${order.changes.max-page-size:1000}") int maxChangesPageSize) {
         this.orderDetailsService = orderDetailsService;
+        this.bulkOrderService = bulkOrderService;
+        this.cartWriteCoalescer = cartWriteCoalescer;
+        this.orderVersionETags = orderVersionETags;
+        this.orderChangeFeed = orderChangeFeed;
+        this.maxHistoryPageSize = maxHistoryPageSize;
+        this.maxChangesPageSize = maxChangesPageSize;
     }
 
     @Operation(summary = "Adds products to cart")
@@ -29,26 +61,83 @@ public class OrderController {
     })
     @PostMapping(value = "/add-to-cart")
     public ResponseEntity<Void> insertOrderDetails(@RequestBody CartDetailsDTO cartDetailsDTO) {
-        orderDetailsService.addProductsToCart(cartDetailsDTO);
+        cartWriteCoalescer.addProductsToCart(cartDetailsDTO);
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
     @Operation(summary = "Retrieves cart details for a user")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "retrieve cart details")
+            @ApiResponse(responseCode = "200", description = "retrieve cart details"),
+            @ApiResponse(responseCode = "304", description = "cart details unchanged since the given ETag")
     })
     @GetMapping(value = "/cart-details")
-    public ResponseEntity<List<CartDetailsDTO>> retrieveCartDetails(@RequestParam int userId) {
-        return new ResponseEntity<>(orderDetailsService.retrieveCartDetailsByDraftStatus(userId), HttpStatus.OK);
+    public ResponseEntity<List<CartDetailsDTO>> retrieveCartDetails(
+            @RequestParam int userId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalRead("cart-details", userId, ifNoneMatch,
+                () -> orderDetailsService.retrieveVersionedCartDetailsByDraftStatus(userId));
     }
 
     @Operation(summary = "Retrieves order details for a user")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "retrieve order details")
+            @ApiResponse(responseCode = "200", description = "retrieve order details"),
+            @ApiResponse(responseCode = "304", description = "order details unchanged since the given ETag")
     })
     @GetMapping(value = "/details")
-    public ResponseEntity<List<CartDetailsDTO>> retrieveOrderDetails(@RequestParam int userId) {
-        return new ResponseEntity<>(orderDetailsService.retrieveOrderDetails(userId), HttpStatus.OK);
+    public ResponseEntity<List<CartDetailsDTO>> retrieveOrderDetails(
+            @RequestParam int userId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalRead("details", userId, ifNoneMatch,
+                () -> orderDetailsService.retrieveVersionedOrderDetails(userId));
+    }
+
+    /**
+     * Answers 304 when {@code ifNoneMatch} names the user's current order version, after a single
+     * version read and without loading or serializing the orders. Otherwise loads them and tags
+     * them with the version they were read at.
+     */
+    private ResponseEntity<List<CartDetailsDTO>> conditionalRead(String resource, int userId, String ifNoneMatch,
+                                                                 Supplier<VersionedOrders> ordersLoader) {
+        if (ifNoneMatch == null) {
+            orderVersionETags.recordUnconditional(resource);
+        } else {
+            long currentVersion = orderDetailsService.retrieveOrderVersion(userId);
+            if (orderVersionETags.isNotModified(resource, ifNoneMatch, currentVersion)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(OrderVersionETags.eTagOf(currentVersion)).build();
+            }
+        }
+        VersionedOrders versionedOrders = ordersLoader.get();
+        return ResponseEntity.ok().eTag(OrderVersionETags.eTagOf(versionedOrders.getVersion())).body(versionedOrders.getOrders());
+    }
+
+    @Operation(summary = "Retrieves the number of open carts and approved orders and the lifetime value of a user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve the order summary")
+    })
+    @GetMapping(value = "/summary")
+    public ResponseEntity<UserOrderSummary> retrieveOrderSummary(@RequestParam int userId) {
+        return new ResponseEntity<>(orderDetailsService.retrieveOrderSummary(userId), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Retrieves one page of order details for a user, ordered by order id")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve a page of order details")
+    })
+    @GetMapping(value = "/details/page")
+    public ResponseEntity<OrderHistoryPage> retrieveOrderDetailsPage(@RequestParam int userId,
+                                                                     @RequestParam(defaultValue = "0") int after,
+                                                                     @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxHistoryPageSize));
+        return new ResponseEntity<>(orderDetailsService.retrieveOrderDetailsPage(userId, after, pageSize), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Retrieves the order changes committed after a cursor, in commit order")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "retrieve a page of order changes and the cursor to continue from")
+    })
+    @GetMapping(value = "/changes")
+    public ResponseEntity<OrderChangesPage> retrieveOrderChanges(@RequestParam(defaultValue = "0") long after,
+                                                                 @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxChangesPageSize));
+        return new ResponseEntity<>(orderChangeFeed.retrieveChanges(after, pageSize), HttpStatus.OK);
     }
 
     @Operation(summary = "Deletes products from cart")
@@ -60,9 +149,34 @@ public class OrderController {
         orderDetailsService.deleteOrderFromCart(orderId, productId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
+
+    @Operation(summary = "Submits an order from its cart")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "order approved"),
+            @ApiResponse(responseCode = "404", description = "no such order for the user"),
+            @ApiResponse(responseCode = "409", description = "order is no longer a draft")
+    })
     @PostMapping(value = "/submit-order")
     public ResponseEntity<Void> submitOrderFromCart(@RequestBody CartDetailsDTO cartDetailsDTO) {
         orderDetailsService.submitApprovedOrder(cartDetailsDTO);
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
+
+    @Operation(summary = "Adds products to the carts of several orders")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "per-order result of the bulk add to cart")
+    })
+    @PostMapping(value = "/bulk/add-to-cart")
+    public ResponseEntity<List<BulkOrderResult>> bulkInsertOrderDetails(@RequestBody List<CartDetailsDTO> cartDetailsDTOList) {
+        return new ResponseEntity<>(bulkOrderService.addProductsToCarts(cartDetailsDTOList), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Submits several orders from their carts")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "per-order result of the bulk submit")
+    })
+    @PostMapping(value = "/bulk/submit-order")
+    public ResponseEntity<List<BulkOrderResult>> bulkSubmitOrdersFromCart(@RequestBody List<CartDetailsDTO> cartDetailsDTOList) {
+        return new ResponseEntity<>(bulkOrderService.submitApprovedOrders(cartDetailsDTOList), HttpStatus.OK);
+    }
 }
@@ -0,0 +1,88 @@
+package com.retailhub.ordermanagementservice.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderExportFilter;
+import com.retailhub.ordermanagementservice.model.OrderExportFormat;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.service.OrderExportService;
+import com.retailhub.ordermanagementservice.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The streamed order endpoints. Spring MVC writes their bodies asynchronously in the stream
+ * bulkhead in either execution mode, so they are served the same way whether or not
+ * {@code order.async.enabled} is set.
+ */
+@RestController
+@RequestMapping("/order")
+public class OrderStreamController {
+
+    private final OrderService orderDetailsService;
+    private final OrderExportService orderExportService;
+    private final ObjectMapper objectMapper;
+
+    public OrderStreamController(OrderService orderDetailsService, OrderExportService orderExportService, ObjectMapper objectMapper) {
+        this.orderDetailsService = orderDetailsService;
+        this.orderExportService = orderExportService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Operation(summary = "Streams all order details for a user as a JSON array")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "stream order details")
+    })
+    @GetMapping(value = "/details/stream")
+    public ResponseEntity<StreamingResponseBody> streamOrderDetails(@RequestParam int userId) {
+        StreamingResponseBody responseBody = outputStream -> {
+            try (JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(outputStream)) {
+                jsonGenerator.writeStartArray();
+                orderDetailsService.streamOrderDetails(userId, cartDetailsDTO -> writeOrder(jsonGenerator, cartDetailsDTO));
+                jsonGenerator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(responseBody);
+    }
+
+    private static void writeOrder(JsonGenerator jsonGenerator, CartDetailsDTO cartDetailsDTO) {
+        try {
+            jsonGenerator.writeObject(cartDetailsDTO);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Operation(summary = "Streams live and archived orders joined with their lines, ordered by order id, as NDJSON or CSV")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "stream the order export")
+    })
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "NDJSON") OrderExportFormat format,
+                                                              @RequestParam(required = false) OrderStatus status,
+                                                              @RequestParam(defaultValue = "0") int fromOrderId,
+                                                              @RequestParam(defaultValue = "2147483647") int toOrderId,
+                                                              @RequestParam(defaultValue = "false") boolean gzip) {
+        OrderExportFilter filter = OrderExportFilter.builder()
+                .fromOrderId(fromOrderId)
+                .toOrderId(toOrderId)
+                .orderStatus(status)
+                .build();
+        StreamingResponseBody responseBody = outputStream -> orderExportService.exportOrders(filter, format, gzip, outputStream);
+        String fileName = "orders." + format.getFileExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(responseBody);
+    }
+}
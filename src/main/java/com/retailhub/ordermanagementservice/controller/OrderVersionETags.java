@@ -0,0 +1,63 @@
+package com.retailhub.ordermanagementservice.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Strong ETags derived from a user's order version, and the {@code order.etag.requests} counter
+ * whose {@code result} tag tells conditional reads answered with 304 ({@code hit}) from those that
+ * had to load the orders ({@code miss}) and from unconditional reads ({@code none}).
+ */
+@Component
+public class OrderVersionETags {
+
+    private final MeterRegistry meterRegistry;
+
+    public OrderVersionETags(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static String eTagOf(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Whether {@code ifNoneMatch} names the representation at {@code currentVersion}, using the weak
+     * comparison If-None-Match calls for. Records the outcome for {@code resource}.
+     */
+    public boolean isNotModified(String resource, String ifNoneMatch, long currentVersion) {
+        boolean notModified = matches(ifNoneMatch, eTagOf(currentVersion));
+        record(resource, notModified ? "hit" : "miss");
+        return notModified;
+    }
+
+    public void recordUnconditional(String resource) {
+        record(resource, "none");
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return true;
+            }
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void record(String resource, String result) {
+        Counter.builder("order.etag.requests")
+                .description("Cart and order reads by outcome of their ETag check")
+                .tag("resource", resource)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,68 @@
+package com.retailhub.ordermanagementservice.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Users who changed their orders within the last {@code order.datasource.read-your-writes-millis}.
+ * Their reads run in read-write transactions, so on the primary, until the replica has had that
+ * long to catch up; set it above the usual replication lag, or to 0 to always read from the
+ * replica. The window is tracked per node.
+ * <p>
+ * With a replica configured, {@link #readsFromReplica(int)} tells callers which of a user's reads
+ * may be stale, so they are not kept in a cache that would outlive the replication lag.
+ */
+@Component
+public class ReadYourWritesWindow {
+
+    private final boolean replicaConfigured;
+    private final Cache<Integer, Boolean> recentWriters;
+
+    public ReadYourWritesWindow(@Value("#{'${order.datasource.replica.jdbc-url:}' != ''}") boolean replicaConfigured,
+                                @Value("${order.datasource.read-your-writes-millis:0}") long windowMillis,
+                                @Value("${order.datasource.read-your-writes-maximum-users:100000}") long maximumUsers) {
+        this.replicaConfigured = replicaConfigured;
+        this.recentWriters = windowMillis > 0
+                ? Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(windowMillis)).maximumSize(maximumUsers).build()
+                : null;
+    }
+
+    /**
+     * Opens the user's window once the surrounding transaction has committed, so it runs from the
+     * moment the write is visible on the primary; a rolled back transaction wrote nothing to wait
+     * for. Without a transaction it opens immediately.
+     */
+    public void recordWrite(int userId) {
+        if (recentWriters == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recentWriters.put(userId, Boolean.TRUE);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+        });
+    }
+
+    public boolean isRecentWriter(int userId) {
+        return recentWriters != null && recentWriters.getIfPresent(userId) != null;
+    }
+
+    /**
+     * Whether a read of the user's orders goes to the replica, which is when one is configured and
+     * the user is outside their window.
+     */
+    public boolean readsFromReplica(int userId) {
+        return replicaConfigured && !isRecentWriter(userId);
+    }
+}
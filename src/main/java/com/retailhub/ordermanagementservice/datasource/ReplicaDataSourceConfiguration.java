@@ -0,0 +1,53 @@
+package com.retailhub.ordermanagementservice.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Active when {@code order.datasource.replica.jdbc-url} is set. The primary pool keeps its
+ * {@code spring.datasource.*} settings; the replica pool is a Hikari pool bound from
+ * {@code order.datasource.replica.*} (jdbc-url, username, password, maximum-pool-size, ...).
+ * Read-only transactions are routed to the replica, everything else, Flyway included, to the
+ * primary.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "order.datasource.replica", name = "jdbc-url")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primaryDataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primaryDataSource.setPoolName("primary");
+        return primaryDataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("order.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replicaDataSource = DataSourceBuilder.create().type(HikariDataSource.class).build();
+        replicaDataSource.setPoolName("replica");
+        replicaDataSource.setReadOnly(true);
+        return replicaDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        log.info("Routing read-only transactions to the replica pool");
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+    }
+}
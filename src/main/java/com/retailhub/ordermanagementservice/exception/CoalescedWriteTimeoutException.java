@@ -0,0 +1,11 @@
+package com.retailhub.ordermanagementservice.exception;
+
+/**
+ * A coalesced add-to-cart did not hear back from its flush in time. The increment may still be
+ * written by that flush, so the request must not be replayed on the regular path.
+ */
+public class CoalescedWriteTimeoutException extends RuntimeException {
+    public CoalescedWriteTimeoutException(String message) {
+        super(message);
+    }
+}
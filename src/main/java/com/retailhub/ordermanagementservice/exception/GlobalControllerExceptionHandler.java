@@ -1,13 +1,19 @@
 package com.retailhub.ordermanagementservice.exception;
 
+import com.retailhub.ordermanagementservice.lock.OrderLockTimeoutException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionTimedOutException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
 @ControllerAdvice
 @Slf4j
 public class GlobalControllerExceptionHandler extends ResponseEntityExceptionHandler {
@@ -22,6 +28,18 @@ public class GlobalControllerExceptionHandler extends ResponseEntityExceptionHan
         return new ResponseEntity<>(createExceptionInfoModel(request, exception), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(OrderStatusConflictException.class)
+    public ResponseEntity<ExceptionInfoModel> orderStatusConflictExceptionHandler(HttpServletRequest request, OrderStatusConflictException exception) {
+        return new ResponseEntity<>(createExceptionInfoModel(request, exception), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler({RejectedExecutionException.class, TimeoutException.class, OrderLockTimeoutException.class,
+            CoalescedWriteTimeoutException.class, TransactionTimedOutException.class, QueryTimeoutException.class})
+    public ResponseEntity<ExceptionInfoModel> overloadExceptionHandler(HttpServletRequest request, Exception exception) {
+        log.warn("Rejected {} : {}", request.getRequestURI(), exception.toString());
+        return new ResponseEntity<>(createExceptionInfoModel(request, exception), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     private ExceptionInfoModel createExceptionInfoModel(HttpServletRequest request, Exception exception) {
         return new ExceptionInfoModel(request.getRequestURI(), exception);
     }
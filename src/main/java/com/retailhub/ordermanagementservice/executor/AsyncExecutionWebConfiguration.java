@@ -0,0 +1,39 @@
+package com.retailhub.ordermanagementservice.executor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs Spring MVC's own async work, such as the streamed history and export bodies, in a
+ * {@link Bulkhead} of its own in either execution mode. Streams are capped by
+ * {@code order.async.stream.threads} and {@code order.async.stream.queue-capacity} and cancelled
+ * after {@code order.async.stream.timeout-millis}, and never take the read bulkhead's slots.
+ */
+@Configuration
+public class AsyncExecutionWebConfiguration implements WebMvcConfigurer {
+
+    private final Bulkhead streamBulkhead;
+
+    public AsyncExecutionWebConfiguration(MeterRegistry meterRegistry,
+                                          @Value("${order.async.virtual-threads:true}") boolean virtualThreads,
+                                          @Value("${order.async.stream.threads:16}") int streamThreads,
+                                          @Value("${order.async.stream.queue-capacity:32}") int streamQueueCapacity,
+                                          @Value("${order.async.stream.timeout-millis:1800000}") long streamTimeoutMillis) {
+        this.streamBulkhead = new Bulkhead("stream", streamThreads, streamQueueCapacity, streamTimeoutMillis, virtualThreads, meterRegistry);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(streamBulkhead));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        streamBulkhead.shutdown();
+    }
+}
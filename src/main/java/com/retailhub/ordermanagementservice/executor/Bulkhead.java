@@ -0,0 +1,190 @@
+package com.retailhub.ordermanagementservice.executor;
+
+import com.retailhub.ordermanagementservice.metrics.StatementStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * An isolated executor that runs at most {@code threads} tasks at a time and admits at most
+ * {@code queueCapacity} more waiting behind them; anything beyond that is rejected straight away
+ * with {@link BulkheadFullException}. Work runs on virtual threads when the JDK offers them and on a
+ * fixed platform-thread pool otherwise. The caller's {@link StatementStatistics} follow the task.
+ * Tasks that outlive {@code timeoutMillis} are cancelled and their thread interrupted.
+ */
+@Slf4j
+public class Bulkhead implements Executor {
+
+    private final String name;
+    private final ExecutorService executorService;
+    private final Semaphore admissions;
+    private final Semaphore running;
+    private final long timeoutMillis;
+    private final Counter rejected;
+    private final Counter timedOut;
+
+    public Bulkhead(String name, int threads, int queueCapacity, long timeoutMillis, boolean virtualThreads,
+                    MeterRegistry meterRegistry) {
+        this.name = name;
+        this.timeoutMillis = timeoutMillis;
+        this.admissions = new Semaphore(threads + queueCapacity);
+        ExecutorService virtualThreadExecutor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            this.executorService = virtualThreadExecutor;
+            this.running = new Semaphore(threads);
+        } else {
+            this.executorService = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), namedThreads(name));
+            this.running = null;
+        }
+        log.info("Bulkhead {} runs {} tasks at a time on {} threads, queue capacity {}", name, threads,
+                running == null ? "pooled" : "virtual", queueCapacity);
+        Gauge.builder("order.bulkhead.admitted", admissions, semaphore -> threads + queueCapacity - semaphore.availablePermits())
+                .description("Tasks running or queued in the bulkhead")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("order.bulkhead.rejected").tag("bulkhead", name).register(meterRegistry);
+        this.timedOut = Counter.builder("order.bulkhead.timed.out").tag("bulkhead", name).register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code work} in the bulkhead. The future fails with {@link BulkheadFullException} when
+     * the queue is full and with a {@link TimeoutException} after
+     * {@code timeoutMillis}, at which point the work is cancelled: dropped if still queued and
+     * interrupted if running.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = execute(() -> result.complete(work.get()), result);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((value, failure) -> {
+                    if (failure instanceof TimeoutException) {
+                        timedOut.increment();
+                        task.cancel(true);
+                    }
+                });
+    }
+
+    /**
+     * Runs {@code task} in the bulkhead under the same admission limit and timeout as
+     * {@link #submit(Supplier)}: it is rejected with {@link BulkheadFullException} when the queue is
+     * full and cancelled after {@code timeoutMillis}.
+     */
+    @Override
+    public void execute(Runnable task) {
+        Future<?> futureTask = execute(task, null);
+        CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (futureTask.cancel(true)) {
+                timedOut.increment();
+            }
+        });
+    }
+
+    /**
+     * Queues {@code task} once admitted. The admission is given back exactly once: by the task when
+     * it ends, or on cancellation if the task never started.
+     */
+    private Future<?> execute(Runnable task, CompletableFuture<?> result) {
+        if (!admissions.tryAcquire()) {
+            rejected.increment();
+            throw new BulkheadFullException("Bulkhead " + name + " is full");
+        }
+        StatementStatistics statementStatistics = StatementStatistics.current();
+        AtomicBoolean claimed = new AtomicBoolean();
+        FutureTask<Void> futureTask = new FutureTask<>(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try (StatementStatistics.Scope ignored = statementStatistics == null ? null : StatementStatistics.open(statementStatistics)) {
+                runAdmitted(task);
+            } catch (RuntimeException | Error e) {
+                if (result == null) {
+                    log.error("Task in bulkhead {} failed", name, e);
+                } else {
+                    result.completeExceptionally(e);
+                }
+            } finally {
+                admissions.release();
+            }
+            return null;
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled() && claimed.compareAndSet(false, true)) {
+                    admissions.release();
+                }
+            }
+        };
+        try {
+            executorService.execute(futureTask);
+        } catch (RuntimeException e) {
+            admissions.release();
+            throw e;
+        }
+        return futureTask;
+    }
+
+    private void runAdmitted(Runnable task) {
+        if (running == null) {
+            task.run();
+            return;
+        }
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            running.release();
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
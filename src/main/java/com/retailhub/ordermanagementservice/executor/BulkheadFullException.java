@@ -0,0 +1,9 @@
+package com.retailhub.ordermanagementservice.executor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+public class BulkheadFullException extends RejectedExecutionException {
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+package com.retailhub.ordermanagementservice.executor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs controller work off the servlet threads when {@code order.async.enabled} is set, with reads
+ * and writes in separate {@link Bulkhead}s so a slow history query cannot hold up add-to-cart.
+ * Only present in that mode; otherwise the controllers answer on the servlet thread. Streamed
+ * bodies run in the stream bulkhead of {@link AsyncExecutionWebConfiguration} instead.
+ */
+@Component
+@ConditionalOnProperty(name = "order.async.enabled", havingValue = "true")
+public class OrderRequestExecutor {
+
+    private final Bulkhead readBulkhead;
+    private final Bulkhead writeBulkhead;
+
+    public OrderRequestExecutor(MeterRegistry meterRegistry,
+                                @Value("${order.async.virtual-threads:true}") boolean virtualThreads,
+                                @Value("${order.async.read.threads:32}") int readThreads,
+                                @Value("${order.async.read.queue-capacity:200}") int readQueueCapacity,
+                                @Value("${order.async.read.timeout-millis:5000}") long readTimeoutMillis,
+                                @Value("${order.async.write.threads:32}") int writeThreads,
+                                @Value("${order.async.write.queue-capacity:200}") int writeQueueCapacity,
+                                @Value("${order.async.write.timeout-millis:5000}") long writeTimeoutMillis) {
+        this.readBulkhead = new Bulkhead("read", readThreads, readQueueCapacity, readTimeoutMillis, virtualThreads, meterRegistry);
+        this.writeBulkhead = new Bulkhead("write", writeThreads, writeQueueCapacity, writeTimeoutMillis, virtualThreads, meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> read(Supplier<T> work) {
+        return readBulkhead.submit(work);
+    }
+
+    public <T> CompletableFuture<T> write(Supplier<T> work) {
+        return writeBulkhead.submit(work);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        readBulkhead.shutdown();
+        writeBulkhead.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package com.retailhub.ordermanagementservice.lock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes mutations of the same order within this node. Order ids map onto
+ * {@code order.lock.stripes} reentrant locks, so mutations of one order run one at a time while
+ * orders on different stripes proceed in parallel.
+ * <p>
+ * Take the lock before starting the transaction and release it after the transaction has
+ * finished: the transaction then stays short, and the next mutation of the order starts from
+ * committed state. Several orders are locked stripe by stripe in ascending stripe order, so two
+ * callers can never each hold a stripe the other is waiting for. A lock not acquired within
+ * {@code order.lock.wait-timeout-millis} fails the call with {@link OrderLockTimeoutException}.
+ * Time spent waiting is recorded in the {@code order.lock.wait} timer.
+ */
+@Component
+public class OrderLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final long waitTimeoutNanos;
+    private final Timer acquiredWait;
+    private final Timer timedOutWait;
+
+    public OrderLockManager(MeterRegistry meterRegistry,
+                            @Value("${order.lock.stripes:64}") int stripeCount,
+                            @Value("${order.lock.wait-timeout-millis:2000}") long waitTimeoutMillis) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+        this.acquiredWait = waitTimer(meterRegistry, "acquired");
+        this.timedOutWait = waitTimer(meterRegistry, "timed.out");
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("order.lock.wait")
+                .description("Time spent waiting for order locks")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public <T> T withOrderLock(int orderId, Supplier<T> action) {
+        return withStripesLocked(new int[]{stripeOf(orderId)}, action);
+    }
+
+    public <T> T withOrderLocks(Collection<Integer> orderIds, Supplier<T> action) {
+        int[] stripeIndexes = orderIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        return withStripesLocked(stripeIndexes, action);
+    }
+
+    int stripeOf(int orderId) {
+        return Math.floorMod(orderId, stripes.length);
+    }
+
+    private <T> T withStripesLocked(int[] stripeIndexes, Supplier<T> action) {
+        long start = System.nanoTime();
+        int locked = 0;
+        try {
+            for (int stripeIndex : stripeIndexes) {
+                long remainingNanos = waitTimeoutNanos - (System.nanoTime() - start);
+                if (!stripes[stripeIndex].tryLock(remainingNanos, TimeUnit.NANOSECONDS)) {
+                    timedOutWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    throw new OrderLockTimeoutException("Timed out waiting for order lock stripe " + stripeIndex);
+                }
+                locked++;
+            }
+            acquiredWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return action.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderLockTimeoutException("Interrupted while waiting for order lock");
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+        }
+    }
+}
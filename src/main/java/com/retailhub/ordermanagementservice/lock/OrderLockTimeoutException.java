@@ -0,0 +1,7 @@
+package com.retailhub.ordermanagementservice.lock;
+
+public class OrderLockTimeoutException extends RuntimeException {
+    public OrderLockTimeoutException(String message) {
+        super(message);
+    }
+}
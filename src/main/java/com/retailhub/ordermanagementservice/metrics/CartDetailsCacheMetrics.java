@@ -0,0 +1,33 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import com.retailhub.ordermanagementservice.cache.CartDetailsCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the cart cache hit, miss and eviction counts, read from the cache's own statistics
+ * at scrape time.
+ */
+@Component
+public class CartDetailsCacheMetrics implements MeterBinder {
+
+    private final CartDetailsCache cartDetailsCache;
+
+    public CartDetailsCacheMetrics(CartDetailsCache cartDetailsCache) {
+        this.cartDetailsCache = cartDetailsCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("order.cart.cache.requests", cartDetailsCache, cache -> cache.statistics().getHitCount())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("order.cart.cache.requests", cartDetailsCache, cache -> cache.statistics().getMissCount())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("order.cart.cache.evictions", cartDetailsCache, cache -> cache.statistics().getEvictionCount())
+                .register(registry);
+    }
+}
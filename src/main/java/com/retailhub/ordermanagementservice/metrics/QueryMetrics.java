@@ -0,0 +1,101 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Times each named repository statement and counts the rows it returned or affected.
+ * Every {@code jdbcTemplate} call in the repositories goes through one of these methods. The
+ * per-request {@link StatementStatistics} are collected below this, by
+ * {@link StatementCountingDataSource}.
+ */
+@Component
+public class QueryMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, QueryMeters> queryMeters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> List<T> queryForList(String queryName, Supplier<List<T>> query) {
+        List<T> rows = time(queryName, query);
+        metersFor(queryName).rowsReturned.increment(rows.size());
+        return rows;
+    }
+
+    public <T> T queryForObject(String queryName, Supplier<T> query) {
+        T row = time(queryName, query);
+        if (row != null) {
+            metersFor(queryName).rowsReturned.increment();
+        }
+        return row;
+    }
+
+    public void query(String queryName, RowCallbackHandler rowCallbackHandler, Consumer<RowCallbackHandler> query) {
+        QueryMeters meters = metersFor(queryName);
+        RowCallbackHandler countingHandler = rs -> {
+            rowCallbackHandler.processRow(rs);
+            meters.rowsReturned.increment();
+        };
+        time(queryName, () -> {
+            query.accept(countingHandler);
+            return null;
+        });
+    }
+
+    public int update(String queryName, IntSupplier update) {
+        int updatedRows = time(queryName, update::getAsInt);
+        metersFor(queryName).rowsAffected.increment(updatedRows);
+        return updatedRows;
+    }
+
+    public int[] batchUpdate(String queryName, Supplier<int[]> batchUpdate) {
+        int[] updatedCounts = time(queryName, batchUpdate);
+        long updatedRows = 0;
+        for (int updatedCount : updatedCounts) {
+            updatedRows += Math.max(updatedCount, 0);
+        }
+        metersFor(queryName).rowsAffected.increment(updatedRows);
+        return updatedCounts;
+    }
+
+    private <T> T time(String queryName, Supplier<T> statement) {
+        long start = System.nanoTime();
+        try {
+            return statement.get();
+        } finally {
+            metersFor(queryName).timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private QueryMeters metersFor(String queryName) {
+        return queryMeters.computeIfAbsent(queryName, name -> new QueryMeters(
+                Timer.builder("order.db.query")
+                        .description("Latency of a named repository statement")
+                        .tag("query", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("order.db.rows.returned")
+                        .tag("query", name)
+                        .register(meterRegistry),
+                Counter.builder("order.db.rows.affected")
+                        .tag("query", name)
+                        .register(meterRegistry)));
+    }
+
+    private record QueryMeters(Timer timer, Counter rowsReturned, Counter rowsAffected) {
+    }
+}
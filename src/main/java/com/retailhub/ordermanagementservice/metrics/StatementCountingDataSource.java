@@ -0,0 +1,103 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Records every statement executed through its connections into the {@link StatementStatistics}
+ * open on the executing thread, keyed by its SQL text. Counting at the connection rather than in
+ * {@link QueryMetrics} also catches statements that no repository names, such as the order id block
+ * reservation. A batch counts as one statement because it is one round trip.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final String UNPREPARED_BATCH = "(batch)";
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * Closes the wrapped pool, so that the wrapper can stand in for it as a bean.
+     */
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof CallableStatement callableStatement) {
+                return countingStatement(CallableStatement.class, callableStatement, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement preparedStatement) {
+                return countingStatement(PreparedStatement.class, preparedStatement, (String) args[0]);
+            }
+            if (result instanceof Statement statement) {
+                return countingStatement(Statement.class, statement, UNPREPARED_BATCH);
+            }
+            return result;
+        });
+    }
+
+    private static <S extends Statement> S countingStatement(Class<S> statementType, S statement, String preparedSql) {
+        return proxy(statementType, statement, (proxy, method, args) -> {
+            StatementStatistics statementStatistics = StatementStatistics.current();
+            if (statementStatistics == null || !method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                String sql = args != null && args.length > 0 && args[0] instanceof String executedSql ? executedSql : preparedSql;
+                statementStatistics.record(sql, System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, T target, TargetInvocation invocation) {
+        return type.cast(Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Counting " + target;
+                    default -> invocation.invoke(proxy, method, args);
+                }));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetInvocation {
+        Object invoke(Object proxy, Method method, Object[] args) throws Throwable;
+    }
+}
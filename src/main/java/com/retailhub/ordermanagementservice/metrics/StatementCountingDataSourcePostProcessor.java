@@ -0,0 +1,22 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps each connection pool in a {@link StatementCountingDataSource}. Wrapping the pools rather
+ * than the routing data source in front of them counts every statement exactly once, whichever
+ * pool serves it.
+ */
+@Component
+public class StatementCountingDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource hikariDataSource) {
+            return new StatementCountingDataSource(hikariDataSource);
+        }
+        return bean;
+    }
+}
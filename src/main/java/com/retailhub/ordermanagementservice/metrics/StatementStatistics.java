@@ -0,0 +1,97 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Statements executed on behalf of one unit of work, usually one HTTP request.
+ * {@link StatementCountingDataSource} records into whichever instance is open on the executing
+ * thread, keyed by SQL text; a batch counts as one statement because it is one round trip.
+ */
+public final class StatementStatistics {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-Statement-Count";
+    public static final String STATEMENT_TIME_HEADER = "X-Statement-Time-Ms";
+
+    private static final ThreadLocal<StatementStatistics> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger statementCount = new AtomicInteger();
+    private final AtomicLong elapsedNanos = new AtomicLong();
+    private final ConcurrentMap<String, AtomicInteger> executionsByQuery = new ConcurrentHashMap<>();
+
+    /**
+     * Makes {@code statistics} the target of statements run on this thread until the returned
+     * scope is closed, which restores whatever was open before.
+     */
+    public static Scope open(StatementStatistics statistics) {
+        StatementStatistics previous = CURRENT.get();
+        CURRENT.set(statistics);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public static StatementStatistics current() {
+        return CURRENT.get();
+    }
+
+    void record(String sql, long nanos) {
+        statementCount.incrementAndGet();
+        elapsedNanos.addAndGet(nanos);
+        executionsByQuery.computeIfAbsent(sql, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Adds the statements recorded by {@code other}, for work that ran on another thread on behalf
+     * of this unit, such as a coalesced flush.
+     */
+    public void addAll(StatementStatistics other) {
+        statementCount.addAndGet(other.getStatementCount());
+        elapsedNanos.addAndGet(other.elapsedNanos.get());
+        other.executionsByQuery.forEach((sql, executions) ->
+                executionsByQuery.computeIfAbsent(sql, key -> new AtomicInteger()).addAndGet(executions.get()));
+    }
+
+    public int getStatementCount() {
+        return statementCount.get();
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos.get());
+    }
+
+    public int getExecutions(String sql) {
+        AtomicInteger executions = executionsByQuery.get(sql);
+        return executions == null ? 0 : executions.get();
+    }
+
+    /**
+     * Statements whose SQL ran at least {@code threshold} times, the usual shape of an N+1 access
+     * pattern.
+     */
+    public Map<String, Integer> getRepeatedQueries(int threshold) {
+        return executionsByQuery.entrySet().stream()
+                .filter(entry -> entry.getValue().get() >= threshold)
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get()));
+    }
+
+    public void writeHeaders(BiConsumer<String, String> header) {
+        header.accept(STATEMENT_COUNT_HEADER, String.valueOf(getStatementCount()));
+        header.accept(STATEMENT_TIME_HEADER, String.valueOf(getElapsed().toMillis()));
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,102 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Collects {@link StatementStatistics} for each HTTP request, publishes them as per-endpoint
+ * metrics and logs queries repeated often enough to look like an N+1 pattern. The statistics are
+ * kept in a request attribute so async processing can keep recording into them; responses that
+ * carry a body get the headers from {@link StatementStatisticsResponseAdvice}, the rest get them
+ * here.
+ */
+@Slf4j
+@Component
+public class StatementStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENT_STATISTICS_ATTRIBUTE = StatementStatistics.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatedQueryThreshold;
+
+    public StatementStatisticsFilter(MeterRegistry meterRegistry,
+                                     @Value("${order.statements.repeated-query-threshold:3}") int repeatedQueryThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.repeatedQueryThreshold = repeatedQueryThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementStatistics statementStatistics = new StatementStatistics();
+        request.setAttribute(STATEMENT_STATISTICS_ATTRIBUTE, statementStatistics);
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+            filterChain.doFilter(request, response);
+        }
+        if (isAsyncStarted(request)) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    report(request, statementStatistics);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+            return;
+        }
+        if (!response.isCommitted()) {
+            statementStatistics.writeHeaders(response::setHeader);
+        }
+        report(request, statementStatistics);
+    }
+
+    private void report(HttpServletRequest request, StatementStatistics statementStatistics) {
+        String uri = uriTag(request);
+        DistributionSummary.builder("order.db.statements.per.request")
+                .description("Statements executed while serving one request")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statementStatistics.getStatementCount());
+        Timer.builder("order.db.time.per.request")
+                .description("Time spent in the database while serving one request")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statementStatistics.getElapsed());
+        Map<String, Integer> repeatedQueries = statementStatistics.getRepeatedQueries(repeatedQueryThreshold);
+        if (!repeatedQueries.isEmpty()) {
+            log.warn("Possible N+1 while serving {} {} : repeated queries {}", request.getMethod(), uri, repeatedQueries);
+        }
+    }
+
+    private static String uriTag(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+}
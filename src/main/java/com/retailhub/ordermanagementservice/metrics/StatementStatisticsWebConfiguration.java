@@ -0,0 +1,43 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Reopens the request's {@link StatementStatistics} on the thread that runs async work such as
+ * streamed responses, so those statements are counted against the request too.
+ */
+@Configuration
+public class StatementStatisticsWebConfiguration implements WebMvcConfigurer {
+
+    private static final String SCOPE_ATTRIBUTE = StatementStatistics.Scope.class.getName();
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                Object statementStatistics = request.getAttribute(StatementStatisticsFilter.STATEMENT_STATISTICS_ATTRIBUTE,
+                        RequestAttributes.SCOPE_REQUEST);
+                if (statementStatistics instanceof StatementStatistics statistics) {
+                    request.setAttribute(SCOPE_ATTRIBUTE, StatementStatistics.open(statistics), RequestAttributes.SCOPE_REQUEST);
+                }
+            }
+
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+                Object scope = request.getAttribute(SCOPE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (scope instanceof StatementStatistics.Scope statementScope) {
+                    request.removeAttribute(SCOPE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                    statementScope.close();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.retailhub.ordermanagementservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderResult {
+    private int index;
+    private int orderId;
+    private int userId;
+    private boolean success;
+    private String error;
+}
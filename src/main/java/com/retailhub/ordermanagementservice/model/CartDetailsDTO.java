@@ -16,6 +16,6 @@ public class CartDetailsDTO {
     private int orderId;
     private int userId;
     private BigDecimal totalOrderValue;
-    private String orderStatus;
+    private OrderStatus orderStatus;
     List<CartLineDetailsDTO> cartLineDetailsDTOList;
 }
@@ -0,0 +1,21 @@
+package com.retailhub.ordermanagementservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderChangeEvent {
+    private long eventId;
+    private int orderId;
+    private int userId;
+    private OrderChangeType changeType;
+    private OrderStatus orderStatus;
+    private Instant createdAt;
+}
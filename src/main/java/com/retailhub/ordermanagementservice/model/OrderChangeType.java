@@ -0,0 +1,12 @@
+package com.retailhub.ordermanagementservice.model;
+
+/**
+ * What a mutation did to an order, as recorded in the change feed. Deleting the last line of a
+ * draft is a {@link #LINE_REMOVED} whose order status is {@link OrderStatus#CANCELLED}.
+ */
+public enum OrderChangeType {
+    CREATED,
+    LINES_ADDED,
+    LINE_REMOVED,
+    APPROVED
+}
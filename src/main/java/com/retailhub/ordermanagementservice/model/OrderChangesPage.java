@@ -0,0 +1,17 @@
+package com.retailhub.ordermanagementservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderChangesPage {
+    private List<OrderChangeEvent> events;
+    private long nextCursor;
+}
@@ -0,0 +1,20 @@
+package com.retailhub.ordermanagementservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Which orders an export covers: order ids from {@code fromOrderId} to {@code toOrderId}, both
+ * inclusive, and only those in {@code orderStatus} when it is set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderExportFilter {
+    private int fromOrderId;
+    private int toOrderId;
+    private OrderStatus orderStatus;
+}
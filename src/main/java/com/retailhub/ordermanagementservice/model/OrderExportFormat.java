@@ -0,0 +1,26 @@
+package com.retailhub.ordermanagementservice.model;
+
+/**
+ * The formats an order export can be written in: one JSON object per line, or comma separated
+ * values with a header row.
+ */
+public enum OrderExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    OrderExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,29 @@
+package com.retailhub.ordermanagementservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One exported row: an order header joined with one of its lines. An order without lines is
+ * exported once, with the line fields null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderExportLine {
+    private int orderId;
+    private int userId;
+    private OrderStatus orderStatus;
+    private BigDecimal totalOrderValue;
+    private Instant closedAt;
+    private Integer productId;
+    private String productName;
+    private BigDecimal productPrice;
+    private Integer quantity;
+}
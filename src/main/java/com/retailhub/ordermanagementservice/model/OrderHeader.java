@@ -15,5 +15,7 @@ public class OrderHeader {
     private int orderId;
     private int userId;
     private BigDecimal totalOrderValue;
-    private String orderStatus;
+    private OrderStatus orderStatus;
+    private int lineCount;
+    private int totalQuantity;
 }
@@ -0,0 +1,51 @@
+package com.retailhub.ordermanagementservice.model;
+
+/**
+ * Lifecycle of an order. An order starts as a {@link #DRAFT} cart and is closed exactly once,
+ * either approved on submit or cancelled when its last line is deleted; closed orders never
+ * change status again. Each status is stored as its one-character {@link #getCode() code}.
+ */
+public enum OrderStatus {
+    DRAFT("D"),
+    APPROVED("A"),
+    CANCELLED("C");
+
+    private final String code;
+
+    OrderStatus(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return this == DRAFT && target != DRAFT;
+    }
+
+    /**
+     * Fails unless {@code from -> to} is a legal transition.
+     */
+    public static void requireTransition(OrderStatus from, OrderStatus to) {
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalArgumentException("Illegal order status transition " + from + " -> " + to);
+        }
+    }
+
+    public static OrderStatus fromCode(String code) {
+        if (code != null && code.length() == 1) {
+            switch (code.charAt(0)) {
+                case 'D':
+                    return DRAFT;
+                case 'A':
+                    return APPROVED;
+                case 'C':
+                    return CANCELLED;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("Unknown order status code : " + code);
+    }
+}
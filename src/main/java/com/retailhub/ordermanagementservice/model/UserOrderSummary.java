@@ -0,0 +1,27 @@
+package com.retailhub.ordermanagementservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A user's draft orders, approved orders and the total value of the approved ones, live and
+ * archived together.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserOrderSummary {
+    private int userId;
+    private int openCarts;
+    private int approvedOrders;
+    private BigDecimal lifetimeValue;
+
+    public static UserOrderSummary empty(int userId) {
+        return new UserOrderSummary(userId, 0, 0, BigDecimal.ZERO.setScale(2));
+    }
+}
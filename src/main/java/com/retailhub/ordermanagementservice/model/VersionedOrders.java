@@ -0,0 +1,21 @@
+package com.retailhub.ordermanagementservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Orders of a user together with the user's order version they were read at. The version is read
+ * first, so the orders are never older than it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VersionedOrders {
+    private long version;
+    private List<CartDetailsDTO> orders;
+}
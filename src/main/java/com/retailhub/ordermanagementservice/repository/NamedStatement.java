@@ -0,0 +1,92 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A statement declared with named parameters, parsed once into its positional SQL and the
+ * positions of each name. Values are bound by name straight onto the {@link PreparedStatement},
+ * which sets every position the name occurs at, so no per-call parameter source is allocated and
+ * no call site counts placeholders.
+ */
+final class NamedStatement {
+
+    private final String sql;
+    private final Map<String, int[]> positionsByName;
+
+    private NamedStatement(String sql, Map<String, int[]> positionsByName) {
+        this.sql = sql;
+        this.positionsByName = positionsByName;
+    }
+
+    static NamedStatement of(String namedSql) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(namedSql);
+        List<SqlParameter> parameters = NamedParameterUtils.buildSqlParameterList(parsedSql, new MapSqlParameterSource());
+        Map<String, int[]> positionsByName = new HashMap<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            int position = i + 1;
+            positionsByName.merge(parameters.get(i).getName(), new int[]{position}, (positions, added) -> {
+                int[] merged = Arrays.copyOf(positions, positions.length + 1);
+                merged[positions.length] = position;
+                return merged;
+            });
+        }
+        return new NamedStatement(NamedParameterUtils.substituteNamedParameters(parsedSql, null), positionsByName);
+    }
+
+    /**
+     * The statement with each named parameter replaced by a {@code ?} placeholder.
+     */
+    String sql() {
+        return sql;
+    }
+
+    void setInt(PreparedStatement ps, String name, int value) throws SQLException {
+        for (int position : positionsOf(name)) {
+            ps.setInt(position, value);
+        }
+    }
+
+    void setLong(PreparedStatement ps, String name, long value) throws SQLException {
+        for (int position : positionsOf(name)) {
+            ps.setLong(position, value);
+        }
+    }
+
+    void setString(PreparedStatement ps, String name, String value) throws SQLException {
+        for (int position : positionsOf(name)) {
+            ps.setString(position, value);
+        }
+    }
+
+    void setBigDecimal(PreparedStatement ps, String name, BigDecimal value) throws SQLException {
+        for (int position : positionsOf(name)) {
+            ps.setBigDecimal(position, value);
+        }
+    }
+
+    void setTimestamp(PreparedStatement ps, String name, Timestamp value) throws SQLException {
+        for (int position : positionsOf(name)) {
+            ps.setTimestamp(position, value);
+        }
+    }
+
+    private int[] positionsOf(String name) {
+        int[] positions = positionsByName.get(name);
+        if (positions == null) {
+            throw new IllegalArgumentException("No parameter :" + name + " in " + sql);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,97 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves closed orders and their lines from {@code orders}/{@code order_details} to
+ * {@code orders_archive}/{@code order_details_archive}. Call the methods in one transaction per
+ * batch: the candidates are selected with a locking read, so two archivers never pick the same
+ * orders, and the copies and deletes commit together.
+ */
+@Repository
+@Slf4j
+public class OrderArchiveRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final JdbcOperations jdbcOperations;
+
+    private static final String RETRIEVE_ARCHIVABLE_ORDER_IDS = "SELECT order_id FROM orders " +
+            "WHERE closed_at < :closedBefore ORDER BY closed_at LIMIT :limit FOR UPDATE";
+
+    private static final String RETRIEVE_OLDEST_ARCHIVABLE_CLOSED_AT = "SELECT MIN(closed_at) FROM orders " +
+            "WHERE closed_at < :closedBefore";
+
+    private static final String COPY_ORDERS_TO_ARCHIVE = "INSERT INTO orders_archive" +
+            "(order_id, user_id, total_order_value, order_status, line_count, total_quantity, closed_at) " +
+            "SELECT order_id, user_id, total_order_value, order_status, line_count, total_quantity, closed_at " +
+            "FROM orders WHERE order_id IN (:orderIds)";
+
+    private static final String COPY_ORDER_DETAILS_TO_ARCHIVE = "INSERT INTO order_details_archive" +
+            "(order_id, product_id, product_name, product_price, quantity) " +
+            "SELECT order_id, product_id, product_name, product_price, quantity " +
+            "FROM order_details WHERE order_id IN (:orderIds)";
+
+    private static final String DELETE_ORDER_DETAILS_BY_ORDER_IDS = "DELETE FROM order_details WHERE order_id IN (:orderIds)";
+
+    private static final String DELETE_ORDERS_BY_ORDER_IDS = "DELETE FROM orders WHERE order_id IN (:orderIds)";
+
+    private static final NamedStatement RETRIEVE_ARCHIVABLE_ORDER_IDS_STATEMENT = NamedStatement.of(RETRIEVE_ARCHIVABLE_ORDER_IDS);
+    private static final NamedStatement RETRIEVE_OLDEST_ARCHIVABLE_CLOSED_AT_STATEMENT = NamedStatement.of(RETRIEVE_OLDEST_ARCHIVABLE_CLOSED_AT);
+
+    private final QueryMetrics queryMetrics;
+
+    public OrderArchiveRepository(NamedParameterJdbcTemplate jdbcTemplate, QueryMetrics queryMetrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcOperations = jdbcTemplate.getJdbcOperations();
+        this.queryMetrics = queryMetrics;
+    }
+
+    /**
+     * Locks and returns up to {@code limit} orders closed before {@code closedBefore}, oldest first.
+     */
+    public List<Integer> retrieveArchivableOrderIds(Instant closedBefore, int limit) {
+        return queryMetrics.queryForList("RETRIEVE_ARCHIVABLE_ORDER_IDS",
+                () -> jdbcOperations.query(RETRIEVE_ARCHIVABLE_ORDER_IDS_STATEMENT.sql(), ps -> {
+                    RETRIEVE_ARCHIVABLE_ORDER_IDS_STATEMENT.setTimestamp(ps, "closedBefore", Timestamp.from(closedBefore));
+                    RETRIEVE_ARCHIVABLE_ORDER_IDS_STATEMENT.setInt(ps, "limit", limit);
+                }, (rs, rowNum) -> rs.getInt(1)));
+    }
+
+    /**
+     * When the oldest order still waiting to be archived was closed, if any.
+     */
+    public Optional<Instant> retrieveOldestArchivableClosedAt(Instant closedBefore) {
+        Timestamp oldestClosedAt = queryMetrics.queryForObject("RETRIEVE_OLDEST_ARCHIVABLE_CLOSED_AT",
+                () -> jdbcOperations.query(RETRIEVE_OLDEST_ARCHIVABLE_CLOSED_AT_STATEMENT.sql(),
+                        ps -> RETRIEVE_OLDEST_ARCHIVABLE_CLOSED_AT_STATEMENT.setTimestamp(ps, "closedBefore", Timestamp.from(closedBefore)),
+                        rs -> rs.next() ? rs.getTimestamp(1) : null));
+        return Optional.ofNullable(oldestClosedAt).map(Timestamp::toInstant);
+    }
+
+    /**
+     * Copies the orders and their lines to the archive tables and deletes them from the live ones.
+     * Returns the number of orders moved.
+     */
+    public int archiveOrders(List<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
+        parameterSource.addValue("orderIds", orderIds);
+        queryMetrics.update("COPY_ORDERS_TO_ARCHIVE", () -> jdbcTemplate.update(COPY_ORDERS_TO_ARCHIVE, parameterSource));
+        int archivedLines = queryMetrics.update("COPY_ORDER_DETAILS_TO_ARCHIVE", () -> jdbcTemplate.update(COPY_ORDER_DETAILS_TO_ARCHIVE, parameterSource));
+        queryMetrics.update("DELETE_ORDER_DETAILS_BY_ORDER_IDS", () -> jdbcTemplate.update(DELETE_ORDER_DETAILS_BY_ORDER_IDS, parameterSource));
+        int archivedOrders = queryMetrics.update("DELETE_ORDERS_BY_ORDER_IDS", () -> jdbcTemplate.update(DELETE_ORDERS_BY_ORDER_IDS, parameterSource));
+        log.info("Archived {} orders with {} lines", archivedOrders, archivedLines);
+        return archivedOrders;
+    }
+}
@@ -0,0 +1,106 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.model.OrderChangeEvent;
+import com.retailhub.ordermanagementservice.model.OrderChangeType;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The transactional outbox behind the change feed. Writers record a change in the transaction of
+ * the mutation, after it, so the event commits or rolls back with it and carries the order's
+ * status as the mutation left it. {@code created_at} comes from the database clock, the one
+ * {@link #retrieveDatabaseTime()} reads, so the feed ages events without trusting node clocks.
+ */
+@Repository
+public class OrderChangeEventRepository {
+    private final JdbcOperations jdbcOperations;
+
+    private static final String RECORD_ORDER_CHANGE = "INSERT INTO order_change_events " +
+            "(order_id, user_id, change_type, order_status, created_at) VALUES (:orderId, " +
+            "(SELECT user_id FROM orders WHERE order_id = :orderId), :changeType, " +
+            "(SELECT order_status FROM orders WHERE order_id = :orderId), CURRENT_TIMESTAMP(3))";
+
+    private static final String RETRIEVE_ORDER_CHANGES_AFTER_EVENT_ID = "SELECT event_id, order_id, user_id, change_type, order_status, created_at " +
+            "FROM order_change_events WHERE event_id > :afterEventId ORDER BY event_id LIMIT :limit";
+
+    private static final String RETRIEVE_DATABASE_TIME = "SELECT CURRENT_TIMESTAMP(3)";
+
+    private static final NamedStatement RECORD_ORDER_CHANGE_STATEMENT = NamedStatement.of(RECORD_ORDER_CHANGE);
+    private static final NamedStatement RETRIEVE_ORDER_CHANGES_AFTER_EVENT_ID_STATEMENT = NamedStatement.of(RETRIEVE_ORDER_CHANGES_AFTER_EVENT_ID);
+
+    private final RowMapper<OrderChangeEvent> orderChangeEventRowMapper = orderChangeEventRowMapper();
+    private final QueryMetrics queryMetrics;
+
+    public OrderChangeEventRepository(NamedParameterJdbcTemplate jdbcTemplate, QueryMetrics queryMetrics) {
+        this.jdbcOperations = jdbcTemplate.getJdbcOperations();
+        this.queryMetrics = queryMetrics;
+    }
+
+    public void recordChange(int orderId, OrderChangeType changeType) {
+        queryMetrics.update("RECORD_ORDER_CHANGE",
+                () -> jdbcOperations.update(RECORD_ORDER_CHANGE_STATEMENT.sql(), ps -> bindOrderChange(ps, orderId, changeType)));
+    }
+
+    /**
+     * Records the same change for several orders in one batch.
+     */
+    public void recordChanges(Collection<Integer> orderIds, OrderChangeType changeType) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Integer> orderIdList = List.copyOf(orderIds);
+        queryMetrics.batchUpdate("RECORD_ORDER_CHANGE",
+                () -> jdbcOperations.batchUpdate(RECORD_ORDER_CHANGE_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bindOrderChange(ps, orderIdList.get(i), changeType);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orderIdList.size();
+                    }
+                }));
+    }
+
+    public List<OrderChangeEvent> retrieveChangesAfter(long afterEventId, int limit) {
+        return queryMetrics.queryForList("RETRIEVE_ORDER_CHANGES_AFTER_EVENT_ID",
+                () -> jdbcOperations.query(RETRIEVE_ORDER_CHANGES_AFTER_EVENT_ID_STATEMENT.sql(), ps -> {
+                    RETRIEVE_ORDER_CHANGES_AFTER_EVENT_ID_STATEMENT.setLong(ps, "afterEventId", afterEventId);
+                    RETRIEVE_ORDER_CHANGES_AFTER_EVENT_ID_STATEMENT.setInt(ps, "limit", limit);
+                }, orderChangeEventRowMapper));
+    }
+
+    /**
+     * The database's current time, the clock {@code created_at} is taken from.
+     */
+    public Instant retrieveDatabaseTime() {
+        return queryMetrics.queryForObject("RETRIEVE_DATABASE_TIME",
+                () -> jdbcOperations.queryForObject(RETRIEVE_DATABASE_TIME, Timestamp.class)).toInstant();
+    }
+
+    private static void bindOrderChange(PreparedStatement ps, int orderId, OrderChangeType changeType) throws SQLException {
+        RECORD_ORDER_CHANGE_STATEMENT.setInt(ps, "orderId", orderId);
+        RECORD_ORDER_CHANGE_STATEMENT.setString(ps, "changeType", changeType.name());
+    }
+
+    /**
+     * Maps the event_id, order_id, user_id, change_type, order_status, created_at columns, in that order.
+     */
+    static RowMapper<OrderChangeEvent> orderChangeEventRowMapper() {
+        return (rs, rowNum) -> new OrderChangeEvent(rs.getLong(1), rs.getInt(2), rs.getInt(3),
+                OrderChangeType.valueOf(rs.getString(4)), OrderStatus.fromCode(rs.getString(5)), rs.getTimestamp(6).toInstant());
+    }
+}
@@ -1,57 +1,99 @@
 package com.retailhub.ordermanagementservice.repository;
 
 import com.retailhub.ordermanagementservice.exception.NotFoundException;
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
 import com.retailhub.ordermanagementservice.model.OrderDetails;
-import com.retailhub.ordermanagementservice.model.OrderHeader;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
+/**
+ * Like {@link OrderHeaderRepository}, statements are declared with named parameters and the hot
+ * ones bound by name through a {@link NamedStatement}. The IN list query stays on the named
+ * template, since its expansion depends on the number of ids.
+ */
 @Repository
 @Slf4j
 public class OrderDetailsRepository {
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final JdbcOperations jdbcOperations;
 
     private static final String INSERT_ORDER_DETAILS = "INSERT INTO order_details(order_id, product_id, quantity, product_name, product_price)" +
             " VALUES (:orderId, :productId, :quantity, :productName, :productPrice)";
 
-    private static final String RETRIEVE_ORDER_DETAILS = "SELECT order_id, product_id, product_name, product_price, quantity FROM order_details";
+    // the increment binds :quantity a second time rather than reading VALUES(quantity), which MySQL
+    // deprecates since 8.0.20; its replacement, the row alias (VALUES (...) AS new ... new.quantity),
+    // is not accepted by H2, which the tests and benchmarks run against
+    private static final String UPSERT_ORDER_DETAILS = "INSERT INTO order_details(order_id, product_id, quantity, product_name, product_price)" +
+            " VALUES (:orderId, :productId, :quantity, :productName, :productPrice)" +
+            " ON DUPLICATE KEY UPDATE quantity = quantity + :quantity";
+
+    private static final String RETRIEVE_ORDER_DETAILS_BY_ORDER_IDS = "SELECT order_id, product_id, product_name, product_price, quantity FROM order_details " +
+            "WHERE order_id IN (:orderIds)";
+    private static final String RETRIEVE_ORDER_DETAILS_INCLUDING_ARCHIVE_BY_ORDER_IDS = RETRIEVE_ORDER_DETAILS_BY_ORDER_IDS +
+            " UNION ALL SELECT order_id, product_id, product_name, product_price, quantity FROM order_details_archive " +
+            "WHERE order_id IN (:orderIds)";
+    private static final int ORDER_IDS_PER_QUERY = 1000;
 
     private static final String RETRIEVE_ORDER_DETAILS_BY_ORDER_ID = "SELECT order_id, product_id, product_name, product_price, quantity FROM order_details " +
             "WHERE order_id = :orderId";
 
-    private static final String RETRIEVE_ORDER_DETAILS_BY_ORDER_ID_AND_PRODUCT_ID = "SELECT order_id, product_id, product_name, product_price, quantity FROM order_details " +
-            "WHERE order_id = :orderId AND product_id = :productId";
-
     private static final String UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID = "UPDATE order_details SET quantity = :quantity WHERE order_id = :orderId " +
             "AND product_id = :productId";
-    private static final String UPDATE_ORDER_DETAILS_BY_ORDER_ID = "UPDATE order_details SET quantity = :quantity WHERE order_id = :orderId ";
+
+    private static final NamedStatement INSERT_ORDER_DETAILS_STATEMENT = NamedStatement.of(INSERT_ORDER_DETAILS);
+    private static final NamedStatement UPSERT_ORDER_DETAILS_STATEMENT = NamedStatement.of(UPSERT_ORDER_DETAILS);
+    private static final NamedStatement RETRIEVE_ORDER_DETAILS_BY_ORDER_ID_STATEMENT = NamedStatement.of(RETRIEVE_ORDER_DETAILS_BY_ORDER_ID);
+    private static final NamedStatement UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT =
+            NamedStatement.of(UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID);
 
     private final RowMapper<OrderDetails> orderDetailsRowMapper = orderDetailsRowMapper();
 
-    public OrderDetailsRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    private final QueryMetrics queryMetrics;
+
+    public OrderDetailsRepository(NamedParameterJdbcTemplate jdbcTemplate, QueryMetrics queryMetrics) {
         this.jdbcTemplate = jdbcTemplate;
+        this.jdbcOperations = jdbcTemplate.getJdbcOperations();
+        this.queryMetrics = queryMetrics;
     }
 
-    private RowMapper<OrderDetails> orderDetailsRowMapper() {
-        return (rs, rowNum) -> OrderDetails.builder()
-                .orderId(rs.getInt("order_id"))
-                .productId(rs.getInt("product_id"))
-                .quantity(rs.getInt("quantity"))
-                .productName(rs.getString("product_name"))
-                .productPrice(rs.getBigDecimal("product_price"))
-                .build();
+    /**
+     * Maps the order_id, product_id, product_name, product_price, quantity columns, in that order.
+     */
+    static RowMapper<OrderDetails> orderDetailsRowMapper() {
+        return (rs, rowNum) -> new OrderDetails(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getBigDecimal(4), rs.getInt(5));
+    }
+
+    /**
+     * Maps the same columns as {@link #orderDetailsRowMapper()} into a response line.
+     */
+    static RowMapper<CartLineDetailsDTO> cartLineDetailsRowMapper() {
+        return (rs, rowNum) -> mapCartLine(rs);
+    }
+
+    private static CartLineDetailsDTO mapCartLine(ResultSet rs) throws SQLException {
+        return new CartLineDetailsDTO(rs.getInt(2), rs.getString(3), rs.getBigDecimal(4), rs.getInt(5));
     }
 
     public void insertOrderDetails(List<OrderDetails> orderDetailsList) {
-        SqlParameterSource[] batchArgs = parametersToInsertOrderDetails(orderDetailsList);
-        int[] orderDetailsUpdated = jdbcTemplate.batchUpdate(INSERT_ORDER_DETAILS, batchArgs);
+        int[] orderDetailsUpdated = queryMetrics.batchUpdate("INSERT_ORDER_DETAILS",
+                () -> jdbcOperations.batchUpdate(INSERT_ORDER_DETAILS_STATEMENT.sql(),
+                        orderDetailsToInsert(INSERT_ORDER_DETAILS_STATEMENT, orderDetailsList)));
         int totalCount = 0;
         for (int updatedCount : orderDetailsUpdated) {
             totalCount += updatedCount;
@@ -63,86 +105,115 @@ public class OrderDetailsRepository {
         }
     }
 
-    public List<OrderDetails> retrieveOrderDetails() {
-        return jdbcTemplate.query(RETRIEVE_ORDER_DETAILS, orderDetailsRowMapper);
+    /**
+     * Adds each line's quantity to the stored line, inserting it when absent. The increment is
+     * evaluated by the database under the row lock, so concurrent calls on the same line never
+     * lose an update and no read is needed beforehand.
+     */
+    public void upsertOrderDetails(List<OrderDetails> orderDetailsList) {
+        int[] orderDetailsUpserted = queryMetrics.batchUpdate("UPSERT_ORDER_DETAILS",
+                () -> jdbcOperations.batchUpdate(UPSERT_ORDER_DETAILS_STATEMENT.sql(),
+                        orderDetailsToInsert(UPSERT_ORDER_DETAILS_STATEMENT, orderDetailsList)));
+        log.info("Upserted {} order lines in one batch : {}", orderDetailsUpserted.length, orderDetailsList);
     }
 
-    public List<OrderDetails> retrieveOrderDetailsByOrderIdAndProductId(int orderId, int productId) {
-        MapSqlParameterSource mapSqlParameterSource = parameterSourceForRetrievingOrderDetailsByOrderIdAndProductId(orderId, productId);
-        return jdbcTemplate.query(RETRIEVE_ORDER_DETAILS_BY_ORDER_ID_AND_PRODUCT_ID, mapSqlParameterSource,orderDetailsRowMapper);
+    /**
+     * Appends the stored lines of each order to its (mutable) line list, reading every line straight
+     * into its response object.
+     */
+    public void retrieveCartLines(List<CartDetailsDTO> cartDetailsDTOList) {
+        retrieveCartLines(cartDetailsDTOList, "RETRIEVE_ORDER_DETAILS_BY_ORDER_IDS", RETRIEVE_ORDER_DETAILS_BY_ORDER_IDS);
     }
 
-    public List<OrderDetails> retrieveOrderDetailsByOrderId(int orderId) {
-        MapSqlParameterSource mapSqlParameterSource = parameterSourceForRetrievingOrderDetails(orderId);
-        return jdbcTemplate.query(RETRIEVE_ORDER_DETAILS_BY_ORDER_ID, mapSqlParameterSource,orderDetailsRowMapper);
+    /**
+     * Like {@link #retrieveCartLines(List)}, for orders that may have been moved to the archive.
+     */
+    public void retrieveCartLinesIncludingArchive(List<CartDetailsDTO> cartDetailsDTOList) {
+        retrieveCartLines(cartDetailsDTOList, "RETRIEVE_ORDER_DETAILS_INCLUDING_ARCHIVE_BY_ORDER_IDS", RETRIEVE_ORDER_DETAILS_INCLUDING_ARCHIVE_BY_ORDER_IDS);
     }
 
-    private SqlParameterSource[] parametersToInsertOrderDetails(List<OrderDetails> orderDetailsList) {
-        SqlParameterSource[] batchArgs = new SqlParameterSource[orderDetailsList.size()];
-        for (int i = 0; i < orderDetailsList.size(); i++) {
-            OrderDetails orderDetails = orderDetailsList.get(i);
-            MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-            parameterSource.addValue("productId", orderDetails.getProductId());
-            parameterSource.addValue("orderId", orderDetails.getOrderId());
-            parameterSource.addValue("productName", orderDetails.getProductName());
-            parameterSource.addValue("productPrice", orderDetails.getProductPrice());
-            parameterSource.addValue("quantity", orderDetails.getQuantity());
-            batchArgs[i] = parameterSource;
+    private void retrieveCartLines(List<CartDetailsDTO> cartDetailsDTOList, String queryName, String sql) {
+        Map<Integer, CartDetailsDTO> cartDetailsByOrderId = new HashMap<>();
+        for (CartDetailsDTO cartDetailsDTO : cartDetailsDTOList) {
+            cartDetailsByOrderId.put(cartDetailsDTO.getOrderId(), cartDetailsDTO);
         }
-        return batchArgs;
-    }
-
-    public void updateProductQuantityByOrderIdAndProductId(int orderId, int productId, int quantity) {
-        MapSqlParameterSource mapSqlParameterSource = parameterSourceForDeletingOrder(orderId, productId, quantity);
-        int updatedRows = jdbcTemplate.update(UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID, mapSqlParameterSource);
-        if (updatedRows == 0) {
-            throw new NotFoundException("Order Id not found : " + orderId);
+        List<Integer> orderIds = List.copyOf(cartDetailsByOrderId.keySet());
+        RowCallbackHandler addToOrder = rs -> cartDetailsByOrderId.get(rs.getInt(1)).getCartLineDetailsDTOList().add(mapCartLine(rs));
+        for (int from = 0; from < orderIds.size(); from += ORDER_IDS_PER_QUERY) {
+            List<Integer> orderIdsChunk = orderIds.subList(from, Math.min(from + ORDER_IDS_PER_QUERY, orderIds.size()));
+            queryMetrics.query(queryName, addToOrder, rowCallbackHandler -> jdbcTemplate.query(
+                    sql, parameterSourceForRetrievingOrderDetailsByOrderIds(orderIdsChunk), rowCallbackHandler));
         }
     }
 
-    private static MapSqlParameterSource parameterSourceForDeletingOrder(int orderId, int productId, int quantity) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("orderId", orderId);
-        parameterSource.addValue("productId", productId);
-        parameterSource.addValue("quantity", quantity);
-        return parameterSource;
+    public List<OrderDetails> retrieveOrderDetailsByOrderId(int orderId) {
+        return queryMetrics.queryForList("RETRIEVE_ORDER_DETAILS_BY_ORDER_ID",
+                () -> jdbcOperations.query(RETRIEVE_ORDER_DETAILS_BY_ORDER_ID_STATEMENT.sql(),
+                        ps -> RETRIEVE_ORDER_DETAILS_BY_ORDER_ID_STATEMENT.setInt(ps, "orderId", orderId), orderDetailsRowMapper));
     }
 
-    private static MapSqlParameterSource parameterSourceForRetrievingOrderDetailsByOrderId(int orderId) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("orderId", orderId);
-        return parameterSource;
+    /**
+     * Binds orderId, productId, quantity, productName and productPrice, the parameters shared by the
+     * insert and the upsert.
+     */
+    private static BatchPreparedStatementSetter orderDetailsToInsert(NamedStatement statement, List<OrderDetails> orderDetailsList) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OrderDetails orderDetails = orderDetailsList.get(i);
+                statement.setInt(ps, "orderId", orderDetails.getOrderId());
+                statement.setInt(ps, "productId", orderDetails.getProductId());
+                statement.setInt(ps, "quantity", orderDetails.getQuantity());
+                statement.setString(ps, "productName", orderDetails.getProductName());
+                statement.setBigDecimal(ps, "productPrice", orderDetails.getProductPrice());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return orderDetailsList.size();
+            }
+        };
     }
-    private static MapSqlParameterSource parameterSourceForRetrievingOrderDetailsByOrderIdAndProductId(int orderId, int productId) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("orderId", orderId);
-        parameterSource.addValue("productId", productId);
-        return parameterSource;
+
+    public void updateProductQuantityByOrderIdAndProductId(int orderId, int productId, int quantity) {
+        int updatedRows = queryMetrics.update("UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID",
+                () -> jdbcOperations.update(UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.sql(), ps -> {
+                    UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.setInt(ps, "quantity", quantity);
+                    UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.setInt(ps, "orderId", orderId);
+                    UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.setInt(ps, "productId", productId);
+                }));
+        if (updatedRows == 0) {
+            throw new NotFoundException("Order Id not found : " + orderId);
+        }
     }
 
-    private static MapSqlParameterSource parameterSourceForRetrievingOrderDetails(int orderId) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("orderId", orderId);
-        return parameterSource;
+    public void updateProductQuantities(List<OrderDetails> orderDetailsList) {
+        int[] orderDetailsUpdated = queryMetrics.batchUpdate("UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID",
+                () -> jdbcOperations.batchUpdate(UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderDetails orderDetails = orderDetailsList.get(i);
+                        UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.setInt(ps, "quantity", orderDetails.getQuantity());
+                        UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.setInt(ps, "orderId", orderDetails.getOrderId());
+                        UPDATE_PRODUCT_QUANTITY_BY_ORDER_ID_AND_PRODUCT_ID_STATEMENT.setInt(ps, "productId", orderDetails.getProductId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orderDetailsList.size();
+                    }
+                }));
+        for (int i = 0; i < orderDetailsUpdated.length; i++) {
+            if (orderDetailsUpdated[i] == 0) {
+                OrderDetails orderDetails = orderDetailsList.get(i);
+                throw new NotFoundException("Product Id " + orderDetails.getProductId() + " not found for Order Id : " + orderDetails.getOrderId());
+            }
+        }
     }
 
-    private static MapSqlParameterSource parameterSourceForUpdatingOrderDetails(OrderHeader orderHeader, OrderDetails orderDetails) {
+    private static MapSqlParameterSource parameterSourceForRetrievingOrderDetailsByOrderIds(List<Integer> orderIds) {
         MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("productId", orderDetails.getProductId());
-        parameterSource.addValue("productName", orderDetails.getProductName());
-        parameterSource.addValue("productPrice", orderDetails.getProductPrice());
-        parameterSource.addValue("quantity", orderDetails.getQuantity());
-        parameterSource.addValue("orderId", orderHeader.getOrderId());
+        parameterSource.addValue("orderIds", orderIds);
         return parameterSource;
     }
-
-    public void updateOrderDetailsByOrderId(OrderHeader orderHeader, OrderDetails orderDetails) {
-        int updatedRows = jdbcTemplate.update(INSERT_ORDER_DETAILS, parameterSourceForUpdatingOrderDetails(orderHeader, orderDetails));
-        if (updatedRows == 0) {
-            throw new NotFoundException("Order Id not found : " + orderHeader.getOrderId());
-        }
-    }
-
-
 }
-
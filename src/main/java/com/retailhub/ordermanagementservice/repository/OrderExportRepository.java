@@ -0,0 +1,151 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.model.OrderExportFilter;
+import com.retailhub.ordermanagementservice.model.OrderExportLine;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.function.Consumer;
+
+/**
+ * Reads live and archived orders joined with their lines, in order id and product id order,
+ * through forward-only cursors that fetch {@code order.export.fetch-size} rows at a time.
+ * The live and the archive tables are read by two statements on the same connection, each in index
+ * order, and merged here by order id; an order sits in one of them only, so no sort over both is
+ * needed. Both cursors are open at once, which MySQL allows with {@code useCursorFetch=true}, and
+ * read one snapshot when run in one transaction. Each row is handed on as soon as it is read, so
+ * the heap used does not grow with the export.
+ */
+@Repository
+public class OrderExportRepository {
+
+    private static final String EXPORT_COLUMNS = "o.order_id, o.user_id, o.order_status, o.total_order_value, o.closed_at, " +
+            "d.product_id, d.product_name, d.product_price, d.quantity ";
+
+    private static final String EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE = "SELECT " + EXPORT_COLUMNS +
+            "FROM orders o LEFT JOIN order_details d ON d.order_id = o.order_id " +
+            "WHERE o.order_id BETWEEN :fromOrderId AND :toOrderId " +
+            "ORDER BY o.order_id, d.product_id";
+
+    private static final String EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE = "SELECT " + EXPORT_COLUMNS +
+            "FROM orders_archive o LEFT JOIN order_details_archive d ON d.order_id = o.order_id " +
+            "WHERE o.order_id BETWEEN :fromOrderId AND :toOrderId " +
+            "ORDER BY o.order_id, d.product_id";
+
+    private static final String EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS = "SELECT " + EXPORT_COLUMNS +
+            "FROM orders o LEFT JOIN order_details d ON d.order_id = o.order_id " +
+            "WHERE o.order_id BETWEEN :fromOrderId AND :toOrderId AND o.order_status = :orderStatus " +
+            "ORDER BY o.order_id, d.product_id";
+
+    private static final String EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS = "SELECT " + EXPORT_COLUMNS +
+            "FROM orders_archive o LEFT JOIN order_details_archive d ON d.order_id = o.order_id " +
+            "WHERE o.order_id BETWEEN :fromOrderId AND :toOrderId AND o.order_status = :orderStatus " +
+            "ORDER BY o.order_id, d.product_id";
+
+    private static final NamedStatement EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE_STATEMENT =
+            NamedStatement.of(EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE);
+    private static final NamedStatement EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE_STATEMENT =
+            NamedStatement.of(EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE);
+    private static final NamedStatement EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS_STATEMENT =
+            NamedStatement.of(EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS);
+    private static final NamedStatement EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS_STATEMENT =
+            NamedStatement.of(EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryMetrics queryMetrics;
+    private final int exportFetchSize;
+
+    public OrderExportRepository(NamedParameterJdbcTemplate jdbcTemplate, QueryMetrics queryMetrics,
+                                 @Value("${order.export.fetch-size:1000}") int exportFetchSize) {
+        this.jdbcTemplate = jdbcTemplate.getJdbcTemplate();
+        this.queryMetrics = queryMetrics;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    /**
+     * Hands every matching line to {@code orderExportLineConsumer}. Both statements are timed
+     * together under the name of the live one.
+     */
+    public void streamOrderLines(OrderExportFilter filter, Consumer<OrderExportLine> orderExportLineConsumer) {
+        if (filter.getOrderStatus() == null) {
+            streamMergedOrderLines("EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE", EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE_STATEMENT,
+                    EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE_STATEMENT, filter, orderExportLineConsumer);
+        } else {
+            streamMergedOrderLines("EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS",
+                    EXPORT_LIVE_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS_STATEMENT,
+                    EXPORT_ARCHIVED_ORDER_LINES_BY_ORDER_ID_RANGE_AND_STATUS_STATEMENT, filter, orderExportLineConsumer);
+        }
+    }
+
+    private void streamMergedOrderLines(String queryName, NamedStatement liveStatement, NamedStatement archivedStatement,
+                                        OrderExportFilter filter, Consumer<OrderExportLine> orderExportLineConsumer) {
+        queryMetrics.query(queryName, rs -> orderExportLineConsumer.accept(mapOrderExportLine(rs)),
+                rowCallbackHandler -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (PreparedStatement livePs = prepareCursor(connection, liveStatement, filter);
+                         PreparedStatement archivedPs = prepareCursor(connection, archivedStatement, filter);
+                         ResultSet liveRows = livePs.executeQuery();
+                         ResultSet archivedRows = archivedPs.executeQuery()) {
+                        mergeByOrderId(liveRows, archivedRows, rowCallbackHandler);
+                    }
+                    return null;
+                }));
+    }
+
+    private PreparedStatement prepareCursor(Connection connection, NamedStatement statement, OrderExportFilter filter) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(statement.sql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            ps.setFetchSize(exportFetchSize);
+            bindOrderIdRange(ps, statement, filter);
+            if (filter.getOrderStatus() != null) {
+                statement.setString(ps, "orderStatus", filter.getOrderStatus().getCode());
+            }
+            return ps;
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands on the rows of both cursors in order id order. All lines of an order come from the same
+     * cursor, so comparing order ids keeps them together and in product id order.
+     */
+    private static void mergeByOrderId(ResultSet liveRows, ResultSet archivedRows, RowCallbackHandler rowCallbackHandler) throws SQLException {
+        boolean hasLiveRow = liveRows.next();
+        boolean hasArchivedRow = archivedRows.next();
+        while (hasLiveRow || hasArchivedRow) {
+            if (hasLiveRow && (!hasArchivedRow || liveRows.getInt(1) <= archivedRows.getInt(1))) {
+                rowCallbackHandler.processRow(liveRows);
+                hasLiveRow = liveRows.next();
+            } else {
+                rowCallbackHandler.processRow(archivedRows);
+                hasArchivedRow = archivedRows.next();
+            }
+        }
+    }
+
+    private static void bindOrderIdRange(PreparedStatement ps, NamedStatement statement, OrderExportFilter filter) throws SQLException {
+        statement.setInt(ps, "fromOrderId", filter.getFromOrderId());
+        statement.setInt(ps, "toOrderId", filter.getToOrderId());
+    }
+
+    private static OrderExportLine mapOrderExportLine(ResultSet rs) throws SQLException {
+        Timestamp closedAt = rs.getTimestamp(5);
+        int productId = rs.getInt(6);
+        boolean hasLine = !rs.wasNull();
+        return new OrderExportLine(rs.getInt(1), rs.getInt(2), OrderStatus.fromCode(rs.getString(3)), rs.getBigDecimal(4),
+                closedAt == null ? null : closedAt.toInstant(),
+                hasLine ? productId : null, rs.getString(7), rs.getBigDecimal(8), hasLine ? rs.getInt(9) : null);
+    }
+}
@@ -1,57 +1,176 @@
 package com.retailhub.ordermanagementservice.repository;
 
-import com.retailhub.ordermanagementservice.exception.NotFoundException;
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderDetails;
 import com.retailhub.ordermanagementservice.model.OrderHeader;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+/**
+ * Statements are declared with named parameters, which is the form checked by the query plan test.
+ * The hot ones are parsed once at class load into a {@link NamedStatement} and bound by name
+ * directly on the {@link PreparedStatement}. Statuses are bound and read as their
+ * {@link OrderStatus} codes.
+ */
 @Repository
 @Slf4j
 public class OrderHeaderRepository {
-    private static final String ORDER_STATUS_DRAFT = "DRAFT";
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final JdbcOperations jdbcOperations;
     private static final String INSERT_ORDER_HEADER = "INSERT INTO orders" +
-            "(user_id, order_id, total_order_value, order_status) " +
-            "VALUES (:userId, :orderId, :totalOrderValue, :orderStatus)";
+            "(user_id, order_id, total_order_value, order_status, line_count, total_quantity) " +
+            "VALUES (:userId, :orderId, :totalOrderValue, :orderStatus, :lineCount, :totalQuantity)";
     private static final String RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS = "SELECT order_id, user_id, total_order_value, order_status " +
             "FROM orders WHERE user_id = :userId AND order_status = :orderStatus";
 
     private static final String RETRIEVE_ORDER_HEADER_DETAILS_BY_USER = "SELECT order_id, user_id, total_order_value, order_status " +
-            "FROM orders WHERE user_id = :userId";
+            "FROM orders WHERE user_id = :userId " +
+            "UNION ALL SELECT order_id, user_id, total_order_value, order_status " +
+            "FROM orders_archive WHERE user_id = :userId";
 
-    private static final String UPDATE_ORDERS_BY_ORDER_ID = "UPDATE orders SET total_order_value = :total , order_status = :status WHERE order_id = :orderId ";
-    private static final String DELETE_ORDER_FROM_CART = "UPDATE orders SET order_status = :orderStatus WHERE order_id = :orderId ";
+    private static final String RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID = "SELECT order_id, user_id, total_order_value, order_status " +
+            "FROM orders WHERE user_id = :userId AND order_id > :afterOrderId ORDER BY order_id LIMIT :limit";
 
-    private static final String RETRIEVE_ORDER_HEADER_DETAILS_FOR_USER = "SELECT order_id, user_id, total_order_value, order_status " +
-            "FROM orders WHERE user_id = :userId";
-    private static final String RETRIEVE_ORDER_HEADER_DETAILS_WITH_ORDER_STATUS = "SELECT order_id, user_id, total_order_value, order_status " +
-            "FROM orders WHERE order_status = :orderStatus";
+    private static final String RETRIEVE_ORDER_HISTORY_BY_USER = "SELECT o.order_id, o.user_id, o.total_order_value, o.order_status, " +
+            "d.product_id, d.product_name, d.product_price, d.quantity " +
+            "FROM orders o LEFT JOIN order_details d ON d.order_id = o.order_id " +
+            "WHERE o.user_id = :userId ORDER BY o.order_id";
 
-    private final RowMapper<OrderHeader> orderHeaderRowMapper = orderHeaderRowMapper();
+    private static final String UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER = "UPDATE orders SET order_status = :status, closed_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = :orderId AND user_id = :userId AND order_status = :expectedStatus";
 
-    public OrderHeaderRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    private static final String STORED_QUANTITY_OF_LINE = "COALESCE((SELECT d.quantity FROM order_details d " +
+            "WHERE d.order_id = orders.order_id AND d.product_id = :productId), 0)";
+    private static final String STORED_PRICE_OF_LINE = "(SELECT d.product_price FROM order_details d " +
+            "WHERE d.order_id = orders.order_id AND d.product_id = :productId)";
+    private static final String ADD_LINE_TO_DRAFT_ORDER_AGGREGATES = "UPDATE orders SET " +
+            "line_count = line_count + CASE WHEN " + STORED_QUANTITY_OF_LINE + " + :quantity > 0 THEN 1 ELSE 0 END" +
+            " - CASE WHEN " + STORED_QUANTITY_OF_LINE + " > 0 THEN 1 ELSE 0 END" +
+            ", total_quantity = total_quantity + :quantity" +
+            ", total_order_value = total_order_value + COALESCE(" + STORED_PRICE_OF_LINE + ", :productPrice) * :quantity" +
+            " WHERE order_id = :orderId AND user_id = :userId AND order_status = :expectedStatus";
+    private static final String LINE_QUANTITY_AGGREGATES = "line_count = line_count + CASE WHEN :quantity > 0 THEN 1 ELSE 0 END" +
+            " - CASE WHEN " + STORED_QUANTITY_OF_LINE + " > 0 THEN 1 ELSE 0 END" +
+            ", total_quantity = total_quantity + :quantity - " + STORED_QUANTITY_OF_LINE +
+            ", total_order_value = total_order_value + (:quantity - " + STORED_QUANTITY_OF_LINE + ") * COALESCE(" + STORED_PRICE_OF_LINE + ", 0)";
+    private static final String STORED_LINE_OF_ORDER_WITH_STATUS = " WHERE order_id = :orderId AND order_status = :expectedStatus" +
+            " AND EXISTS (SELECT 1 FROM order_details d WHERE d.order_id = orders.order_id AND d.product_id = :productId)";
+    private static final String SET_LINE_QUANTITY_IN_ORDER_AGGREGATES = "UPDATE orders SET " + LINE_QUANTITY_AGGREGATES +
+            STORED_LINE_OF_ORDER_WITH_STATUS;
+    // LAST_INSERT_ID(user_id) hands the owner of the matched row back as the statement's generated key
+    // on MySQL; H2 returns the requested user_id column of the updated row instead
+    private static final String SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_RETURNING_OWNER = "UPDATE orders SET " +
+            "user_id = LAST_INSERT_ID(user_id), " + LINE_QUANTITY_AGGREGATES + STORED_LINE_OF_ORDER_WITH_STATUS;
+    private static final String CANCEL_EMPTY_DRAFT_ORDER = "UPDATE orders SET order_status = :status, closed_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = :orderId AND order_status = :expectedStatus AND total_quantity = 0";
+    private static final String RETRIEVE_ORDER_STATUS_BY_ORDER_ID_AND_USER = "SELECT order_status FROM orders " +
+            "WHERE order_id = :orderId AND user_id = :userId";
+
+    private static final String RETRIEVE_USER_IDS_BY_ORDER_IDS_AND_STATUS = "SELECT order_id, user_id FROM orders " +
+            "WHERE order_id IN (:orderIds) AND order_status = :orderStatus";
+
+    private static final String COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS = "SELECT COUNT(*) FROM orders " +
+            "WHERE order_id = :orderId AND user_id = :userId AND order_status = :orderStatus";
+
+    private static final NamedStatement INSERT_ORDER_HEADER_STATEMENT = NamedStatement.of(INSERT_ORDER_HEADER);
+    private static final NamedStatement RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS_STATEMENT = NamedStatement.of(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS);
+    private static final NamedStatement RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_STATEMENT = NamedStatement.of(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER);
+    private static final NamedStatement RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID_STATEMENT = NamedStatement.of(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID);
+    private static final NamedStatement RETRIEVE_ORDER_HISTORY_BY_USER_STATEMENT = NamedStatement.of(RETRIEVE_ORDER_HISTORY_BY_USER);
+    private static final NamedStatement UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT = NamedStatement.of(UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER);
+    private static final NamedStatement ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT = NamedStatement.of(ADD_LINE_TO_DRAFT_ORDER_AGGREGATES);
+    private static final NamedStatement SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_STATEMENT = NamedStatement.of(SET_LINE_QUANTITY_IN_ORDER_AGGREGATES);
+    private static final NamedStatement SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_RETURNING_OWNER_STATEMENT =
+            NamedStatement.of(SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_RETURNING_OWNER);
+    private static final NamedStatement CANCEL_EMPTY_DRAFT_ORDER_STATEMENT = NamedStatement.of(CANCEL_EMPTY_DRAFT_ORDER);
+    private static final NamedStatement RETRIEVE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT = NamedStatement.of(RETRIEVE_ORDER_STATUS_BY_ORDER_ID_AND_USER);
+    private static final NamedStatement COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS_STATEMENT = NamedStatement.of(COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS);
+
+    private final RowMapper<CartDetailsDTO> cartDetailsRowMapper = cartDetailsRowMapper();
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final QueryMetrics queryMetrics;
+
+    public OrderHeaderRepository(NamedParameterJdbcTemplate jdbcTemplate, QueryMetrics queryMetrics,
+                                 @Value("${order.history.fetch-size:500}") int historyFetchSize) {
         this.jdbcTemplate = jdbcTemplate;
+        this.jdbcOperations = jdbcTemplate.getJdbcOperations();
+        this.queryMetrics = queryMetrics;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(historyFetchSize);
     }
 
-    public List<OrderHeader> retrieveOrderHeaderDetailsByUserAndStatus(int userId, String orderStatus) {
-        MapSqlParameterSource parameterSource = parameterSourceForUserIdAndOrderStatus(userId, orderStatus);
-        return jdbcTemplate.query(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS, parameterSource, orderHeaderRowMapper);
+    /**
+     * The user's orders in {@code orderStatus}, mapped straight into response objects whose line
+     * lists are empty and mutable, ready to be filled by
+     * {@link OrderDetailsRepository#retrieveCartLines(List)}.
+     */
+    public List<CartDetailsDTO> retrieveCartDetailsByUserAndStatus(int userId, OrderStatus orderStatus) {
+        return queryMetrics.queryForList("RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS",
+                () -> jdbcOperations.query(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS_STATEMENT.sql(), ps -> {
+                    RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS_STATEMENT.setInt(ps, "userId", userId);
+                    RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AND_STATUS_STATEMENT.setString(ps, "orderStatus", orderStatus.getCode());
+                }, cartDetailsRowMapper));
     }
 
-    public List<OrderHeader> retrieveOrderHeaderDetailsByUser(int userId, String orderStatus) {
-        MapSqlParameterSource parameterSource = parameterSourceForUserIdAndOrderStatus(userId, orderStatus);
-        return jdbcTemplate.query(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER, parameterSource, orderHeaderRowMapper);
+    /**
+     * All of the user's orders, live and archived, to be completed with
+     * {@link OrderDetailsRepository#retrieveCartLinesIncludingArchive(List)}.
+     */
+    public List<CartDetailsDTO> retrieveCartDetailsByUser(int userId) {
+        return queryMetrics.queryForList("RETRIEVE_ORDER_HEADER_DETAILS_BY_USER",
+                () -> jdbcOperations.query(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_STATEMENT.sql(),
+                        ps -> RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_STATEMENT.setInt(ps, "userId", userId), cartDetailsRowMapper));
     }
 
+    public List<CartDetailsDTO> retrieveCartDetailsByUserAfterOrderId(int userId, int afterOrderId, int limit) {
+        return queryMetrics.queryForList("RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID",
+                () -> jdbcOperations.query(RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID_STATEMENT.sql(), ps -> {
+                    RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID_STATEMENT.setInt(ps, "userId", userId);
+                    RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID_STATEMENT.setInt(ps, "afterOrderId", afterOrderId);
+                    RETRIEVE_ORDER_HEADER_DETAILS_BY_USER_AFTER_ORDER_ID_STATEMENT.setInt(ps, "limit", limit);
+                }, cartDetailsRowMapper));
+    }
+
+    /**
+     * Streams the user's orders with their lines, in order id order, through a forward-only cursor.
+     * Only the order currently being assembled is held in memory.
+     */
+    public void streamOrderHistoryByUser(int userId, Consumer<CartDetailsDTO> cartDetailsConsumer) {
+        CartDetailsGroupingHandler groupingHandler = new CartDetailsGroupingHandler(cartDetailsConsumer);
+        queryMetrics.query("RETRIEVE_ORDER_HISTORY_BY_USER", groupingHandler,
+                rowCallbackHandler -> streamingJdbcTemplate.query(RETRIEVE_ORDER_HISTORY_BY_USER_STATEMENT.sql(),
+                        ps -> RETRIEVE_ORDER_HISTORY_BY_USER_STATEMENT.setInt(ps, "userId", userId), rowCallbackHandler));
+        groupingHandler.flush();
+    }
 
     public void insertOrderHeader(OrderHeader orderHeader) {
-        int orderHeaderUpdated = jdbcTemplate.update(INSERT_ORDER_HEADER, parameterToInsertOrderHeader(orderHeader));
+        int orderHeaderUpdated = queryMetrics.update("INSERT_ORDER_HEADER",
+                () -> jdbcOperations.update(INSERT_ORDER_HEADER_STATEMENT.sql(), ps -> bindOrderHeaderToInsert(ps, orderHeader)));
         if (orderHeaderUpdated == 1) {
             log.info("Inserted orders for user : {}", orderHeader);
         } else {
@@ -59,75 +178,264 @@ public class OrderHeaderRepository {
         }
     }
 
-    public void updateDetailsByOrderId(int orderId, BigDecimal total, String status){
-        MapSqlParameterSource mapSqlParameterSource = parameterSourceForApprovedOrder(orderId, total, status);
-        int updatedRows = jdbcTemplate.update(UPDATE_ORDERS_BY_ORDER_ID, mapSqlParameterSource);
-        if (updatedRows == 0) {
-            throw new NotFoundException("Order Id not found : " + orderId);
+    /**
+     * Inserts the headers of several new orders in one batch.
+     */
+    public void insertOrderHeaders(List<OrderHeader> orderHeaders) {
+        int[] orderHeadersInserted = queryMetrics.batchUpdate("INSERT_ORDER_HEADER",
+                () -> jdbcOperations.batchUpdate(INSERT_ORDER_HEADER_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bindOrderHeaderToInsert(ps, orderHeaders.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orderHeaders.size();
+                    }
+                }));
+        for (int i = 0; i < orderHeadersInserted.length; i++) {
+            if (orderHeadersInserted[i] == 0) {
+                throw new RuntimeException("Insert failed for user : " + orderHeaders.get(i));
+            }
         }
+        log.info("Inserted {} order headers in one batch", orderHeaders.size());
     }
 
-    public void deleteOrderFromCart(int orderId, String orderStatus) {
-        MapSqlParameterSource mapSqlParameterSource = parameterSourceForDeletingOrder(orderId, orderStatus);
-        int updatedRows = jdbcTemplate.update(DELETE_ORDER_FROM_CART, mapSqlParameterSource);
-        log.info("No of rows updated for delete cart API : {}", updatedRows);
-        if (updatedRows == 0) {
-            throw new NotFoundException("Order Id not found : " + orderId);
+    /**
+     * Batched form of {@link #transitionOrderStatus(int, int, OrderStatus, OrderStatus)}. The result
+     * tells, per header, whether it was an order of its user in {@code from} and has moved to
+     * {@code to}.
+     */
+    public boolean[] transitionOrderStatuses(List<OrderHeader> orderHeaders, OrderStatus from, OrderStatus to) {
+        OrderStatus.requireTransition(from, to);
+        int[] updatedRows = queryMetrics.batchUpdate("UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER",
+                () -> jdbcOperations.batchUpdate(UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderHeader orderHeader = orderHeaders.get(i);
+                        bindOrderStatusUpdate(ps, orderHeader.getOrderId(), orderHeader.getUserId(), from, to);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orderHeaders.size();
+                    }
+                }));
+        boolean[] updated = new boolean[updatedRows.length];
+        for (int i = 0; i < updatedRows.length; i++) {
+            updated[i] = updatedRows[i] != 0;
         }
+        return updated;
     }
 
-    private static MapSqlParameterSource parameterSourceForUserIdAndOrderStatus(int userId, String orderStatus) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("userId", userId);
-        if (orderStatus != null) {
-            parameterSource.addValue("orderStatus", orderStatus);
+    /**
+     * Moves the user's order from {@code from} to {@code to} in one guarded statement, without
+     * reading it first. Returns false when the order is not the user's or is no longer in
+     * {@code from}, for instance because a concurrent transition got there first.
+     */
+    public boolean transitionOrderStatus(int orderId, int userId, OrderStatus from, OrderStatus to) {
+        OrderStatus.requireTransition(from, to);
+        int updatedRows = queryMetrics.update("UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER",
+                () -> jdbcOperations.update(UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.sql(),
+                        ps -> bindOrderStatusUpdate(ps, orderId, userId, from, to)));
+        log.info("No of orders moved from {} to {} for order {} of user {} : {}", from, to, orderId, userId, updatedRows);
+        return updatedRows == 1;
+    }
+
+    /**
+     * The current status of the user's order. Only needed to explain a failed transition.
+     */
+    public Optional<OrderStatus> retrieveOrderStatus(int orderId, int userId) {
+        return queryMetrics.queryForList("RETRIEVE_ORDER_STATUS_BY_ORDER_ID_AND_USER",
+                () -> jdbcOperations.query(RETRIEVE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.sql(), ps -> {
+                    RETRIEVE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.setInt(ps, "orderId", orderId);
+                    RETRIEVE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.setInt(ps, "userId", userId);
+                }, (rs, rowNum) -> OrderStatus.fromCode(rs.getString(1)))).stream().findFirst();
+    }
+
+    /**
+     * Adds each line to the line count, total quantity and total value of its order, provided the
+     * order is a draft of the user {@code userIdByOrderId} gives for it. Only the stored line of the
+     * same product is read, never the whole order; run it before the lines are upserted, so that
+     * line is still in its former state. Lines of one order must name distinct products. The result
+     * tells, per line, whether its order was a draft of that user and has been updated.
+     */
+    public boolean[] addToDraftOrderAggregates(Map<Integer, Integer> userIdByOrderId, List<OrderDetails> orderDetailsList) {
+        int[] updatedRows = queryMetrics.batchUpdate("ADD_LINE_TO_DRAFT_ORDER_AGGREGATES",
+                () -> jdbcOperations.batchUpdate(ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderDetails orderDetails = orderDetailsList.get(i);
+                        BigDecimal productPrice = orderDetails.getProductPrice() == null
+                                ? BigDecimal.ZERO : orderDetails.getProductPrice().setScale(2, RoundingMode.HALF_UP);
+                        ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT.setInt(ps, "orderId", orderDetails.getOrderId());
+                        ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT.setInt(ps, "productId", orderDetails.getProductId());
+                        ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT.setInt(ps, "quantity", orderDetails.getQuantity());
+                        ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT.setBigDecimal(ps, "productPrice", productPrice);
+                        ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT.setInt(ps, "userId", userIdByOrderId.get(orderDetails.getOrderId()));
+                        ADD_LINE_TO_DRAFT_ORDER_AGGREGATES_STATEMENT.setString(ps, "expectedStatus", OrderStatus.DRAFT.getCode());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orderDetailsList.size();
+                    }
+                }));
+        boolean[] updated = new boolean[updatedRows.length];
+        for (int i = 0; i < updatedRows.length; i++) {
+            updated[i] = updatedRows[i] != 0;
         }
-        return parameterSource;
+        return updated;
     }
 
-    private static MapSqlParameterSource parameterSourceForDeletingOrder(int orderId, String orderStatus) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("orderId", orderId);
-        parameterSource.addValue("orderStatus", orderStatus);
-        return parameterSource;
+    /**
+     * Moves the aggregates of each line's order from the stored quantity of the line to the line's
+     * quantity, for orders in the expected status. Like {@link #addToDraftOrderAggregates(Map, List)},
+     * it reads only the stored line and must run before the lines are updated; lines that are not
+     * stored leave the aggregates as they are.
+     */
+    public void setLineQuantitiesInOrderAggregates(List<OrderDetails> orderDetailsList, OrderStatus expectedStatus) {
+        queryMetrics.batchUpdate("SET_LINE_QUANTITY_IN_ORDER_AGGREGATES",
+                () -> jdbcOperations.batchUpdate(SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderDetails orderDetails = orderDetailsList.get(i);
+                        bindLineQuantity(SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_STATEMENT, ps, orderDetails.getOrderId(),
+                                orderDetails.getProductId(), orderDetails.getQuantity(), expectedStatus);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orderDetailsList.size();
+                    }
+                }));
     }
 
-    public List<OrderHeader> getOrderHeadersForAUser(OrderHeader orderHeader) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("userId", orderHeader.getUserId());
-        List<OrderHeader> orderHeaders = jdbcTemplate.query(RETRIEVE_ORDER_HEADER_DETAILS_FOR_USER, parameterSource, orderHeaderRowMapper);
-        return orderHeaders;
+    /**
+     * Takes a stored line of a draft order off the order's aggregates and returns the order's owner,
+     * read from the same guarded update. Empty when the order is not a draft or has no such line, in
+     * which case nothing was changed.
+     */
+    public Optional<Integer> removeLineFromDraftOrderAggregates(int orderId, int productId) {
+        GeneratedKeyHolder ownerHolder = new GeneratedKeyHolder();
+        queryMetrics.update("SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_RETURNING_OWNER",
+                () -> jdbcOperations.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_RETURNING_OWNER_STATEMENT.sql(), new String[]{"user_id"});
+                    bindLineQuantity(SET_LINE_QUANTITY_IN_ORDER_AGGREGATES_RETURNING_OWNER_STATEMENT, ps, orderId, productId, 0, OrderStatus.DRAFT);
+                    return ps;
+                }, ownerHolder));
+        return ownerHolder.getKeyList().stream()
+                .flatMap(key -> key.values().stream())
+                .map(owner -> ((Number) owner).intValue())
+                .findFirst();
     }
 
-    public List<OrderHeader> getOrderHeadersWithOrderStatus(String orderStatus) {
+    /**
+     * Moves the order to {@link OrderStatus#CANCELLED} when it is a draft whose total quantity is
+     * zero, which is the only place that condition is stated. Returns whether it did.
+     */
+    public boolean cancelEmptyDraftOrder(int orderId) {
+        int updatedRows = queryMetrics.update("CANCEL_EMPTY_DRAFT_ORDER",
+                () -> jdbcOperations.update(CANCEL_EMPTY_DRAFT_ORDER_STATEMENT.sql(), ps -> {
+                    CANCEL_EMPTY_DRAFT_ORDER_STATEMENT.setString(ps, "status", OrderStatus.CANCELLED.getCode());
+                    CANCEL_EMPTY_DRAFT_ORDER_STATEMENT.setInt(ps, "orderId", orderId);
+                    CANCEL_EMPTY_DRAFT_ORDER_STATEMENT.setString(ps, "expectedStatus", OrderStatus.DRAFT.getCode());
+                }));
+        log.info("No of orders cancelled as empty drafts for order {} : {}", orderId, updatedRows);
+        return updatedRows == 1;
+    }
+
+    /**
+     * Owners of those of {@code orderIds} that are in {@code orderStatus}, keyed by order id.
+     */
+    public Map<Integer, Integer> retrieveUserIdsByOrderIdsAndStatus(Collection<Integer> orderIds, OrderStatus orderStatus) {
+        Map<Integer, Integer> userIdByOrderId = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return userIdByOrderId;
+        }
         MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("orderStatus", orderStatus);
-        List<OrderHeader> orderHeaders = jdbcTemplate.query(RETRIEVE_ORDER_HEADER_DETAILS_WITH_ORDER_STATUS, parameterSource, orderHeaderRowMapper);
-        return orderHeaders;
+        parameterSource.addValue("orderIds", orderIds);
+        parameterSource.addValue("orderStatus", orderStatus.getCode());
+        queryMetrics.query("RETRIEVE_USER_IDS_BY_ORDER_IDS_AND_STATUS",
+                rs -> userIdByOrderId.put(rs.getInt("order_id"), rs.getInt("user_id")),
+                rowCallbackHandler -> jdbcTemplate.query(RETRIEVE_USER_IDS_BY_ORDER_IDS_AND_STATUS, parameterSource, rowCallbackHandler));
+        return userIdByOrderId;
     }
 
-    private MapSqlParameterSource parameterToInsertOrderHeader(OrderHeader orderHeader) {
-        MapSqlParameterSource mapSqlParameterSource = new MapSqlParameterSource();
-        mapSqlParameterSource.addValue("userId", orderHeader.getUserId());
-        mapSqlParameterSource.addValue("orderId", orderHeader.getOrderId());
-        mapSqlParameterSource.addValue("totalOrderValue", orderHeader.getTotalOrderValue());
-        mapSqlParameterSource.addValue("orderStatus", ORDER_STATUS_DRAFT);
-        return mapSqlParameterSource;
+    public boolean isOrderOwnedByUserWithStatus(int orderId, int userId, OrderStatus orderStatus) {
+        Boolean owned = queryMetrics.queryForObject("COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS",
+                () -> jdbcOperations.query(COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS_STATEMENT.sql(), ps -> {
+                    COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS_STATEMENT.setInt(ps, "orderId", orderId);
+                    COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS_STATEMENT.setInt(ps, "userId", userId);
+                    COUNT_ORDERS_BY_ORDER_ID_USER_AND_STATUS_STATEMENT.setString(ps, "orderStatus", orderStatus.getCode());
+                }, rs -> rs.next() && rs.getInt(1) > 0));
+        return Boolean.TRUE.equals(owned);
     }
 
-    private static MapSqlParameterSource parameterSourceForApprovedOrder(int orderId, BigDecimal total, String status) {
-        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-        parameterSource.addValue("orderId", orderId);
-        parameterSource.addValue("total", total);
-        parameterSource.addValue("status", status);
-        return parameterSource;
-    }
-    private RowMapper<OrderHeader> orderHeaderRowMapper() {
-        return (rs, rowNum) -> OrderHeader.builder()
-                .userId(rs.getInt("user_id"))
-                .orderId(rs.getInt("order_id"))
-                .totalOrderValue(rs.getBigDecimal("total_order_value"))
-                .orderStatus(rs.getString("order_status"))
-                .build();
+    private static void bindOrderHeaderToInsert(PreparedStatement ps, OrderHeader orderHeader) throws SQLException {
+        INSERT_ORDER_HEADER_STATEMENT.setInt(ps, "userId", orderHeader.getUserId());
+        INSERT_ORDER_HEADER_STATEMENT.setInt(ps, "orderId", orderHeader.getOrderId());
+        INSERT_ORDER_HEADER_STATEMENT.setBigDecimal(ps, "totalOrderValue", orderHeader.getTotalOrderValue());
+        INSERT_ORDER_HEADER_STATEMENT.setString(ps, "orderStatus", OrderStatus.DRAFT.getCode());
+        INSERT_ORDER_HEADER_STATEMENT.setInt(ps, "lineCount", orderHeader.getLineCount());
+        INSERT_ORDER_HEADER_STATEMENT.setInt(ps, "totalQuantity", orderHeader.getTotalQuantity());
+    }
+
+    private static void bindLineQuantity(NamedStatement statement, PreparedStatement ps, int orderId, int productId, int quantity,
+                                         OrderStatus expectedStatus) throws SQLException {
+        statement.setInt(ps, "orderId", orderId);
+        statement.setInt(ps, "productId", productId);
+        statement.setInt(ps, "quantity", quantity);
+        statement.setString(ps, "expectedStatus", expectedStatus.getCode());
+    }
+
+    private static void bindOrderStatusUpdate(PreparedStatement ps, int orderId, int userId, OrderStatus from, OrderStatus to) throws SQLException {
+        UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.setString(ps, "status", to.getCode());
+        UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.setInt(ps, "orderId", orderId);
+        UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.setInt(ps, "userId", userId);
+        UPDATE_ORDER_STATUS_BY_ORDER_ID_AND_USER_STATEMENT.setString(ps, "expectedStatus", from.getCode());
+    }
+
+    private static final class CartDetailsGroupingHandler implements RowCallbackHandler {
+        private final Consumer<CartDetailsDTO> cartDetailsConsumer;
+        private CartDetailsDTO currentCartDetails;
+
+        private CartDetailsGroupingHandler(Consumer<CartDetailsDTO> cartDetailsConsumer) {
+            this.cartDetailsConsumer = cartDetailsConsumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int orderId = rs.getInt(1);
+            if (currentCartDetails == null || currentCartDetails.getOrderId() != orderId) {
+                flush();
+                currentCartDetails = mapCartDetails(rs);
+            }
+            int productId = rs.getInt(5);
+            if (!rs.wasNull()) {
+                currentCartDetails.getCartLineDetailsDTOList()
+                        .add(new CartLineDetailsDTO(productId, rs.getString(6), rs.getBigDecimal(7), rs.getInt(8)));
+            }
+        }
+
+        private void flush() {
+            if (currentCartDetails != null) {
+                cartDetailsConsumer.accept(currentCartDetails);
+                currentCartDetails = null;
+            }
+        }
+    }
+
+    /**
+     * Maps the leading order_id, user_id, total_order_value, order_status columns of a row.
+     */
+    static RowMapper<CartDetailsDTO> cartDetailsRowMapper() {
+        return (rs, rowNum) -> mapCartDetails(rs);
+    }
+
+    private static CartDetailsDTO mapCartDetails(ResultSet rs) throws SQLException {
+        return new CartDetailsDTO(rs.getInt(1), rs.getInt(2), rs.getBigDecimal(3), OrderStatus.fromCode(rs.getString(4)), new ArrayList<>());
     }
 }
@@ -0,0 +1,254 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.model.OrderHeader;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.model.UserOrderSummary;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The per-user order summary. Writers apply deltas in the transaction that changes the orders, so
+ * the summary commits or rolls back with them; the rebuild and the consistency check recompute it
+ * from the live and archive tables one range of user ids at a time.
+ */
+@Repository
+public class UserOrderSummaryRepository {
+    private final JdbcOperations jdbcOperations;
+
+    private static final String OPEN_USER_ORDER_SUMMARY_CART = "INSERT INTO user_order_summary " +
+            "(user_id, open_carts, approved_orders, lifetime_value) VALUES (:userId, 1, 0, 0)" +
+            " ON DUPLICATE KEY UPDATE open_carts = open_carts + 1";
+
+    private static final String CLOSE_USER_ORDER_SUMMARY_CART = "UPDATE user_order_summary SET open_carts = open_carts - 1 " +
+            "WHERE user_id = :userId";
+
+    private static final String APPROVE_USER_ORDER_SUMMARY_CART = "UPDATE user_order_summary SET open_carts = open_carts - 1, " +
+            "approved_orders = approved_orders + 1, " +
+            "lifetime_value = lifetime_value + (SELECT o.total_order_value FROM orders o WHERE o.order_id = :orderId) " +
+            "WHERE user_id = :userId";
+
+    private static final String RETRIEVE_USER_ORDER_SUMMARY = "SELECT user_id, open_carts, approved_orders, lifetime_value " +
+            "FROM user_order_summary WHERE user_id = :userId";
+
+    private static final String RETRIEVE_USER_ORDER_SUMMARIES_BY_USER_RANGE = "SELECT user_id, open_carts, approved_orders, lifetime_value " +
+            "FROM user_order_summary WHERE user_id BETWEEN :fromUserId AND :toUserId";
+
+    private static final String LOCK_USER_ORDER_SUMMARIES_BY_USER_RANGE = "SELECT user_id, open_carts, approved_orders, lifetime_value " +
+            "FROM user_order_summary WHERE user_id BETWEEN :fromUserId AND :toUserId FOR UPDATE";
+
+    private static final String SUMMARIZE_ORDERS_BY_USER_RANGE = "SELECT user_id, " +
+            "SUM(CASE WHEN order_status = :draftStatus THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN order_status = :approvedStatus THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN order_status = :approvedStatus THEN total_order_value ELSE 0 END) " +
+            "FROM orders WHERE user_id BETWEEN :fromUserId AND :toUserId GROUP BY user_id";
+
+    private static final String SUMMARIZE_ARCHIVED_ORDERS_BY_USER_RANGE = "SELECT user_id, " +
+            "SUM(CASE WHEN order_status = :draftStatus THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN order_status = :approvedStatus THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN order_status = :approvedStatus THEN total_order_value ELSE 0 END) " +
+            "FROM orders_archive WHERE user_id BETWEEN :fromUserId AND :toUserId GROUP BY user_id";
+
+    private static final String REPLACE_USER_ORDER_SUMMARY = "INSERT INTO user_order_summary " +
+            "(user_id, open_carts, approved_orders, lifetime_value) VALUES (:userId, :openCarts, :approvedOrders, :lifetimeValue)" +
+            " ON DUPLICATE KEY UPDATE open_carts = :openCarts, approved_orders = :approvedOrders, lifetime_value = :lifetimeValue";
+
+    private static final String RETRIEVE_MAX_ORDER_USER_ID = "SELECT GREATEST(" +
+            "COALESCE((SELECT MAX(user_id) FROM orders), 0), COALESCE((SELECT MAX(user_id) FROM orders_archive), 0))";
+
+    private static final NamedStatement OPEN_USER_ORDER_SUMMARY_CART_STATEMENT = NamedStatement.of(OPEN_USER_ORDER_SUMMARY_CART);
+    private static final NamedStatement CLOSE_USER_ORDER_SUMMARY_CART_STATEMENT = NamedStatement.of(CLOSE_USER_ORDER_SUMMARY_CART);
+    private static final NamedStatement APPROVE_USER_ORDER_SUMMARY_CART_STATEMENT = NamedStatement.of(APPROVE_USER_ORDER_SUMMARY_CART);
+    private static final NamedStatement RETRIEVE_USER_ORDER_SUMMARY_STATEMENT = NamedStatement.of(RETRIEVE_USER_ORDER_SUMMARY);
+    private static final NamedStatement RETRIEVE_USER_ORDER_SUMMARIES_BY_USER_RANGE_STATEMENT = NamedStatement.of(RETRIEVE_USER_ORDER_SUMMARIES_BY_USER_RANGE);
+    private static final NamedStatement LOCK_USER_ORDER_SUMMARIES_BY_USER_RANGE_STATEMENT = NamedStatement.of(LOCK_USER_ORDER_SUMMARIES_BY_USER_RANGE);
+    private static final NamedStatement SUMMARIZE_ORDERS_BY_USER_RANGE_STATEMENT = NamedStatement.of(SUMMARIZE_ORDERS_BY_USER_RANGE);
+    private static final NamedStatement SUMMARIZE_ARCHIVED_ORDERS_BY_USER_RANGE_STATEMENT = NamedStatement.of(SUMMARIZE_ARCHIVED_ORDERS_BY_USER_RANGE);
+    private static final NamedStatement REPLACE_USER_ORDER_SUMMARY_STATEMENT = NamedStatement.of(REPLACE_USER_ORDER_SUMMARY);
+
+    private final RowMapper<UserOrderSummary> userOrderSummaryRowMapper = userOrderSummaryRowMapper();
+    private final QueryMetrics queryMetrics;
+
+    public UserOrderSummaryRepository(NamedParameterJdbcTemplate jdbcTemplate, QueryMetrics queryMetrics) {
+        this.jdbcOperations = jdbcTemplate.getJdbcOperations();
+        this.queryMetrics = queryMetrics;
+    }
+
+    public void recordOrderOpened(int userId) {
+        queryMetrics.update("OPEN_USER_ORDER_SUMMARY_CART",
+                () -> jdbcOperations.update(OPEN_USER_ORDER_SUMMARY_CART_STATEMENT.sql(),
+                        ps -> OPEN_USER_ORDER_SUMMARY_CART_STATEMENT.setInt(ps, "userId", userId)));
+    }
+
+    /**
+     * Counts one new draft per order header, in one batch. Rows are locked in user id order so two
+     * batches over overlapping users cannot deadlock on each other.
+     */
+    public void recordOrdersOpened(Collection<OrderHeader> orderHeaders) {
+        if (orderHeaders.isEmpty()) {
+            return;
+        }
+        List<Integer> sortedUserIds = orderHeaders.stream().map(OrderHeader::getUserId).sorted().toList();
+        queryMetrics.batchUpdate("OPEN_USER_ORDER_SUMMARY_CART",
+                () -> jdbcOperations.batchUpdate(OPEN_USER_ORDER_SUMMARY_CART_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OPEN_USER_ORDER_SUMMARY_CART_STATEMENT.setInt(ps, "userId", sortedUserIds.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return sortedUserIds.size();
+                    }
+                }));
+    }
+
+    /**
+     * Takes a cancelled draft off its user's open carts. Call it only when
+     * {@link OrderHeaderRepository#cancelEmptyDraftOrder(int)} reports that it cancelled the order.
+     */
+    public void recordOrderCancelled(int userId) {
+        queryMetrics.update("CLOSE_USER_ORDER_SUMMARY_CART",
+                () -> jdbcOperations.update(CLOSE_USER_ORDER_SUMMARY_CART_STATEMENT.sql(),
+                        ps -> CLOSE_USER_ORDER_SUMMARY_CART_STATEMENT.setInt(ps, "userId", userId)));
+    }
+
+    /**
+     * Moves the order from its user's open carts to the approved orders and adds its value. Call it
+     * after the order's aggregates have been brought up to date with its lines.
+     */
+    public void recordOrderApproved(int orderId, int userId) {
+        queryMetrics.update("APPROVE_USER_ORDER_SUMMARY_CART",
+                () -> jdbcOperations.update(APPROVE_USER_ORDER_SUMMARY_CART_STATEMENT.sql(), ps -> {
+                    APPROVE_USER_ORDER_SUMMARY_CART_STATEMENT.setInt(ps, "orderId", orderId);
+                    APPROVE_USER_ORDER_SUMMARY_CART_STATEMENT.setInt(ps, "userId", userId);
+                }));
+    }
+
+    /**
+     * {@link #recordOrderApproved(int, int)} for several orders in one batch, in user id order.
+     */
+    public void recordOrdersApproved(Collection<OrderHeader> orderHeaders) {
+        if (orderHeaders.isEmpty()) {
+            return;
+        }
+        List<OrderHeader> sortedOrderHeaders = orderHeaders.stream()
+                .sorted(Comparator.comparingInt(OrderHeader::getUserId).thenComparingInt(OrderHeader::getOrderId))
+                .toList();
+        queryMetrics.batchUpdate("APPROVE_USER_ORDER_SUMMARY_CART",
+                () -> jdbcOperations.batchUpdate(APPROVE_USER_ORDER_SUMMARY_CART_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        APPROVE_USER_ORDER_SUMMARY_CART_STATEMENT.setInt(ps, "orderId", sortedOrderHeaders.get(i).getOrderId());
+                        APPROVE_USER_ORDER_SUMMARY_CART_STATEMENT.setInt(ps, "userId", sortedOrderHeaders.get(i).getUserId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return sortedOrderHeaders.size();
+                    }
+                }));
+    }
+
+    public Optional<UserOrderSummary> retrieveSummary(int userId) {
+        return queryMetrics.queryForList("RETRIEVE_USER_ORDER_SUMMARY",
+                () -> jdbcOperations.query(RETRIEVE_USER_ORDER_SUMMARY_STATEMENT.sql(),
+                        ps -> RETRIEVE_USER_ORDER_SUMMARY_STATEMENT.setInt(ps, "userId", userId),
+                        userOrderSummaryRowMapper)).stream().findFirst();
+    }
+
+    /**
+     * The stored summaries of the users in the range, by user id; with {@code forUpdate}, locked
+     * until the end of the transaction, gaps included, so no delta can land in the range meanwhile.
+     */
+    public Map<Integer, UserOrderSummary> retrieveSummaries(int fromUserId, int toUserId, boolean forUpdate) {
+        String queryName = forUpdate ? "LOCK_USER_ORDER_SUMMARIES_BY_USER_RANGE" : "RETRIEVE_USER_ORDER_SUMMARIES_BY_USER_RANGE";
+        NamedStatement statement = forUpdate ? LOCK_USER_ORDER_SUMMARIES_BY_USER_RANGE_STATEMENT : RETRIEVE_USER_ORDER_SUMMARIES_BY_USER_RANGE_STATEMENT;
+        Map<Integer, UserOrderSummary> summaries = new TreeMap<>();
+        queryMetrics.queryForList(queryName, () -> jdbcOperations.query(statement.sql(), ps -> {
+                    statement.setInt(ps, "fromUserId", fromUserId);
+                    statement.setInt(ps, "toUserId", toUserId);
+                }, userOrderSummaryRowMapper))
+                .forEach(summary -> summaries.put(summary.getUserId(), summary));
+        return summaries;
+    }
+
+    /**
+     * The summaries of the users in the range as recomputed from their live and archived orders, by
+     * user id. Users without orders are absent.
+     */
+    public Map<Integer, UserOrderSummary> summarizeOrders(int fromUserId, int toUserId) {
+        Map<Integer, UserOrderSummary> summaries = new TreeMap<>();
+        summarizeInto(summaries, "SUMMARIZE_ORDERS_BY_USER_RANGE", SUMMARIZE_ORDERS_BY_USER_RANGE_STATEMENT, fromUserId, toUserId);
+        summarizeInto(summaries, "SUMMARIZE_ARCHIVED_ORDERS_BY_USER_RANGE", SUMMARIZE_ARCHIVED_ORDERS_BY_USER_RANGE_STATEMENT, fromUserId, toUserId);
+        return summaries;
+    }
+
+    private void summarizeInto(Map<Integer, UserOrderSummary> summaries, String queryName, NamedStatement statement,
+                               int fromUserId, int toUserId) {
+        queryMetrics.queryForList(queryName, () -> jdbcOperations.query(statement.sql(), ps -> {
+                    statement.setString(ps, "draftStatus", OrderStatus.DRAFT.getCode());
+                    statement.setString(ps, "approvedStatus", OrderStatus.APPROVED.getCode());
+                    statement.setInt(ps, "fromUserId", fromUserId);
+                    statement.setInt(ps, "toUserId", toUserId);
+                }, userOrderSummaryRowMapper))
+                .forEach(summary -> summaries.merge(summary.getUserId(), summary, (live, archived) -> new UserOrderSummary(live.getUserId(),
+                        live.getOpenCarts() + archived.getOpenCarts(), live.getApprovedOrders() + archived.getApprovedOrders(),
+                        live.getLifetimeValue().add(archived.getLifetimeValue()))));
+    }
+
+    public void replaceSummaries(Collection<UserOrderSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        List<UserOrderSummary> summaryList = List.copyOf(summaries);
+        queryMetrics.batchUpdate("REPLACE_USER_ORDER_SUMMARY",
+                () -> jdbcOperations.batchUpdate(REPLACE_USER_ORDER_SUMMARY_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        UserOrderSummary summary = summaryList.get(i);
+                        REPLACE_USER_ORDER_SUMMARY_STATEMENT.setInt(ps, "userId", summary.getUserId());
+                        REPLACE_USER_ORDER_SUMMARY_STATEMENT.setInt(ps, "openCarts", summary.getOpenCarts());
+                        REPLACE_USER_ORDER_SUMMARY_STATEMENT.setInt(ps, "approvedOrders", summary.getApprovedOrders());
+                        REPLACE_USER_ORDER_SUMMARY_STATEMENT.setBigDecimal(ps, "lifetimeValue", summary.getLifetimeValue());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return summaryList.size();
+                    }
+                }));
+    }
+
+    /**
+     * The highest user id with a live or archived order, or 0 when there are none.
+     */
+    public int retrieveMaxOrderUserId() {
+        Integer maxUserId = queryMetrics.queryForObject("RETRIEVE_MAX_ORDER_USER_ID",
+                () -> jdbcOperations.queryForObject(RETRIEVE_MAX_ORDER_USER_ID, Integer.class));
+        return maxUserId == null ? 0 : maxUserId;
+    }
+
+    /**
+     * Maps the user_id, open_carts, approved_orders, lifetime_value columns, in that order.
+     */
+    static RowMapper<UserOrderSummary> userOrderSummaryRowMapper() {
+        return (rs, rowNum) -> {
+            BigDecimal lifetimeValue = rs.getBigDecimal(4);
+            return new UserOrderSummary(rs.getInt(1), rs.getInt(2), rs.getInt(3), lifetimeValue == null ? BigDecimal.ZERO : lifetimeValue);
+        };
+    }
+}
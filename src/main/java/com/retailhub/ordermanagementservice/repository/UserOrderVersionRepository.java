@@ -0,0 +1,74 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * One version counter per user, covering all of the user's orders. Writers bump it in the
+ * transaction that changes the orders, so it commits or rolls back with them; readers compare it
+ * with the ETag a client already holds before loading anything else.
+ */
+@Repository
+public class UserOrderVersionRepository {
+    private final JdbcOperations jdbcOperations;
+
+    private static final String BUMP_USER_ORDER_VERSION = "INSERT INTO user_order_version (user_id, version) VALUES (:userId, 1)" +
+            " ON DUPLICATE KEY UPDATE version = version + 1";
+
+    private static final String RETRIEVE_USER_ORDER_VERSION = "SELECT version FROM user_order_version WHERE user_id = :userId";
+
+    private static final NamedStatement BUMP_USER_ORDER_VERSION_STATEMENT = NamedStatement.of(BUMP_USER_ORDER_VERSION);
+    private static final NamedStatement RETRIEVE_USER_ORDER_VERSION_STATEMENT = NamedStatement.of(RETRIEVE_USER_ORDER_VERSION);
+
+    private final QueryMetrics queryMetrics;
+
+    public UserOrderVersionRepository(NamedParameterJdbcTemplate jdbcTemplate, QueryMetrics queryMetrics) {
+        this.jdbcOperations = jdbcTemplate.getJdbcOperations();
+        this.queryMetrics = queryMetrics;
+    }
+
+    public void bumpVersion(int userId) {
+        queryMetrics.update("BUMP_USER_ORDER_VERSION",
+                () -> jdbcOperations.update(BUMP_USER_ORDER_VERSION_STATEMENT.sql(),
+                        ps -> BUMP_USER_ORDER_VERSION_STATEMENT.setInt(ps, "userId", userId)));
+    }
+
+    /**
+     * Bumps the version of each user once, in one batch. Rows are locked in user id order so two
+     * batches over overlapping users cannot deadlock on each other.
+     */
+    public void bumpVersions(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<Integer> sortedUserIds = userIds.stream().distinct().sorted().toList();
+        queryMetrics.batchUpdate("BUMP_USER_ORDER_VERSION",
+                () -> jdbcOperations.batchUpdate(BUMP_USER_ORDER_VERSION_STATEMENT.sql(), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        BUMP_USER_ORDER_VERSION_STATEMENT.setInt(ps, "userId", sortedUserIds.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return sortedUserIds.size();
+                    }
+                }));
+    }
+
+    public long retrieveVersion(int userId) {
+        Long version = queryMetrics.queryForObject("RETRIEVE_USER_ORDER_VERSION",
+                () -> jdbcOperations.query(RETRIEVE_USER_ORDER_VERSION_STATEMENT.sql(),
+                        ps -> RETRIEVE_USER_ORDER_VERSION_STATEMENT.setInt(ps, "userId", userId),
+                        rs -> rs.next() ? rs.getLong(1) : null));
+        return version == null ? 0 : version;
+    }
+}
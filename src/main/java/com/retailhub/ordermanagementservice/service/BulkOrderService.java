@@ -0,0 +1,282 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.cache.CartDetailsCache;
+import com.retailhub.ordermanagementservice.datasource.ReadYourWritesWindow;
+import com.retailhub.ordermanagementservice.lock.OrderLockManager;
+import com.retailhub.ordermanagementservice.model.BulkOrderResult;
+import com.retailhub.ordermanagementservice.model.CartDetails;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderChangeType;
+import com.retailhub.ordermanagementservice.model.OrderDetails;
+import com.retailhub.ordermanagementservice.model.OrderHeader;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.repository.OrderChangeEventRepository;
+import com.retailhub.ordermanagementservice.repository.OrderDetailsRepository;
+import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderSummaryRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderVersionRepository;
+import com.retailhub.ordermanagementservice.util.OrderIdGenerator;
+import com.retailhub.ordermanagementservice.util.OrderIdGenerator.OrderIdLease;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Adds to carts and submits orders in bulk. Requests are processed in chunks of
+ * {@code order.bulk.chunk-size}, one transaction per chunk bounded by
+ * {@code order.transaction.timeout-seconds}, with the header and line statements of the whole
+ * chunk sent as batches. The {@link OrderLockManager} locks of the existing orders a chunk
+ * names are held around its transaction, and the ids its new orders may need are leased before the
+ * transaction opens. When a chunk fails, its orders are retried one by one through
+ * {@link OrderService} so one bad order only fails itself.
+ */
+@Slf4j
+@Service
+public class BulkOrderService {
+
+    private final OrderService orderService;
+    private final OrderHeaderRepository orderHeaderRepository;
+    private final OrderDetailsRepository orderDetailsRepository;
+    private final OrderIdGenerator orderIdGenerator;
+    private final CartDetailsCache cartDetailsCache;
+    private final UserOrderVersionRepository userOrderVersionRepository;
+    private final OrderChangeEventRepository orderChangeEventRepository;
+    private final UserOrderSummaryRepository userOrderSummaryRepository;
+    private final OrderLockManager orderLockManager;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkOrderService(OrderService orderService, OrderHeaderRepository orderHeaderRepository,
+                            OrderDetailsRepository orderDetailsRepository, OrderIdGenerator orderIdGenerator,
+                            CartDetailsCache cartDetailsCache, UserOrderVersionRepository userOrderVersionRepository,
+                            OrderChangeEventRepository orderChangeEventRepository, UserOrderSummaryRepository userOrderSummaryRepository,
+                            OrderLockManager orderLockManager, ReadYourWritesWindow readYourWritesWindow,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${order.bulk.chunk-size:100}") int chunkSize,
+                            @Value("${order.transaction.timeout-seconds:5}") int transactionTimeoutSeconds) {
+        this.orderService = orderService;
+        this.orderHeaderRepository = orderHeaderRepository;
+        this.orderDetailsRepository = orderDetailsRepository;
+        this.orderIdGenerator = orderIdGenerator;
+        this.cartDetailsCache = cartDetailsCache;
+        this.userOrderVersionRepository = userOrderVersionRepository;
+        this.orderChangeEventRepository = orderChangeEventRepository;
+        this.userOrderSummaryRepository = userOrderSummaryRepository;
+        this.orderLockManager = orderLockManager;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(transactionTimeoutSeconds);
+        this.chunkSize = chunkSize;
+    }
+
+    public List<BulkOrderResult> addProductsToCarts(List<CartDetailsDTO> cartDetailsDTOList) {
+        return processInChunks(cartDetailsDTOList, 1, this::addProductsToCartsInOneTransaction, (index, cartDetailsDTO) -> {
+            int orderId = orderService.addProductsToCart(cartDetailsDTO);
+            return success(index, orderId, cartDetailsDTO.getUserId());
+        });
+    }
+
+    public List<BulkOrderResult> submitApprovedOrders(List<CartDetailsDTO> cartDetailsDTOList) {
+        return processInChunks(cartDetailsDTOList, 0, (chunk, orderIds) -> submitApprovedOrdersInOneTransaction(chunk), (index, cartDetailsDTO) -> {
+            orderService.submitApprovedOrder(cartDetailsDTO);
+            return success(index, cartDetailsDTO.getOrderId(), cartDetailsDTO.getUserId());
+        });
+    }
+
+    private List<BulkOrderResult> processInChunks(List<CartDetailsDTO> cartDetailsDTOList, int orderIdsPerRequest,
+                                                  BiFunction<List<IndexedRequest>, OrderIdLease, List<BulkOrderResult>> chunkProcessor,
+                                                  SingleOrderProcessor singleOrderProcessor) {
+        List<BulkOrderResult> results = new ArrayList<>(cartDetailsDTOList.size());
+        for (int from = 0; from < cartDetailsDTOList.size(); from += chunkSize) {
+            List<IndexedRequest> chunk = new ArrayList<>(chunkSize);
+            for (int index = from; index < Math.min(from + chunkSize, cartDetailsDTOList.size()); index++) {
+                chunk.add(new IndexedRequest(index, cartDetailsDTOList.get(index)));
+            }
+            Set<Integer> existingOrderIds = new HashSet<>();
+            chunk.forEach(request -> {
+                if (request.cartDetailsDTO() != null && request.cartDetailsDTO().getOrderId() != 0) {
+                    existingOrderIds.add(request.cartDetailsDTO().getOrderId());
+                }
+            });
+            try (OrderIdLease orderIds = orderIdGenerator.leaseOrderIds(chunk.size() * orderIdsPerRequest)) {
+                results.addAll(orderLockManager.withOrderLocks(existingOrderIds,
+                        () -> transactionTemplate.execute(status -> chunkProcessor.apply(chunk, orderIds))));
+            } catch (RuntimeException e) {
+                log.warn("Bulk chunk starting at {} failed, retrying its {} orders one by one", from, chunk.size(), e);
+                for (IndexedRequest request : chunk) {
+                    results.add(processSingleOrder(request, singleOrderProcessor));
+                }
+            }
+        }
+        return results;
+    }
+
+    private static BulkOrderResult processSingleOrder(IndexedRequest request, SingleOrderProcessor singleOrderProcessor) {
+        try {
+            return singleOrderProcessor.process(request.index(), request.cartDetailsDTO());
+        } catch (RuntimeException e) {
+            log.warn("Bulk order at {} failed", request.index(), e);
+            CartDetailsDTO cartDetailsDTO = request.cartDetailsDTO();
+            return BulkOrderResult.builder()
+                    .index(request.index())
+                    .orderId(cartDetailsDTO == null ? 0 : cartDetailsDTO.getOrderId())
+                    .userId(cartDetailsDTO == null ? 0 : cartDetailsDTO.getUserId())
+                    .success(false)
+                    .error(e.getMessage())
+                    .build();
+        }
+    }
+
+    private List<BulkOrderResult> addProductsToCartsInOneTransaction(List<IndexedRequest> chunk, OrderIdLease orderIds) {
+        List<CartDetails> cartDetailsList = chunk.stream()
+                .map(request -> orderService.transformCartDetailsDTOToCartDetails(request.cartDetailsDTO()))
+                .toList();
+        Set<Integer> requestedOrderIds = new LinkedHashSet<>();
+        cartDetailsList.forEach(cartDetails -> requestedOrderIds.add(cartDetails.getOrderHeader().getOrderId()));
+        Map<Integer, Integer> draftOwnerByOrderId = orderHeaderRepository.retrieveUserIdsByOrderIdsAndStatus(requestedOrderIds, OrderStatus.DRAFT);
+
+        List<OrderHeader> newOrderHeaders = new ArrayList<>();
+        List<OrderDetails> newOrderDetails = new ArrayList<>();
+        Map<Integer, Integer> updatedUserIdByOrderId = new LinkedHashMap<>();
+        List<OrderDetails> updatedOrderDetails = new ArrayList<>();
+        for (CartDetails cartDetails : cartDetailsList) {
+            OrderHeader orderHeader = cartDetails.getOrderHeader();
+            List<OrderDetails> orderDetailsList = cartDetails.getOrderDetailsList();
+            Integer draftOwner = draftOwnerByOrderId.get(orderHeader.getOrderId());
+            if (draftOwner != null && draftOwner == orderHeader.getUserId()) {
+                orderDetailsList.forEach(orderDetails -> orderDetails.setOrderId(orderHeader.getOrderId()));
+                updatedUserIdByOrderId.put(orderHeader.getOrderId(), orderHeader.getUserId());
+                updatedOrderDetails.addAll(orderDetailsList);
+            } else {
+                int orderId = orderIds.nextOrderId();
+                orderHeader.setOrderId(orderId);
+                orderDetailsList.forEach(orderDetails -> orderDetails.setOrderId(orderId));
+                OrderService.applyLineAggregates(orderHeader, orderDetailsList);
+                newOrderHeaders.add(orderHeader);
+                newOrderDetails.addAll(orderDetailsList);
+            }
+        }
+        if (!newOrderHeaders.isEmpty()) {
+            orderHeaderRepository.insertOrderHeaders(newOrderHeaders);
+            orderDetailsRepository.insertOrderDetails(newOrderDetails);
+            userOrderSummaryRepository.recordOrdersOpened(newOrderHeaders);
+            orderChangeEventRepository.recordChanges(newOrderHeaders.stream().map(OrderHeader::getOrderId).toList(), OrderChangeType.CREATED);
+        }
+        Set<Integer> rejectedOrderIds = new HashSet<>();
+        if (!updatedUserIdByOrderId.isEmpty()) {
+            // the ownership read takes no lock, so the guarded aggregate update has the last word; an
+            // order is rejected as a whole when any of its lines is
+            List<OrderDetails> mergedOrderDetails = OrderService.addUpLinesOfSameProduct(updatedOrderDetails);
+            boolean[] isDraftOrderUpdated = orderHeaderRepository.addToDraftOrderAggregates(updatedUserIdByOrderId, mergedOrderDetails);
+            for (int i = 0; i < isDraftOrderUpdated.length; i++) {
+                if (!isDraftOrderUpdated[i]) {
+                    rejectedOrderIds.add(mergedOrderDetails.get(i).getOrderId());
+                }
+            }
+            List<OrderDetails> acceptedOrderDetails = mergedOrderDetails.stream()
+                    .filter(orderDetails -> !rejectedOrderIds.contains(orderDetails.getOrderId()))
+                    .toList();
+            if (!acceptedOrderDetails.isEmpty()) {
+                orderDetailsRepository.upsertOrderDetails(acceptedOrderDetails);
+            }
+            updatedUserIdByOrderId.keySet().removeAll(rejectedOrderIds);
+            if (!updatedUserIdByOrderId.isEmpty()) {
+                orderChangeEventRepository.recordChanges(updatedUserIdByOrderId.keySet(), OrderChangeType.LINES_ADDED);
+            }
+        }
+
+        Set<Integer> changedUserIds = new HashSet<>();
+        List<BulkOrderResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            OrderHeader orderHeader = cartDetailsList.get(i).getOrderHeader();
+            if (rejectedOrderIds.contains(orderHeader.getOrderId())) {
+                results.add(notADraftOrder(chunk.get(i).index(), chunk.get(i).cartDetailsDTO()));
+                continue;
+            }
+            changedUserIds.add(orderHeader.getUserId());
+            TransactionalCacheEviction.evictAfterCompletion(cartDetailsCache, orderHeader.getUserId());
+            readYourWritesWindow.recordWrite(orderHeader.getUserId());
+            results.add(success(chunk.get(i).index(), orderHeader.getOrderId(), orderHeader.getUserId()));
+        }
+        userOrderVersionRepository.bumpVersions(changedUserIds);
+        return results;
+    }
+
+    private List<BulkOrderResult> submitApprovedOrdersInOneTransaction(List<IndexedRequest> chunk) {
+        List<CartDetails> cartDetailsList = chunk.stream()
+                .map(request -> orderService.transformCartDetailsDTOToCartDetails(request.cartDetailsDTO()))
+                .toList();
+        List<OrderHeader> orderHeaders = cartDetailsList.stream().map(CartDetails::getOrderHeader).toList();
+        boolean[] isDraftOrderApproved = orderHeaderRepository.transitionOrderStatuses(orderHeaders, OrderStatus.DRAFT, OrderStatus.APPROVED);
+
+        Set<Integer> approvedOrderIds = new LinkedHashSet<>();
+        List<OrderHeader> approvedOrderHeaders = new ArrayList<>();
+        List<OrderDetails> approvedOrderDetails = new ArrayList<>();
+        Set<Integer> changedUserIds = new HashSet<>();
+        List<BulkOrderResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            OrderHeader orderHeader = orderHeaders.get(i);
+            if (!isDraftOrderApproved[i]) {
+                results.add(notADraftOrder(chunk.get(i).index(), chunk.get(i).cartDetailsDTO()));
+                continue;
+            }
+            List<OrderDetails> orderDetailsList = cartDetailsList.get(i).getOrderDetailsList();
+            orderDetailsList.forEach(orderDetails -> orderDetails.setOrderId(orderHeader.getOrderId()));
+            approvedOrderIds.add(orderHeader.getOrderId());
+            approvedOrderHeaders.add(orderHeader);
+            approvedOrderDetails.addAll(orderDetailsList);
+            changedUserIds.add(orderHeader.getUserId());
+            TransactionalCacheEviction.evictAfterCompletion(cartDetailsCache, orderHeader.getUserId());
+            readYourWritesWindow.recordWrite(orderHeader.getUserId());
+            results.add(success(chunk.get(i).index(), orderHeader.getOrderId(), orderHeader.getUserId()));
+        }
+        if (!approvedOrderIds.isEmpty()) {
+            List<OrderDetails> lastApprovedOrderDetails = OrderService.lastLineOfEachProduct(approvedOrderDetails);
+            orderHeaderRepository.setLineQuantitiesInOrderAggregates(lastApprovedOrderDetails, OrderStatus.APPROVED);
+            orderDetailsRepository.updateProductQuantities(lastApprovedOrderDetails);
+            userOrderSummaryRepository.recordOrdersApproved(approvedOrderHeaders);
+            orderChangeEventRepository.recordChanges(approvedOrderIds, OrderChangeType.APPROVED);
+        }
+        userOrderVersionRepository.bumpVersions(changedUserIds);
+        return results;
+    }
+
+    private static BulkOrderResult success(int index, int orderId, int userId) {
+        return BulkOrderResult.builder()
+                .index(index)
+                .orderId(orderId)
+                .userId(userId)
+                .success(true)
+                .build();
+    }
+
+    private static BulkOrderResult notADraftOrder(int index, CartDetailsDTO cartDetailsDTO) {
+        return BulkOrderResult.builder()
+                .index(index)
+                .orderId(cartDetailsDTO.getOrderId())
+                .userId(cartDetailsDTO.getUserId())
+                .success(false)
+                .error("Order Id " + cartDetailsDTO.getOrderId() + " is not a draft order of user " + cartDetailsDTO.getUserId())
+                .build();
+    }
+
+    private record IndexedRequest(int index, CartDetailsDTO cartDetailsDTO) {
+    }
+
+    @FunctionalInterface
+    private interface SingleOrderProcessor {
+        BulkOrderResult process(int index, CartDetailsDTO cartDetailsDTO);
+    }
+}
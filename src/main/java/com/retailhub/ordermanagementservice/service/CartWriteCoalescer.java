@@ -0,0 +1,274 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.cache.CartDetailsCache;
+import com.retailhub.ordermanagementservice.datasource.ReadYourWritesWindow;
+import com.retailhub.ordermanagementservice.exception.CoalescedWriteTimeoutException;
+import com.retailhub.ordermanagementservice.lock.OrderLockManager;
+import com.retailhub.ordermanagementservice.metrics.StatementStatistics;
+import com.retailhub.ordermanagementservice.model.CartDetails;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderChangeType;
+import com.retailhub.ordermanagementservice.model.OrderDetails;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.repository.OrderChangeEventRepository;
+import com.retailhub.ordermanagementservice.repository.OrderDetailsRepository;
+import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderVersionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Merges add-to-cart increments for existing drafts that arrive within
+ * {@code order.cart.coalescing.window-millis} of each other and writes them as one transaction:
+ * one ownership query, one aggregate delta batch, one upsert batch, one change event batch and one
+ * order version batch. Increments for the same order and product are summed into a single line.
+ * The ownership query only picks the user to guard on; the draft-guarded aggregate update decides
+ * which orders are written, and only those get lines, change events and version bumps.
+ * <p>
+ * Each caller waits until the transaction holding its increment has committed, so a response is
+ * only sent for durable writes and a following cart read on any node sees them. The wait is bounded
+ * by {@code order.cart.coalescing.wait-timeout-millis}; past it the caller gets a
+ * {@link CoalescedWriteTimeoutException}, answered with 503, and is not replayed, since the flush
+ * may still write its increment. Requests that turn out not to target a draft of their user, and
+ * all requests of a batch whose flush failed, are replayed through
+ * {@link OrderService#addProductsToCart(CartDetailsDTO)} as if coalescing were off.
+ * Orders are spread over {@code order.cart.coalescing.stripes} independently locked buffers.
+ * Every request of a batch is charged the statements of the whole flush in its
+ * {@link StatementStatistics}, since the flush runs on another thread.
+ */
+@Slf4j
+@Component
+public class CartWriteCoalescer {
+    private final OrderService orderService;
+    private final OrderHeaderRepository orderHeaderRepository;
+    private final OrderDetailsRepository orderDetailsRepository;
+    private final CartDetailsCache cartDetailsCache;
+    private final UserOrderVersionRepository userOrderVersionRepository;
+    private final OrderChangeEventRepository orderChangeEventRepository;
+    private final OrderLockManager orderLockManager;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary requestsPerFlush;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final long waitTimeoutMillis;
+    private final Stripe[] stripes;
+    private final ScheduledExecutorService flushExecutor;
+
+    public CartWriteCoalescer(OrderService orderService, OrderHeaderRepository orderHeaderRepository,
+                              OrderDetailsRepository orderDetailsRepository, CartDetailsCache cartDetailsCache,
+                              UserOrderVersionRepository userOrderVersionRepository, OrderChangeEventRepository orderChangeEventRepository,
+                              OrderLockManager orderLockManager, ReadYourWritesWindow readYourWritesWindow,
+                              PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                              @Value("${order.cart.coalescing.enabled:false}") boolean enabled,
+                              @Value("${order.cart.coalescing.window-millis:20}") long windowMillis,
+                              @Value("${order.cart.coalescing.stripes:16}") int stripeCount,
+                              @Value("${order.cart.coalescing.flush-threads:2}") int flushThreads,
+                              @Value("${order.cart.coalescing.wait-timeout-millis:5000}") long waitTimeoutMillis,
+                              @Value("${order.transaction.timeout-seconds:5}") int transactionTimeoutSeconds) {
+        this.orderService = orderService;
+        this.orderHeaderRepository = orderHeaderRepository;
+        this.orderDetailsRepository = orderDetailsRepository;
+        this.cartDetailsCache = cartDetailsCache;
+        this.userOrderVersionRepository = userOrderVersionRepository;
+        this.orderChangeEventRepository = orderChangeEventRepository;
+        this.orderLockManager = orderLockManager;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(transactionTimeoutSeconds);
+        this.requestsPerFlush = DistributionSummary.builder("order.cart.coalescing.requests.per.flush")
+                .description("Add-to-cart requests written by one coalesced flush")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.flushExecutor = enabled ? Executors.newScheduledThreadPool(flushThreads) : null;
+    }
+
+    public int addProductsToCart(CartDetailsDTO cartDetailsDTO) {
+        if (!enabled || cartDetailsDTO.getOrderId() == 0) {
+            return orderService.addProductsToCart(cartDetailsDTO);
+        }
+        CartDetails cartDetails = orderService.transformCartDetailsDTOToCartDetails(cartDetailsDTO);
+        OrderOwner orderOwner = new OrderOwner(cartDetailsDTO.getOrderId(), cartDetailsDTO.getUserId());
+        Batch batch = stripes[Math.floorMod(orderOwner.orderId(), stripes.length)].add(orderOwner, cartDetails.getOrderDetailsList());
+        try {
+            Set<OrderOwner> applied = batch.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            StatementStatistics statementStatistics = StatementStatistics.current();
+            if (statementStatistics != null) {
+                statementStatistics.addAll(batch.statementStatistics);
+            }
+            if (applied.contains(orderOwner)) {
+                return orderOwner.orderId();
+            }
+        } catch (ExecutionException e) {
+            log.warn("Coalesced flush failed, adding to cart of order {} directly", orderOwner.orderId(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new CoalescedWriteTimeoutException("Coalesced write to order " + orderOwner.orderId()
+                    + " not confirmed within " + waitTimeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CoalescedWriteTimeoutException("Interrupted waiting for the coalesced write to order " + orderOwner.orderId());
+        }
+        return orderService.addProductsToCart(cartDetailsDTO);
+    }
+
+    private void flush(Batch batch) {
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(batch.statementStatistics)) {
+            Set<Integer> orderIds = new HashSet<>();
+            batch.linesByOwner.keySet().forEach(orderOwner -> orderIds.add(orderOwner.orderId()));
+            Set<OrderOwner> applied = orderLockManager.withOrderLocks(orderIds,
+                    () -> transactionTemplate.execute(status -> applyBatch(batch)));
+            requestsPerFlush.record(batch.requests);
+            batch.result.complete(applied);
+        } catch (RuntimeException e) {
+            batch.result.completeExceptionally(e);
+        }
+    }
+
+    private Set<OrderOwner> applyBatch(Batch batch) {
+        Set<Integer> orderIds = new LinkedHashSet<>();
+        batch.linesByOwner.keySet().forEach(orderOwner -> orderIds.add(orderOwner.orderId()));
+        Map<Integer, Integer> draftOwnerByOrderId = orderHeaderRepository.retrieveUserIdsByOrderIdsAndStatus(orderIds, OrderStatus.DRAFT);
+
+        Map<Integer, Integer> candidateUserIdByOrderId = new LinkedHashMap<>();
+        List<OrderOwner> lineOwners = new ArrayList<>();
+        List<OrderDetails> candidateOrderDetailsList = new ArrayList<>();
+        batch.linesByOwner.forEach((orderOwner, linesByProductId) -> {
+            if (Objects.equals(draftOwnerByOrderId.get(orderOwner.orderId()), orderOwner.userId())) {
+                candidateUserIdByOrderId.put(orderOwner.orderId(), orderOwner.userId());
+                linesByProductId.values().forEach(orderDetails -> {
+                    lineOwners.add(orderOwner);
+                    candidateOrderDetailsList.add(orderDetails);
+                });
+            }
+        });
+        if (candidateOrderDetailsList.isEmpty()) {
+            return Set.of();
+        }
+
+        // the unlocked read only picks the owner to guard on; the guarded update decides, and an order
+        // with one rejected line is rejected as a whole (its row is locked after its first line, so
+        // all of its lines see the same status)
+        boolean[] updated = orderHeaderRepository.addToDraftOrderAggregates(candidateUserIdByOrderId, candidateOrderDetailsList);
+        Set<OrderOwner> rejected = new HashSet<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (!updated[i]) {
+                rejected.add(lineOwners.get(i));
+            }
+        }
+
+        Set<OrderOwner> applied = new LinkedHashSet<>();
+        Set<Integer> appliedUserIds = new HashSet<>();
+        List<OrderDetails> orderDetailsList = new ArrayList<>();
+        for (int i = 0; i < lineOwners.size(); i++) {
+            OrderOwner orderOwner = lineOwners.get(i);
+            if (!rejected.contains(orderOwner)) {
+                applied.add(orderOwner);
+                appliedUserIds.add(orderOwner.userId());
+                orderDetailsList.add(candidateOrderDetailsList.get(i));
+            }
+        }
+        if (orderDetailsList.isEmpty()) {
+            return applied;
+        }
+        Set<Integer> appliedOrderIds = new LinkedHashSet<>();
+        applied.forEach(orderOwner -> appliedOrderIds.add(orderOwner.orderId()));
+        appliedUserIds.forEach(userId -> {
+            TransactionalCacheEviction.evictAfterCompletion(cartDetailsCache, userId);
+            readYourWritesWindow.recordWrite(userId);
+        });
+        orderDetailsRepository.upsertOrderDetails(orderDetailsList);
+        orderChangeEventRepository.recordChanges(appliedOrderIds, OrderChangeType.LINES_ADDED);
+        userOrderVersionRepository.bumpVersions(appliedUserIds);
+        return applied;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor.awaitTermination(windowMillis + 5000, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Batch openBatch;
+
+        private Batch add(OrderOwner orderOwner, List<OrderDetails> orderDetailsList) {
+            lock.lock();
+            try {
+                if (openBatch == null) {
+                    Batch batch = new Batch();
+                    openBatch = batch;
+                    flushExecutor.schedule(() -> close(batch), windowMillis, TimeUnit.MILLISECONDS);
+                }
+                openBatch.merge(orderOwner, orderDetailsList);
+                return openBatch;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void close(Batch batch) {
+            lock.lock();
+            try {
+                openBatch = null;
+            } finally {
+                lock.unlock();
+            }
+            flush(batch);
+        }
+    }
+
+    private static final class Batch {
+        private final Map<OrderOwner, Map<Integer, OrderDetails>> linesByOwner = new LinkedHashMap<>();
+        private final CompletableFuture<Set<OrderOwner>> result = new CompletableFuture<>();
+        private final StatementStatistics statementStatistics = new StatementStatistics();
+        private int requests;
+
+        private void merge(OrderOwner orderOwner, List<OrderDetails> orderDetailsList) {
+            Map<Integer, OrderDetails> linesByProductId = linesByOwner.computeIfAbsent(orderOwner, key -> new LinkedHashMap<>());
+            for (OrderDetails orderDetails : orderDetailsList) {
+                orderDetails.setOrderId(orderOwner.orderId());
+                linesByProductId.merge(orderDetails.getProductId(), orderDetails, (pending, added) -> {
+                    pending.setQuantity(pending.getQuantity() + added.getQuantity());
+                    pending.setProductName(added.getProductName());
+                    pending.setProductPrice(added.getProductPrice());
+                    return pending;
+                });
+            }
+            requests++;
+        }
+    }
+
+    private record OrderOwner(int orderId, int userId) {
+    }
+}
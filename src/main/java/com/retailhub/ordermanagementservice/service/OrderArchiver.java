@@ -0,0 +1,132 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.repository.OrderArchiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every {@code order.archive.interval-millis}, moves orders closed more than
+ * {@code order.archive.closed-for-days} ago to the archive tables, so the live tables keep little
+ * more than the drafts. Each batch of {@code order.archive.batch-size} orders is its own short
+ * transaction, batches are {@code order.archive.pause-millis} apart, and a run stops after
+ * {@code order.archive.max-batches-per-run} batches; whatever is left waits for the next run.
+ * <p>
+ * Progress is published as {@code order.archive.orders} and {@code order.archive.batch}; lag as
+ * {@code order.archive.lag.seconds}, how long the oldest order waiting for the archive has been
+ * eligible, as of the end of the last run.
+ * <p>
+ * Off by default: {@code /details} reads the archive, but the paged and streamed histories read
+ * the live tables only, so archived orders drop out of them.
+ * <p>
+ * {@code closed_at} is set from the database clock; the cut-off is taken from the given
+ * {@link Clock}, which must stay within a small fraction of {@code order.archive.closed-for-days}
+ * of it.
+ */
+@Slf4j
+@Component
+public class OrderArchiver {
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter archivedOrders;
+    private final Timer batchTimer;
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final boolean enabled;
+    private final Duration closedFor;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMillis;
+    private final Clock clock;
+
+    @Autowired
+    public OrderArchiver(OrderArchiveRepository orderArchiveRepository, PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${order.archive.enabled:false}") boolean enabled,
+                         @Value("${order.archive.closed-for-days:30}") long closedForDays,
+                         @Value("${order.archive.batch-size:200}") int batchSize,
+                         @Value("${order.archive.max-batches-per-run:50}") int maxBatchesPerRun,
+                         @Value("${order.archive.pause-millis:100}") long pauseMillis) {
+        this(orderArchiveRepository, transactionManager, meterRegistry, enabled, closedForDays, batchSize, maxBatchesPerRun,
+                pauseMillis, Clock.systemUTC());
+    }
+
+    public OrderArchiver(OrderArchiveRepository orderArchiveRepository, PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry, boolean enabled, long closedForDays, int batchSize,
+                         int maxBatchesPerRun, long pauseMillis, Clock clock) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archivedOrders = Counter.builder("order.archive.orders")
+                .description("Closed orders moved to the archive tables")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("order.archive.batch")
+                .description("Archiving transactions")
+                .register(meterRegistry);
+        Gauge.builder("order.archive.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("How long the oldest order waiting for the archive has been eligible")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.closedFor = Duration.ofDays(closedForDays);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMillis = pauseMillis;
+        this.clock = clock;
+    }
+
+    @Scheduled(initialDelayString = "${order.archive.interval-millis:60000}", fixedDelayString = "${order.archive.interval-millis:60000}")
+    public void archiveClosedOrders() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * Runs one archiving pass and returns the number of orders moved.
+     */
+    public int archive() {
+        Instant closedBefore = clock.instant().minus(closedFor);
+        int archived = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Timer.Sample batchSample = Timer.start();
+            int archivedInBatch = transactionTemplate.execute(status ->
+                    orderArchiveRepository.archiveOrders(orderArchiveRepository.retrieveArchivableOrderIds(closedBefore, batchSize)));
+            batchSample.stop(batchTimer);
+            archived += archivedInBatch;
+            archivedOrders.increment(archivedInBatch);
+            if (archivedInBatch < batchSize || !pauseBetweenBatches()) {
+                break;
+            }
+        }
+        lagSeconds.set(orderArchiveRepository.retrieveOldestArchivableClosedAt(closedBefore)
+                .map(oldestClosedAt -> Duration.between(oldestClosedAt, closedBefore).toSeconds())
+                .orElse(0L));
+        if (archived > 0) {
+            log.info("Archived {} orders closed before {}, lag {}s", archived, closedBefore, lagSeconds.get());
+        }
+        return archived;
+    }
+
+    private boolean pauseBetweenBatches() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.OrderChangeEvent;
+import com.retailhub.ordermanagementservice.model.OrderChangesPage;
+import com.retailhub.ordermanagementservice.repository.OrderChangeEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pages through the recorded order changes in event id order; a consumer passes the returned
+ * cursor back as {@code after} to read what changed since.
+ * <p>
+ * Event ids are assigned on insert but become visible on commit, so a transaction holding a lower
+ * id can commit after a higher one has already been read. A page therefore stops before the first
+ * event that follows a gap in the ids and is younger than {@code order.changes.visibility-delay-millis};
+ * the next poll picks it up once the gap has been filled or has aged. A gap older than the delay is
+ * an id whose transaction rolled back and is skipped. Ages are measured on the database clock,
+ * which is read only when a page meets a gap.
+ * <p>
+ * The delay must exceed the longest transaction that records changes. The writers bound theirs
+ * with {@code order.transaction.timeout-seconds}, and the feed refuses to start unless the delay is
+ * longer.
+ */
+@Service
+public class OrderChangeFeed {
+
+    private final OrderChangeEventRepository orderChangeEventRepository;
+    private final Duration visibilityDelay;
+
+    public OrderChangeFeed(OrderChangeEventRepository orderChangeEventRepository,
+                           @Value("${order.changes.visibility-delay-millis:10000}") long visibilityDelayMillis,
+                           @Value("${order.transaction.timeout-seconds:5}") int transactionTimeoutSeconds) {
+        if (visibilityDelayMillis <= TimeUnit.SECONDS.toMillis(transactionTimeoutSeconds)) {
+            throw new IllegalArgumentException("order.changes.visibility-delay-millis (" + visibilityDelayMillis
+                    + ") must exceed order.transaction.timeout-seconds (" + transactionTimeoutSeconds + ")");
+        }
+        this.orderChangeEventRepository = orderChangeEventRepository;
+        this.visibilityDelay = Duration.ofMillis(visibilityDelayMillis);
+    }
+
+    public OrderChangesPage retrieveChanges(long afterEventId, int limit) {
+        Instant settledBefore = null;
+        List<OrderChangeEvent> events = new ArrayList<>();
+        long expectedEventId = afterEventId + 1;
+        for (OrderChangeEvent event : orderChangeEventRepository.retrieveChangesAfter(afterEventId, limit)) {
+            if (event.getEventId() != expectedEventId) {
+                if (settledBefore == null) {
+                    settledBefore = orderChangeEventRepository.retrieveDatabaseTime().minus(visibilityDelay);
+                }
+                if (event.getCreatedAt().isAfter(settledBefore)) {
+                    break;
+                }
+            }
+            events.add(event);
+            expectedEventId = event.getEventId() + 1;
+        }
+        return OrderChangesPage.builder()
+                .events(events)
+                .nextCursor(events.isEmpty() ? afterEventId : events.get(events.size() - 1).getEventId())
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailhub.ordermanagementservice.model.OrderExportFilter;
+import com.retailhub.ordermanagementservice.model.OrderExportFormat;
+import com.retailhub.ordermanagementservice.model.OrderExportLine;
+import com.retailhub.ordermanagementservice.repository.OrderExportRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the orders matching a filter, live and archived, one row per order line, straight to an
+ * output stream as they are read from the database. The export runs in a read-only transaction,
+ * so it is served by the replica when one is configured.
+ * <p>
+ * At most {@code order.export.max-concurrent} exports run at a time; one more is rejected with a
+ * {@link RejectedExecutionException}, answered with 503, before anything is written. Exports run
+ * for minutes and each holds a connection and the thread streaming it, so the limit keeps them
+ * from taking the pool and the threads the other requests share.
+ */
+@Slf4j
+@Service
+public class OrderExportService {
+
+    private static final String CSV_HEADER = "order_id,user_id,order_status,total_order_value,closed_at," +
+            "product_id,product_name,product_price,quantity";
+
+    private final OrderExportRepository orderExportRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Semaphore exportPermits;
+    private final int maxConcurrentExports;
+
+    public OrderExportService(OrderExportRepository orderExportRepository, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${order.export.max-concurrent:2}") int maxConcurrentExports) {
+        this.orderExportRepository = orderExportRepository;
+        this.exportPermits = new Semaphore(maxConcurrentExports);
+        this.maxConcurrentExports = maxConcurrentExports;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Writes the export to {@code outputStream}, gzip-compressed when {@code gzip} is set, and
+     * closes it. Returns the number of rows written.
+     */
+    public long exportOrders(OrderExportFilter filter, OrderExportFormat format, boolean gzip, OutputStream outputStream) throws IOException {
+        if (!exportPermits.tryAcquire()) {
+            throw new RejectedExecutionException("Already running " + maxConcurrentExports + " exports");
+        }
+        long[] exportedLines = new long[1];
+        try {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, 8192) : outputStream;
+            try (ExportWriter exportWriter = format == OrderExportFormat.CSV ? new CsvExportWriter(target) : new NdjsonExportWriter(target)) {
+                readOnlyTransactionTemplate.executeWithoutResult(status -> orderExportRepository.streamOrderLines(filter, orderExportLine -> {
+                    exportWriter.accept(orderExportLine);
+                    exportedLines[0]++;
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } finally {
+            exportPermits.release();
+        }
+        log.info("Exported {} order lines as {} for {}", exportedLines[0], format, filter);
+        return exportedLines[0];
+    }
+
+    private interface ExportWriter extends Consumer<OrderExportLine>, Closeable {
+    }
+
+    private final class NdjsonExportWriter implements ExportWriter {
+        private final JsonGenerator jsonGenerator;
+
+        private NdjsonExportWriter(OutputStream outputStream) throws IOException {
+            this.jsonGenerator = objectMapper.getFactory().createGenerator(outputStream);
+        }
+
+        @Override
+        public void accept(OrderExportLine orderExportLine) {
+            try {
+                jsonGenerator.writeObject(orderExportLine);
+                jsonGenerator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            jsonGenerator.close();
+        }
+    }
+
+    private static final class CsvExportWriter implements ExportWriter {
+        private final Writer writer;
+
+        private CsvExportWriter(OutputStream outputStream) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void accept(OrderExportLine orderExportLine) {
+            try {
+                writer.write(String.valueOf(orderExportLine.getOrderId()));
+                writeField(orderExportLine.getUserId());
+                writeField(orderExportLine.getOrderStatus());
+                writeField(orderExportLine.getTotalOrderValue());
+                writeField(orderExportLine.getClosedAt());
+                writeField(orderExportLine.getProductId());
+                writeField(orderExportLine.getProductName());
+                writeField(orderExportLine.getProductPrice());
+                writeField(orderExportLine.getQuantity());
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeField(Object value) throws IOException {
+            writer.write(',');
+            if (value != null) {
+                writer.write(escape(value.toString()));
+            }
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
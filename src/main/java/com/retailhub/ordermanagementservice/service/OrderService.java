@@ -1,77 +1,184 @@
 package com.retailhub.ordermanagementservice.service;
 
+import com.retailhub.ordermanagementservice.cache.CartDetailsCache;
+import com.retailhub.ordermanagementservice.exception.NotFoundException;
+import com.retailhub.ordermanagementservice.exception.OrderStatusConflictException;
+import com.retailhub.ordermanagementservice.datasource.ReadYourWritesWindow;
+import com.retailhub.ordermanagementservice.lock.OrderLockManager;
 import com.retailhub.ordermanagementservice.model.CartDetails;
 import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
-import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderChangeType;
 import com.retailhub.ordermanagementservice.model.OrderDetails;
 import com.retailhub.ordermanagementservice.model.OrderHeader;
+import com.retailhub.ordermanagementservice.model.OrderHistoryPage;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.model.UserOrderSummary;
+import com.retailhub.ordermanagementservice.model.VersionedOrders;
+import com.retailhub.ordermanagementservice.repository.OrderChangeEventRepository;
 import com.retailhub.ordermanagementservice.repository.OrderDetailsRepository;
 import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderSummaryRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderVersionRepository;
 import com.retailhub.ordermanagementservice.util.OrderIdGenerator;
+import com.retailhub.ordermanagementservice.util.OrderIdGenerator.OrderIdLease;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 public class OrderService {
     private final OrderHeaderRepository orderHeaderRepository;
     private final OrderDetailsRepository orderDetailsRepository;
-    private static final String ORDER_STATUS_DRAFT = "DRAFT";
-    private static final String ORDER_STATUS_CANCELLED = "CANCELLED";
-    private static final String ORDER_STATUS_APPROVED = "APPROVED";
+    private final OrderIdGenerator orderIdGenerator;
+    private final CartDetailsCache cartDetailsCache;
+    private final UserOrderVersionRepository userOrderVersionRepository;
+    private final OrderChangeEventRepository orderChangeEventRepository;
+    private final UserOrderSummaryRepository userOrderSummaryRepository;
+    private final OrderLockManager orderLockManager;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
-    public OrderService(OrderHeaderRepository orderHeaderRepository, OrderDetailsRepository orderDetailsRepository) {
+    public OrderService(OrderHeaderRepository orderHeaderRepository, OrderDetailsRepository orderDetailsRepository,
+                        OrderIdGenerator orderIdGenerator, CartDetailsCache cartDetailsCache,
+                        UserOrderVersionRepository userOrderVersionRepository, OrderChangeEventRepository orderChangeEventRepository,
+                        UserOrderSummaryRepository userOrderSummaryRepository, OrderLockManager orderLockManager,
+                        ReadYourWritesWindow readYourWritesWindow, PlatformTransactionManager transactionManager,
+                        @Value("${order.transaction.timeout-seconds:5}") int transactionTimeoutSeconds) {
         this.orderHeaderRepository = orderHeaderRepository;
         this.orderDetailsRepository = orderDetailsRepository;
+        this.orderIdGenerator = orderIdGenerator;
+        this.cartDetailsCache = cartDetailsCache;
+        this.userOrderVersionRepository = userOrderVersionRepository;
+        this.orderChangeEventRepository = orderChangeEventRepository;
+        this.userOrderSummaryRepository = userOrderSummaryRepository;
+        this.orderLockManager = orderLockManager;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(transactionTimeoutSeconds);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
     }
 
-    @Transactional
-    public void addProductsToCart(CartDetailsDTO cartDetailsDTO) {
+    /**
+     * Adds to the draft order named by the request, or to a new order when it names none. Changes to
+     * an existing order hold its {@link OrderLockManager} lock around the whole transaction, as do
+     * {@link #deleteOrderFromCart(int, int)} and {@link #submitApprovedOrder(CartDetailsDTO)}; a new
+     * order is not visible to anyone else yet and needs no lock. The id a new order may need is leased
+     * from the {@link OrderIdGenerator} before the transaction opens.
+     */
+    public int addProductsToCart(CartDetailsDTO cartDetailsDTO) {
+        try (OrderIdLease orderIds = orderIdGenerator.leaseOrderIds(1)) {
+            if (cartDetailsDTO.getOrderId() == 0) {
+                return transactionTemplate.execute(status -> addProductsToCartInTransaction(cartDetailsDTO, orderIds));
+            }
+            return orderLockManager.withOrderLock(cartDetailsDTO.getOrderId(),
+                    () -> transactionTemplate.execute(status -> addProductsToCartInTransaction(cartDetailsDTO, orderIds)));
+        }
+    }
+
+    private int addProductsToCartInTransaction(CartDetailsDTO cartDetailsDTO, OrderIdLease orderIds) {
         CartDetails cartDetails = transformCartDetailsDTOToCartDetails(cartDetailsDTO);
-        List<OrderHeader> orderHeaders = orderHeaderRepository.getOrderHeadersWithOrderStatus(ORDER_STATUS_DRAFT);
-        boolean isOrderIdMatched = isOrderIdMatched(cartDetails.getOrderHeader().getOrderId(), orderHeaders);
-        if (isOrderIdMatched) {
-            UpdateCartDetails(cartDetails.getOrderHeader(), orderHeaders, cartDetails.getOrderDetailsList());
-        } else {
-            enrichOrderHeaderAndOrderDetailsWithOrderId(cartDetails.getOrderHeader(), orderHeaders, cartDetails.getOrderDetailsList());
+        OrderHeader orderHeader = cartDetails.getOrderHeader();
+        boolean isDraftOrderOfUser = orderHeader.getOrderId() != 0 && addToDraftOrder(orderHeader, cartDetails.getOrderDetailsList());
+        if (!isDraftOrderOfUser) {
+            enrichOrderHeaderAndOrderDetailsWithOrderId(orderHeader, cartDetails.getOrderDetailsList(), orderIds.nextOrderId());
             insertOrderHeaderAndOrderDetails(cartDetails);
         }
+        orderChangeEventRepository.recordChange(orderHeader.getOrderId(),
+                isDraftOrderOfUser ? OrderChangeType.LINES_ADDED : OrderChangeType.CREATED);
+        recordOrdersChanged(orderHeader.getUserId());
+        return orderHeader.getOrderId();
+    }
+
+    /**
+     * Bumps the user's order version in the current transaction, evicts the user's cart once it
+     * completes and opens the user's read-your-writes window. Every flow that changes a user's
+     * orders calls this.
+     */
+    private void recordOrdersChanged(int userId) {
+        userOrderVersionRepository.bumpVersion(userId);
+        TransactionalCacheEviction.evictAfterCompletion(cartDetailsCache, userId);
+        readYourWritesWindow.recordWrite(userId);
+    }
+
+    /**
+     * Runs a read of the user's orders in a read-only transaction, which goes to the replica when
+     * one is configured, or in a read-write one on the primary while the user is inside their
+     * read-your-writes window.
+     */
+    private <T> T readForUser(int userId, Supplier<T> read) {
+        TransactionTemplate readTransactionTemplate = readYourWritesWindow.isRecentWriter(userId)
+                ? transactionTemplate : readOnlyTransactionTemplate;
+        return readTransactionTemplate.execute(status -> read.get());
     }
 
     private void insertOrderHeaderAndOrderDetails(CartDetails cartDetails) {
         orderHeaderRepository.insertOrderHeader(cartDetails.getOrderHeader());
         orderDetailsRepository.insertOrderDetails(cartDetails.getOrderDetailsList());
+        userOrderSummaryRepository.recordOrderOpened(cartDetails.getOrderHeader().getUserId());
     }
 
-    private void UpdateCartDetails(OrderHeader orderHeader, List<OrderHeader> orderHeaders, List<OrderDetails> orderDetailsList) {
-        updateOrderDetails(orderHeader, orderDetailsList);
+    /**
+     * Adds the lines to the order when it is a draft of the user. The guarded aggregate update is
+     * the ownership check, so an existing draft costs no separate read; an order that is not a draft
+     * of the user is left untouched and false is returned.
+     */
+    private boolean addToDraftOrder(OrderHeader orderHeader, List<OrderDetails> orderDetailsList) {
+        int orderId = orderHeader.getOrderId();
+        if (orderDetailsList.isEmpty()) {
+            return orderHeaderRepository.isOrderOwnedByUserWithStatus(orderId, orderHeader.getUserId(), OrderStatus.DRAFT);
+        }
+        orderDetailsList.forEach(orderDetail -> orderDetail.setOrderId(orderId));
+        List<OrderDetails> mergedOrderDetailsList = addUpLinesOfSameProduct(orderDetailsList);
+        if (!orderHeaderRepository.addToDraftOrderAggregates(Map.of(orderId, orderHeader.getUserId()), mergedOrderDetailsList)[0]) {
+            return false;
+        }
+        orderDetailsRepository.upsertOrderDetails(mergedOrderDetailsList);
+        return true;
     }
 
-    private static boolean isOrderIdMatched(int orderId, List<OrderHeader> orderHeaders) {
-        return orderHeaders.stream().anyMatch(orderHeaderDetail -> orderHeaderDetail.getOrderId() == orderId
-                && orderHeaderDetail.getOrderStatus().equals(ORDER_STATUS_DRAFT));
+    /**
+     * One line per order and product, holding the summed quantity and the name and price of the
+     * last duplicate, which is what the aggregate updates of {@link OrderHeaderRepository} expect
+     * of an increment batch.
+     */
+    static List<OrderDetails> addUpLinesOfSameProduct(List<OrderDetails> orderDetailsList) {
+        return mergeLinesOfSameProduct(orderDetailsList, (pending, added) -> new OrderDetails(pending.getOrderId(),
+                pending.getProductId(), added.getProductName(), added.getProductPrice(), pending.getQuantity() + added.getQuantity()));
     }
 
-    private void updateOrderDetails(OrderHeader orderHeader, List<OrderDetails> orderDetailsList) {
-        OrderDetails orderDetails = orderDetailsList.get(0);
-        int orderId = orderHeader.getOrderId();
-        int productId = orderDetails.getProductId();
-        List<OrderDetails> orderDetailList = orderDetailsRepository.retrieveOrderDetailsByOrderIdAndProductId(orderId, productId);
-        if (orderDetailList.isEmpty()) {
-            orderDetailsRepository.updateOrderDetailsByOrderId(orderHeader, orderDetails);
-        } else {
-            OrderDetails neworderDetails = orderDetailList.get(0);
-            int updatedQuantityForAProduct = neworderDetails.getQuantity() + 1;
-            orderDetailsRepository.updateProductQuantityByOrderIdAndProductId(orderId, productId, updatedQuantityForAProduct);
+    /**
+     * One line per order and product, the last one given, which is the quantity a batch of absolute
+     * updates ends up storing.
+     */
+    static List<OrderDetails> lastLineOfEachProduct(List<OrderDetails> orderDetailsList) {
+        return mergeLinesOfSameProduct(orderDetailsList, (pending, added) -> added);
+    }
+
+    private static List<OrderDetails> mergeLinesOfSameProduct(List<OrderDetails> orderDetailsList, BinaryOperator<OrderDetails> merge) {
+        Map<OrderProduct, OrderDetails> linesByOrderProduct = new LinkedHashMap<>();
+        for (OrderDetails orderDetails : orderDetailsList) {
+            linesByOrderProduct.merge(new OrderProduct(orderDetails.getOrderId(), orderDetails.getProductId()), orderDetails, merge);
         }
+        return linesByOrderProduct.size() == orderDetailsList.size() ? orderDetailsList : new ArrayList<>(linesByOrderProduct.values());
     }
 
-    private CartDetails transformCartDetailsDTOToCartDetails(CartDetailsDTO cartDetailsDTO) {
+    CartDetails transformCartDetailsDTOToCartDetails(CartDetailsDTO cartDetailsDTO) {
         OrderHeader orderHeader = buildOrderHeaderFromCartDetailsDTO(cartDetailsDTO);
         List<OrderDetails> orderDetails = transformCartLinesDTOToOrderDetails(cartDetailsDTO);
         return CartDetails.builder()
@@ -102,109 +209,179 @@ public class OrderService {
                 .toList();
     }
 
-    private void enrichOrderHeaderAndOrderDetailsWithOrderId(OrderHeader orderHeader, List<OrderHeader> orderHeaders, List<OrderDetails> orderDetailsList) {
-        int orderId = orderHeader.getOrderId() == 0 ? OrderIdGenerator.generateOrderId() : orderHeader.getOrderId();
-        while (true) {
-            boolean isOrderIdMatched = isOrderIdMatched(orderId, orderHeaders);
-            if (isOrderIdMatched) {
-                orderId = OrderIdGenerator.generateOrderId();
-            } else {
-                break;
+    private static void enrichOrderHeaderAndOrderDetailsWithOrderId(OrderHeader orderHeader, List<OrderDetails> orderDetailsList, int orderId) {
+        orderHeader.setOrderId(orderId);
+        orderDetailsList.forEach(orderDetail -> orderDetail.setOrderId(orderId));
+        applyLineAggregates(orderHeader, orderDetailsList);
+    }
+
+    /**
+     * Computes the aggregates of a new order from the lines it is inserted with, the values that
+     * {@link OrderHeaderRepository#addToDraftOrderAggregates(Map, List)} and
+     * {@link OrderHeaderRepository#setLineQuantitiesInOrderAggregates(List, OrderStatus)} keep up to
+     * date as the lines change. The client's total is not used.
+     */
+    static void applyLineAggregates(OrderHeader orderHeader, List<OrderDetails> orderDetailsList) {
+        int lineCount = 0;
+        int totalQuantity = 0;
+        BigDecimal totalOrderValue = BigDecimal.ZERO;
+        for (OrderDetails orderDetails : orderDetailsList) {
+            if (orderDetails.getQuantity() > 0) {
+                lineCount++;
+            }
+            totalQuantity += orderDetails.getQuantity();
+            if (orderDetails.getProductPrice() != null) {
+                totalOrderValue = totalOrderValue.add(orderDetails.getProductPrice().setScale(2, RoundingMode.HALF_UP)
+                        .multiply(BigDecimal.valueOf(orderDetails.getQuantity())));
             }
         }
-        int finalOrderId = orderId;
-        orderHeader.setOrderId(finalOrderId);
-        orderDetailsList.forEach(orderDetail -> orderDetail.setOrderId(finalOrderId));
+        orderHeader.setLineCount(lineCount);
+        orderHeader.setTotalQuantity(totalQuantity);
+        orderHeader.setTotalOrderValue(totalOrderValue);
     }
 
     public List<CartDetailsDTO> retrieveCartDetailsByDraftStatus(int userId) {
-        List<OrderHeader> orderHeaders = orderHeaderRepository.retrieveOrderHeaderDetailsByUserAndStatus(userId, ORDER_STATUS_DRAFT);
-        return retrieveCartDetails(orderHeaders);
+        return retrieveVersionedCartDetailsByDraftStatus(userId).getOrders();
     }
 
-    private List<CartDetailsDTO> retrieveCartDetails(List<OrderHeader> orderHeaders) {
-        List<CartDetailsDTO> cartDetailsDTOList = new ArrayList<>();
-        List<OrderDetails> orderDetails = orderDetailsRepository.retrieveOrderDetails();
-        for (OrderHeader orderHeader : orderHeaders) {
-            List<OrderDetails> orderDetailsList = orderDetails.stream().filter(orderDetail -> orderDetail.getOrderId() == orderHeader.getOrderId()).toList();
-            cartDetailsDTOList.add(transformCartDetailsToDTO(orderHeader, orderDetailsList));
+    /**
+     * The user's draft carts with the order version they were loaded at, which is the version the
+     * cached value carries and so the one to use as its ETag. Reads served by the replica bypass the
+     * cache: an eviction cannot tell how far the replica lags, so a cart loaded from it could stay
+     * stale until the entry expires.
+     */
+    public VersionedOrders retrieveVersionedCartDetailsByDraftStatus(int userId) {
+        if (readYourWritesWindow.readsFromReplica(userId)) {
+            return readOnlyTransactionTemplate.execute(status -> loadCartDetailsByDraftStatus(userId));
         }
+        return cartDetailsCache.get(userId, key -> readForUser(key, () -> loadCartDetailsByDraftStatus(key)));
+    }
+
+    private VersionedOrders loadCartDetailsByDraftStatus(int userId) {
+        long version = userOrderVersionRepository.retrieveVersion(userId);
+        return new VersionedOrders(version,
+                withCartLines(orderHeaderRepository.retrieveCartDetailsByUserAndStatus(userId, OrderStatus.DRAFT)));
+    }
+
+    /**
+     * The current order version of the user; one primary key read, meant for answering conditional
+     * requests before loading anything else.
+     */
+    public long retrieveOrderVersion(int userId) {
+        return readForUser(userId, () -> userOrderVersionRepository.retrieveVersion(userId));
+    }
+
+    private List<CartDetailsDTO> withCartLines(List<CartDetailsDTO> cartDetailsDTOList) {
+        orderDetailsRepository.retrieveCartLines(cartDetailsDTOList);
         return cartDetailsDTOList;
     }
 
     public List<CartDetailsDTO> retrieveOrderDetails(int userId) {
-        List<OrderHeader> orderHeaders = orderHeaderRepository.retrieveOrderHeaderDetailsByUser(userId, null);
-        return retrieveCartDetails(orderHeaders);
-    }
-
-    private CartDetailsDTO transformCartDetailsToDTO(OrderHeader orderHeader, List<OrderDetails> orderDetailsList) {
-        CartDetailsDTO cartDetailsDTO = new CartDetailsDTO();
-        cartDetailsDTO.setOrderId(orderHeader.getOrderId());
-        cartDetailsDTO.setUserId(orderHeader.getUserId());
-        cartDetailsDTO.setTotalOrderValue(orderHeader.getTotalOrderValue());
-        cartDetailsDTO.setOrderStatus(orderHeader.getOrderStatus());
-        cartDetailsDTO.setCartLineDetailsDTOList(transformOrderDetailsToCartDetailsDTO(orderDetailsList));
-        return cartDetailsDTO;
-    }
-
-    private List<CartLineDetailsDTO> transformOrderDetailsToCartDetailsDTO(List<OrderDetails> orderDetailsList) {
-        return orderDetailsList.stream()
-                .map(orderDetails -> {
-                    CartLineDetailsDTO cartLine = new CartLineDetailsDTO();
-                    cartLine.setProductId(orderDetails.getProductId());
-                    cartLine.setProductName(orderDetails.getProductName());
-                    cartLine.setProductPrice(orderDetails.getProductPrice());
-                    cartLine.setQuantity(orderDetails.getQuantity());
-                    return cartLine;
-                })
-                .toList();
+        return readForUser(userId, () -> {
+            List<CartDetailsDTO> cartDetailsDTOList = orderHeaderRepository.retrieveCartDetailsByUser(userId);
+            orderDetailsRepository.retrieveCartLinesIncludingArchive(cartDetailsDTOList);
+            return cartDetailsDTOList;
+        });
+    }
+
+    public VersionedOrders retrieveVersionedOrderDetails(int userId) {
+        return readForUser(userId, () -> {
+            long version = userOrderVersionRepository.retrieveVersion(userId);
+            return new VersionedOrders(version, retrieveOrderDetails(userId));
+        });
+    }
+
+    public OrderHistoryPage retrieveOrderDetailsPage(int userId, int afterOrderId, int limit) {
+        return readForUser(userId, () -> {
+            List<CartDetailsDTO> cartDetailsDTOList = orderHeaderRepository.retrieveCartDetailsByUserAfterOrderId(userId, afterOrderId, limit + 1);
+            boolean hasNextPage = cartDetailsDTOList.size() > limit;
+            List<CartDetailsDTO> page = hasNextPage ? cartDetailsDTOList.subList(0, limit) : cartDetailsDTOList;
+            return OrderHistoryPage.builder()
+                    .orders(withCartLines(page))
+                    .nextCursor(hasNextPage ? page.get(limit - 1).getOrderId() : null)
+                    .build();
+        });
+    }
+
+    public void streamOrderDetails(int userId, Consumer<CartDetailsDTO> cartDetailsDTOConsumer) {
+        readForUser(userId, () -> {
+            orderHeaderRepository.streamOrderHistoryByUser(userId, cartDetailsDTOConsumer);
+            return null;
+        });
+    }
+
+    /**
+     * The user's open carts, approved orders and lifetime value, read from the summary the order
+     * writes maintain rather than from the orders themselves.
+     */
+    public UserOrderSummary retrieveOrderSummary(int userId) {
+        return readForUser(userId, () -> userOrderSummaryRepository.retrieveSummary(userId)
+                .orElseGet(() -> UserOrderSummary.empty(userId)));
     }
 
-    @Transactional
     public void deleteOrderFromCart(int orderId, int productId) {
-        orderDetailsRepository.updateProductQuantityByOrderIdAndProductId(orderId, productId, 0);
-        int totalQuantity = getTotalQuantityForOrderId(orderId);
-        if (totalQuantity == 0) {
-            orderHeaderRepository.deleteOrderFromCart(orderId, ORDER_STATUS_CANCELLED);
-        }
+        orderLockManager.withOrderLock(orderId, () -> transactionTemplate.execute(status -> {
+            deleteOrderFromCartInTransaction(orderId, productId);
+            return null;
+        }));
     }
 
-    private int getTotalQuantityForOrderId(int orderId) {
-        int totalQuantity = 0;
-        List<OrderDetails> orderDetailList = orderDetailsRepository.retrieveOrderDetailsByOrderId(orderId);
-        for (OrderDetails orderDetail : orderDetailList) {
-            totalQuantity += orderDetail.getQuantity();
-        }
-        return totalQuantity;
+    /**
+     * Takes the line off the order's aggregates with an update guarded on the order being a draft,
+     * which also hands back the owner; when it matches nothing the order and its lines are left as
+     * they are. Otherwise the line is zeroed, a draft left without quantity is cancelled by a guarded
+     * update, and only when that update matched is the order taken off its user's open carts.
+     */
+    private void deleteOrderFromCartInTransaction(int orderId, int productId) {
+        Optional<Integer> orderOwner = orderHeaderRepository.removeLineFromDraftOrderAggregates(orderId, productId);
+        orderOwner.ifPresent(userId -> {
+            orderDetailsRepository.updateProductQuantityByOrderIdAndProductId(orderId, productId, 0);
+            if (orderHeaderRepository.cancelEmptyDraftOrder(orderId)) {
+                userOrderSummaryRepository.recordOrderCancelled(userId);
+            }
+            orderChangeEventRepository.recordChange(orderId, OrderChangeType.LINE_REMOVED);
+            recordOrdersChanged(userId);
+        });
     }
 
-    @Transactional
+    /**
+     * Approves the user's draft order. The draft to approved transition is a single guarded update;
+     * only when it matches no row is the order read again, to tell an unknown order
+     * ({@link NotFoundException}) from one that is no longer a draft ({@link OrderStatusConflictException}).
+     */
     public void submitApprovedOrder(CartDetailsDTO cartDetailsDTO) {
-        CartDetails cartDetails = transformCartDetailsDTOToCartDetails(cartDetailsDTO);
-        List<OrderHeader> orderHeaders = orderHeaderRepository.getOrderHeadersForAUser(cartDetails.getOrderHeader());
-        boolean OrderId = isOrderIdMatched(cartDetails.getOrderHeader().getOrderId(), orderHeaders);
-        if (OrderId) {
-            UpdateApprovedOrderDetails(cartDetails.getOrderHeader(), orderHeaders, cartDetails.getOrderDetailsList());
-        }
+        orderLockManager.withOrderLock(cartDetailsDTO.getOrderId(), () -> transactionTemplate.execute(status -> {
+            submitApprovedOrderInTransaction(cartDetailsDTO);
+            return null;
+        }));
     }
 
-    private void UpdateApprovedOrderDetails(OrderHeader orderHeader, List<OrderHeader> orderHeaders, List<OrderDetails> orderDetailsList) {
-        updateApprovedOrderDetails(orderHeader, orderDetailsList);
+    private void submitApprovedOrderInTransaction(CartDetailsDTO cartDetailsDTO) {
+        CartDetails cartDetails = transformCartDetailsDTOToCartDetails(cartDetailsDTO);
+        OrderHeader orderHeader = cartDetails.getOrderHeader();
+        int orderId = orderHeader.getOrderId();
+        int userId = orderHeader.getUserId();
+        if (!orderHeaderRepository.transitionOrderStatus(orderId, userId, OrderStatus.DRAFT, OrderStatus.APPROVED)) {
+            OrderStatus currentStatus = orderHeaderRepository.retrieveOrderStatus(orderId, userId)
+                    .orElseThrow(() -> new NotFoundException("Order Id " + orderId + " not found for user " + userId));
+            throw new OrderStatusConflictException("Order Id " + orderId + " is " + currentStatus + " and cannot move to " + OrderStatus.APPROVED);
+        }
+        updateApprovedOrderDetails(orderHeader, cartDetails.getOrderDetailsList());
+        userOrderSummaryRepository.recordOrderApproved(orderId, userId);
+        orderChangeEventRepository.recordChange(orderId, OrderChangeType.APPROVED);
+        recordOrdersChanged(userId);
     }
 
     private void updateApprovedOrderDetails(OrderHeader orderHeader, List<OrderDetails> orderDetailsList) {
         int orderId = orderHeader.getOrderId();
-
-        BigDecimal updatedTotal = orderHeader.getTotalOrderValue();
-        orderHeaderRepository.updateDetailsByOrderId(orderId, updatedTotal, ORDER_STATUS_APPROVED);
-        List<OrderDetails> orderDetailList = orderDetailsRepository.retrieveOrderDetailsByOrderId(orderId);
-
-        for (int i = 0; i < orderDetailsList.size(); i++) {
-            int productId = orderDetailList.get(i).getProductId();
-            int updatedQuantityForAProduct = orderDetailsList.get(i).getQuantity();
-            orderDetailsRepository.updateProductQuantityByOrderIdAndProductId(orderId, productId, updatedQuantityForAProduct);
+        orderDetailsList.forEach(orderDetail -> orderDetail.setOrderId(orderId));
+        List<OrderDetails> lastOrderDetailsList = lastLineOfEachProduct(orderDetailsList);
+        if (!lastOrderDetailsList.isEmpty()) {
+            orderHeaderRepository.setLineQuantitiesInOrderAggregates(lastOrderDetailsList, OrderStatus.APPROVED);
+            orderDetailsRepository.updateProductQuantities(lastOrderDetailsList);
         }
     }
 
-
+    private record OrderProduct(int orderId, int productId) {
+    }
 }
@@ -0,0 +1,33 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.cache.CartDetailsCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ties cart evictions to the transaction that changed the orders, which the cache itself knows
+ * nothing about.
+ */
+final class TransactionalCacheEviction {
+
+    private TransactionalCacheEviction() {
+    }
+
+    /**
+     * Evicts the user's cart once the surrounding transaction has finished, so a concurrent read
+     * cannot re-cache the pre-commit state after the eviction. Without a transaction the eviction
+     * is immediate.
+     */
+    static void evictAfterCompletion(CartDetailsCache cartDetailsCache, int userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cartDetailsCache.evict(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cartDetailsCache.evict(userId);
+            }
+        });
+    }
+}
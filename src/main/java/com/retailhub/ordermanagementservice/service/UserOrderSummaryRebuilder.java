@@ -0,0 +1,147 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.UserOrderSummary;
+import com.retailhub.ordermanagementservice.repository.UserOrderSummaryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recomputes the per-user order summary from the live and archive tables, {@code order.summary.batch-users}
+ * user ids per transaction.
+ * <p>
+ * {@link #rebuild()} locks the stored summaries of a range, gaps included, before reading the
+ * orders, so a delta committed while the range is rebuilt is either already counted or applied on
+ * top afterwards. {@link #check()} compares the stored and recomputed summaries inside one read-only
+ * transaction, whose snapshot sees each order change together with its delta; every
+ * {@code order.summary.check.interval-millis} it publishes the number of users that disagree as
+ * {@code order.summary.drift.users} and, with {@code order.summary.check.repair} set, rebuilds the
+ * ranges they are in.
+ */
+@Slf4j
+@Component
+public class UserOrderSummaryRebuilder {
+
+    private static final int LOGGED_DRIFTING_USERS = 10;
+
+    private final UserOrderSummaryRepository userOrderSummaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Counter rebuiltUsers;
+    private final AtomicLong driftingUsers = new AtomicLong();
+    private final boolean checkEnabled;
+    private final boolean repairDrift;
+    private final int batchUsers;
+
+    public UserOrderSummaryRebuilder(UserOrderSummaryRepository userOrderSummaryRepository, PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${order.summary.check.enabled:false}") boolean checkEnabled,
+                                     @Value("${order.summary.check.repair:false}") boolean repairDrift,
+                                     @Value("${order.summary.batch-users:500}") int batchUsers) {
+        this.userOrderSummaryRepository = userOrderSummaryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.rebuiltUsers = Counter.builder("order.summary.rebuilt.users")
+                .description("User order summaries rewritten from the order tables")
+                .register(meterRegistry);
+        Gauge.builder("order.summary.drift.users", driftingUsers, AtomicLong::get)
+                .description("Users whose order summary disagreed with their orders at the last check")
+                .register(meterRegistry);
+        this.checkEnabled = checkEnabled;
+        this.repairDrift = repairDrift;
+        this.batchUsers = batchUsers;
+    }
+
+    @Scheduled(initialDelayString = "${order.summary.check.interval-millis:3600000}", fixedDelayString = "${order.summary.check.interval-millis:3600000}")
+    public void checkSummaries() {
+        if (checkEnabled) {
+            check();
+        }
+    }
+
+    /**
+     * Rewrites the summary of every user with orders and returns the number of users rewritten.
+     */
+    public int rebuild() {
+        int rebuilt = 0;
+        int maxUserId = userOrderSummaryRepository.retrieveMaxOrderUserId();
+        for (long fromUserId = 0; fromUserId <= maxUserId; fromUserId += batchUsers) {
+            rebuilt += rebuildRange((int) fromUserId, toUserId(fromUserId));
+        }
+        log.info("Rebuilt the order summary of {} users", rebuilt);
+        return rebuilt;
+    }
+
+    /**
+     * Compares every stored summary with its recomputation and returns the number of users that
+     * disagree, repairing them when configured to.
+     */
+    public int check() {
+        List<Integer> drifting = new ArrayList<>();
+        int maxUserId = userOrderSummaryRepository.retrieveMaxOrderUserId();
+        for (long fromUserId = 0; fromUserId <= maxUserId; fromUserId += batchUsers) {
+            int from = (int) fromUserId;
+            int to = toUserId(fromUserId);
+            List<Integer> driftingInRange = readOnlyTransactionTemplate.execute(status -> driftingUserIds(
+                    userOrderSummaryRepository.retrieveSummaries(from, to, false), userOrderSummaryRepository.summarizeOrders(from, to)));
+            drifting.addAll(driftingInRange);
+            if (repairDrift && !driftingInRange.isEmpty()) {
+                rebuildRange(from, to);
+            }
+        }
+        driftingUsers.set(drifting.size());
+        if (!drifting.isEmpty()) {
+            log.warn("Order summary of {} users disagrees with their orders{}, e.g. users {}", drifting.size(),
+                    repairDrift ? " and was rebuilt" : "", drifting.subList(0, Math.min(LOGGED_DRIFTING_USERS, drifting.size())));
+        }
+        return drifting.size();
+    }
+
+    private int rebuildRange(int fromUserId, int toUserId) {
+        int rebuilt = transactionTemplate.execute(status -> {
+            Map<Integer, UserOrderSummary> stored = userOrderSummaryRepository.retrieveSummaries(fromUserId, toUserId, true);
+            Map<Integer, UserOrderSummary> recomputed = userOrderSummaryRepository.summarizeOrders(fromUserId, toUserId);
+            stored.keySet().forEach(userId -> recomputed.putIfAbsent(userId, UserOrderSummary.empty(userId)));
+            userOrderSummaryRepository.replaceSummaries(recomputed.values());
+            return recomputed.size();
+        });
+        rebuiltUsers.increment(rebuilt);
+        return rebuilt;
+    }
+
+    private int toUserId(long fromUserId) {
+        return (int) Math.min(Integer.MAX_VALUE, fromUserId + batchUsers - 1);
+    }
+
+    private static List<Integer> driftingUserIds(Map<Integer, UserOrderSummary> stored, Map<Integer, UserOrderSummary> recomputed) {
+        List<Integer> drifting = new ArrayList<>();
+        TreeSet<Integer> userIds = new TreeSet<>(stored.keySet());
+        userIds.addAll(recomputed.keySet());
+        for (int userId : userIds) {
+            if (!isSameSummary(stored.getOrDefault(userId, UserOrderSummary.empty(userId)),
+                    recomputed.getOrDefault(userId, UserOrderSummary.empty(userId)))) {
+                drifting.add(userId);
+            }
+        }
+        return drifting;
+    }
+
+    private static boolean isSameSummary(UserOrderSummary stored, UserOrderSummary recomputed) {
+        return stored.getOpenCarts() == recomputed.getOpenCarts()
+                && stored.getApprovedOrders() == recomputed.getApprovedOrders()
+                && stored.getLifetimeValue().compareTo(recomputed.getLifetimeValue()) == 0;
+    }
+}
@@ -1,18 +1,151 @@
 package com.retailhub.ordermanagementservice.util;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out order ids from blocks reserved in the {@code order_id_sequence} table.
+ * A block is reserved with an update and a read of the new bound in a transaction of its own, so
+ * ids stay unique across nodes and restarts; ids inside a block are handed out from memory without
+ * locking.
+ * <p>
+ * Reserving a block needs a connection of its own, so it must not happen while the calling thread
+ * holds one for an open transaction: with every pooled connection held by such a caller, the
+ * reservation would wait for the pool forever. Writes take their ids with
+ * {@link #leaseOrderIds(int)} before opening their transaction, and a reservation attempted inside
+ * one fails fast instead.
+ */
+@Slf4j
+@Component
 public class OrderIdGenerator {
 
-    private static AtomicInteger currentId = new AtomicInteger(1);
+    private static final String ORDER_ID_SEQUENCE_NAME = "order_id";
+    private static final String RESERVE_ORDER_ID_BLOCK = "UPDATE order_id_sequence SET next_value = next_value + :blockSize " +
+            "WHERE sequence_name = :sequenceName AND next_value <= :maxNextValue";
+    private static final String RETRIEVE_NEXT_ORDER_ID = "SELECT next_value FROM order_id_sequence WHERE sequence_name = :sequenceName";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final AtomicReference<OrderIdBlock> currentBlock = new AtomicReference<>(OrderIdBlock.EXHAUSTED);
+    private final Queue<Integer> releasedOrderIds = new ConcurrentLinkedQueue<>();
 
-    public static int generateOrderId() {
-        int orderId = currentId.getAndIncrement();
-        if (orderId > 9999) {
-            currentId.set(1);  // Reset to 1 when it reaches 9999
-            orderId = 1;       // Reset orderId as well
+    public OrderIdGenerator(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            @Value("${order.id.block-size:1000}") int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Order id block size must be positive : " + blockSize);
         }
-        return orderId;
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = blockSize;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
-}
 
+    public int generateOrderId() {
+        Integer releasedOrderId = releasedOrderIds.poll();
+        if (releasedOrderId != null) {
+            return releasedOrderId;
+        }
+        while (true) {
+            OrderIdBlock block = currentBlock.get();
+            long orderId = block.nextOrderId();
+            if (orderId != OrderIdBlock.NO_ID_LEFT) {
+                return (int) orderId;
+            }
+            reserveBlock(block);
+        }
+    }
+
+    /**
+     * Takes up to {@code count} ids for a transaction that is about to open, reserving blocks now if
+     * needed. Ids the transaction does not use go back to this generator when the lease is closed.
+     */
+    public OrderIdLease leaseOrderIds(int count) {
+        Deque<Integer> orderIds = new ArrayDeque<>(count);
+        for (int i = 0; i < count; i++) {
+            orderIds.add(generateOrderId());
+        }
+        return new OrderIdLease(orderIds);
+    }
+
+    private synchronized void reserveBlock(OrderIdBlock exhaustedBlock) {
+        if (currentBlock.get() != exhaustedBlock) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Order ids must be leased before the transaction that uses them opens");
+        }
+        Long upperBound = transactionTemplate.execute(status -> reserveUpperBound());
+        currentBlock.set(new OrderIdBlock(upperBound - blockSize, upperBound));
+        log.info("Reserved order ids [{}, {})", upperBound - blockSize, upperBound);
+    }
+
+    private long reserveUpperBound() {
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
+        parameterSource.addValue("sequenceName", ORDER_ID_SEQUENCE_NAME);
+        parameterSource.addValue("blockSize", blockSize);
+        parameterSource.addValue("maxNextValue", (long) Integer.MAX_VALUE + 1 - blockSize);
+        int updatedRows = jdbcTemplate.update(RESERVE_ORDER_ID_BLOCK, parameterSource);
+        if (updatedRows == 0) {
+            throw new IllegalStateException("Order id sequence is missing or exhausted : " + ORDER_ID_SEQUENCE_NAME);
+        }
+        return jdbcTemplate.queryForObject(RETRIEVE_NEXT_ORDER_ID, parameterSource, Long.class);
+    }
+
+    /**
+     * Ids leased to one transaction. Closing the lease returns the ids that were not taken.
+     */
+    public final class OrderIdLease implements AutoCloseable {
+        private final Deque<Integer> orderIds;
+
+        private OrderIdLease(Deque<Integer> orderIds) {
+            this.orderIds = orderIds;
+        }
+
+        public int nextOrderId() {
+            Integer orderId = orderIds.poll();
+            if (orderId == null) {
+                throw new IllegalStateException("Order id lease is used up");
+            }
+            return orderId;
+        }
+
+        @Override
+        public void close() {
+            releasedOrderIds.addAll(orderIds);
+            orderIds.clear();
+        }
+    }
+
+    private static final class OrderIdBlock {
+        private static final long NO_ID_LEFT = -1;
+        private static final OrderIdBlock EXHAUSTED = new OrderIdBlock(0, 0);
+
+        private final AtomicLong nextId;
+        private final long upperBound;
+
+        private OrderIdBlock(long firstId, long upperBound) {
+            this.nextId = new AtomicLong(firstId);
+            this.upperBound = upperBound;
+        }
+
+        private long nextOrderId() {
+            long orderId = nextId.getAndIncrement();
+            return orderId < upperBound ? orderId : NO_ID_LEFT;
+        }
+    }
+}
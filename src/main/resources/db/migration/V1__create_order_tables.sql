@@ -0,0 +1,28 @@
+CREATE TABLE IF NOT EXISTS orders (
+    order_id          INT            NOT NULL,
+    user_id           INT            NOT NULL,
+    total_order_value DECIMAL(19, 2),
+    order_status      VARCHAR(20)    NOT NULL,
+    PRIMARY KEY (order_id)
+);
+
+-- (order_id, product_id) is the conflict key of the add-to-cart upsert
+CREATE TABLE IF NOT EXISTS order_details (
+    order_id      INT            NOT NULL,
+    product_id    INT            NOT NULL,
+    product_name  VARCHAR(255),
+    product_price DECIMAL(19, 2),
+    quantity      INT            NOT NULL,
+    PRIMARY KEY (order_id, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS order_id_sequence (
+    sequence_name VARCHAR(64) NOT NULL,
+    next_value    BIGINT      NOT NULL,
+    PRIMARY KEY (sequence_name)
+);
+
+-- start above every id already issued, including those of the previous in-memory generator
+INSERT INTO order_id_sequence (sequence_name, next_value)
+SELECT 'order_id', GREATEST(10000, (SELECT COALESCE(MAX(order_id), 0) + 1 FROM orders)) FROM DUAL
+WHERE NOT EXISTS (SELECT 1 FROM order_id_sequence WHERE sequence_name = 'order_id');
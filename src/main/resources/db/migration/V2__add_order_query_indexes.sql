@@ -0,0 +1,5 @@
+-- cart reads: WHERE user_id = ? AND order_status = ?
+CREATE INDEX idx_orders_user_status ON orders (user_id, order_status);
+
+-- order history and keyset pages: WHERE user_id = ? [AND order_id > ?] ORDER BY order_id
+CREATE INDEX idx_orders_user_order ON orders (user_id, order_id);
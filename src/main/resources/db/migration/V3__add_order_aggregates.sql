@@ -0,0 +1,8 @@
+ALTER TABLE orders ADD COLUMN line_count INT NOT NULL DEFAULT 0;
+ALTER TABLE orders ADD COLUMN total_quantity INT NOT NULL DEFAULT 0;
+
+-- total_order_value is computed from the lines from now on, so existing orders are recomputed too
+UPDATE orders SET
+    line_count = (SELECT COUNT(*) FROM order_details d WHERE d.order_id = orders.order_id AND d.quantity > 0),
+    total_quantity = (SELECT COALESCE(SUM(d.quantity), 0) FROM order_details d WHERE d.order_id = orders.order_id),
+    total_order_value = (SELECT COALESCE(SUM(d.product_price * d.quantity), 0) FROM order_details d WHERE d.order_id = orders.order_id);
@@ -0,0 +1,7 @@
+-- bumped in every transaction that changes one of the user's orders; it is the ETag of the user's
+-- cart and order reads, and a user without a row is at version 0
+CREATE TABLE IF NOT EXISTS user_order_version (
+    user_id INT    NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (user_id)
+);
@@ -0,0 +1,9 @@
+-- order_status holds the one-character code of OrderStatus: D(raft), A(pproved), C(ancelled)
+UPDATE orders SET order_status = CASE order_status
+    WHEN 'DRAFT' THEN 'D'
+    WHEN 'APPROVED' THEN 'A'
+    WHEN 'CANCELLED' THEN 'C'
+    ELSE order_status END;
+
+ALTER TABLE orders MODIFY COLUMN order_status CHAR(1) NOT NULL;
+ALTER TABLE orders ADD CONSTRAINT chk_orders_status CHECK (order_status IN ('D', 'A', 'C'));
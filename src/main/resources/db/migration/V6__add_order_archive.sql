@@ -0,0 +1,29 @@
+-- set when an order leaves DRAFT; the archiver moves orders closed long enough ago out of the hot tables
+ALTER TABLE orders ADD COLUMN closed_at TIMESTAMP NULL;
+UPDATE orders SET closed_at = CURRENT_TIMESTAMP WHERE order_status IN ('A', 'C');
+
+-- archiver: WHERE closed_at < ? ORDER BY closed_at LIMIT ?
+CREATE INDEX idx_orders_closed_at ON orders (closed_at);
+
+CREATE TABLE IF NOT EXISTS orders_archive (
+    order_id          INT            NOT NULL,
+    user_id           INT            NOT NULL,
+    total_order_value DECIMAL(19, 2),
+    order_status      CHAR(1)        NOT NULL,
+    line_count        INT            NOT NULL,
+    total_quantity    INT            NOT NULL,
+    closed_at         TIMESTAMP      NULL,
+    PRIMARY KEY (order_id)
+);
+
+-- order history: WHERE user_id = ?
+CREATE INDEX idx_orders_archive_user_order ON orders_archive (user_id, order_id);
+
+CREATE TABLE IF NOT EXISTS order_details_archive (
+    order_id      INT            NOT NULL,
+    product_id    INT            NOT NULL,
+    product_name  VARCHAR(255),
+    product_price DECIMAL(19, 2),
+    quantity      INT            NOT NULL,
+    PRIMARY KEY (order_id, product_id)
+);
@@ -0,0 +1,11 @@
+-- transactional outbox: one row per order mutation, written in the mutation's transaction; the
+-- change feed pages through it by event_id
+CREATE TABLE IF NOT EXISTS order_change_events (
+    event_id     BIGINT      NOT NULL AUTO_INCREMENT,
+    order_id     INT         NOT NULL,
+    user_id      INT         NOT NULL,
+    change_type  VARCHAR(16) NOT NULL,
+    order_status CHAR(1)     NOT NULL,
+    created_at   TIMESTAMP(3) NOT NULL,
+    PRIMARY KEY (event_id)
+);
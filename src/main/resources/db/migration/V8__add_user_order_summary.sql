@@ -0,0 +1,19 @@
+-- per-user counts and totals for the account page, kept up to date by the transactions that change
+-- the user's orders; covers live and archived orders, so archiving leaves it unchanged
+CREATE TABLE IF NOT EXISTS user_order_summary (
+    user_id         INT            NOT NULL,
+    open_carts      INT            NOT NULL,
+    approved_orders INT            NOT NULL,
+    lifetime_value  DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (user_id)
+);
+
+INSERT INTO user_order_summary (user_id, open_carts, approved_orders, lifetime_value)
+SELECT user_id,
+       SUM(CASE WHEN order_status = 'D' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN order_status = 'A' THEN 1 ELSE 0 END),
+       COALESCE(SUM(CASE WHEN order_status = 'A' THEN total_order_value ELSE 0 END), 0)
+FROM (SELECT user_id, order_status, total_order_value FROM orders
+      UNION ALL
+      SELECT user_id, order_status, total_order_value FROM orders_archive) all_orders
+GROUP BY user_id;
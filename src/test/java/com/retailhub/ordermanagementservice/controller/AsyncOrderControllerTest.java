@@ -0,0 +1,75 @@
+package com.retailhub.ordermanagementservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailhub.ordermanagementservice.executor.OrderRequestExecutor;
+import com.retailhub.ordermanagementservice.support.OrderControllerFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CountDownLatch;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AsyncOrderControllerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ObjectMapper objectMapper;
+    private OrderRequestExecutor orderRequestExecutor;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        OrderControllerFixture fixture = new OrderControllerFixture(500);
+        orderRequestExecutor = new OrderRequestExecutor(fixture.services.meterRegistry, false, 1, 0, 5_000, 1, 0, 5_000);
+        mockMvc = fixture.asyncMockMvc(orderRequestExecutor);
+        objectMapper = fixture.objectMapper;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        orderRequestExecutor.shutdown();
+    }
+
+    @Test
+    void readsAreAnsweredWith503WhileTheReadBulkheadIsFull() throws Exception {
+        orderRequestExecutor.read(this::blockUntilReleased);
+
+        MvcResult result = mockMvc.perform(get("/order/summary").param("userId", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void writesAreAdmittedWhileTheReadBulkheadIsFull() throws Exception {
+        orderRequestExecutor.read(this::blockUntilReleased);
+
+        MvcResult result = mockMvc.perform(post("/order/add-to-cart")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(cartRequest(0, 1, 1, 1))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isCreated());
+    }
+
+    private String blockUntilReleased() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
@@ -0,0 +1,171 @@
+package com.retailhub.ordermanagementservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailhub.ordermanagementservice.metrics.StatementStatistics;
+import com.retailhub.ordermanagementservice.service.OrderService;
+import com.retailhub.ordermanagementservice.support.OrderControllerFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartLine;
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OrderControllerTest {
+
+    private static final int USER_ID = 81;
+    private static final int MAX_HISTORY_PAGE_SIZE = 3;
+
+    private OrderService orderService;
+    private ObjectMapper objectMapper;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        OrderControllerFixture fixture = new OrderControllerFixture(MAX_HISTORY_PAGE_SIZE);
+        orderService = fixture.services.orderService;
+        objectMapper = fixture.objectMapper;
+        mockMvc = fixture.mockMvc();
+    }
+
+    @Test
+    void readsAreAnsweredOnTheServletThread() throws Exception {
+        mockMvc.perform(get("/order/summary").param("userId", String.valueOf(USER_ID)))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void pageContinuesFromTheCursorOfThePreviousPage() throws Exception {
+        List<Integer> orderIds = addOrders(3);
+
+        mockMvc.perform(get("/order/details/page").param("userId", String.valueOf(USER_ID)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[*].orderId", contains(orderIds.get(0), orderIds.get(1))))
+                .andExpect(jsonPath("$.nextCursor").value(orderIds.get(1)));
+        mockMvc.perform(get("/order/details/page").param("userId", String.valueOf(USER_ID)).param("limit", "2")
+                        .param("after", String.valueOf(orderIds.get(1))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[*].orderId", contains(orderIds.get(2))))
+                .andExpect(jsonPath("$.orders[0].cartLineDetailsDTOList", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    void pageSizeIsCappedAtTheMaximumAndRaisedToOne() throws Exception {
+        List<Integer> orderIds = addOrders(MAX_HISTORY_PAGE_SIZE + 1);
+
+        mockMvc.perform(get("/order/details/page").param("userId", String.valueOf(USER_ID)).param("limit", "1000"))
+                .andExpect(jsonPath("$.orders", hasSize(MAX_HISTORY_PAGE_SIZE)))
+                .andExpect(jsonPath("$.nextCursor").value(orderIds.get(MAX_HISTORY_PAGE_SIZE - 1)));
+        mockMvc.perform(get("/order/details/page").param("userId", String.valueOf(USER_ID)).param("limit", "0"))
+                .andExpect(jsonPath("$.orders", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").value(orderIds.get(0)));
+    }
+
+    @Test
+    void streamWritesTheWholeHistoryAsOneJsonArray() throws Exception {
+        addOrders(2);
+        orderService.addProductsToCart(cartRequest(0, USER_ID, cartLine(7, 1), cartLine(8, 2)));
+
+        MvcResult result = mockMvc.perform(get("/order/details/stream").param("userId", String.valueOf(USER_ID)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(objectMapper.writeValueAsString(orderService.retrieveOrderDetails(USER_ID))));
+    }
+
+    @Test
+    void streamOfAUserWithoutOrdersIsAnEmptyArray() throws Exception {
+        MvcResult result = mockMvc.perform(get("/order/details/stream").param("userId", String.valueOf(USER_ID)))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]", true));
+    }
+
+    @Test
+    void cartDetailsCarryTheVersionAsETagAndAreNotModifiedUntilAWrite() throws Exception {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        String eTag = mockMvc.perform(get("/order/cart-details").param("userId", String.valueOf(USER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, OrderVersionETags.eTagOf(orderService.retrieveOrderVersion(USER_ID))))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/order/cart-details").param("userId", String.valueOf(USER_ID)).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        orderService.addProductsToCart(cartRequest(orderId, USER_ID, 2, 1));
+
+        mockMvc.perform(get("/order/cart-details").param("userId", String.valueOf(USER_ID)).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$[0].cartLineDetailsDTOList", hasSize(2)));
+    }
+
+    @Test
+    void notModifiedDetailsCostOneVersionReadWithoutLoadingOrders() throws Exception {
+        addOrders(2);
+        String eTag = OrderVersionETags.eTagOf(orderService.retrieveOrderVersion(USER_ID));
+
+        StatementStatistics statementStatistics = new StatementStatistics();
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+            mockMvc.perform(get("/order/details").param("userId", String.valueOf(USER_ID)).header(HttpHeaders.IF_NONE_MATCH, "W/" + eTag))
+                    .andExpect(status().isNotModified());
+        }
+
+        assertThat(statementStatistics.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void detailsETagChangesAfterEveryWrite() throws Exception {
+        int orderId = addOrders(1).get(0);
+        String before = detailsETag();
+
+        orderService.deleteOrderFromCart(orderId, 1);
+        String afterDelete = detailsETag();
+        orderService.submitApprovedOrder(cartRequest(addOrders(1).get(0), USER_ID, 1, 1));
+        String afterSubmit = detailsETag();
+
+        assertThat(List.of(before, afterDelete, afterSubmit)).doesNotHaveDuplicates();
+    }
+
+    private String detailsETag() throws Exception {
+        return mockMvc.perform(get("/order/details").param("userId", String.valueOf(USER_ID)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private List<Integer> addOrders(int count) {
+        List<Integer> orderIds = new ArrayList<>();
+        for (int productId = 1; productId <= count; productId++) {
+            orderIds.add(orderService.addProductsToCart(cartRequest(0, USER_ID, productId, 1)));
+        }
+        orderIds.sort(null);
+        return orderIds;
+    }
+}
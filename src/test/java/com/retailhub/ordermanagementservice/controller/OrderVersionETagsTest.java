@@ -0,0 +1,58 @@
+package com.retailhub.ordermanagementservice.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderVersionETagsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderVersionETags orderVersionETags = new OrderVersionETags(meterRegistry);
+
+    @Test
+    void eTagIsTheQuotedVersion() {
+        assertThat(OrderVersionETags.eTagOf(7)).isEqualTo("\"7\"");
+    }
+
+    @Test
+    void strongAndWeakTagsOfTheCurrentVersionMatch() {
+        assertThat(orderVersionETags.isNotModified("details", "\"7\"", 7)).isTrue();
+        assertThat(orderVersionETags.isNotModified("details", "W/\"7\"", 7)).isTrue();
+    }
+
+    @Test
+    void tagOfAnotherVersionDoesNotMatch() {
+        assertThat(orderVersionETags.isNotModified("details", "\"6\"", 7)).isFalse();
+        assertThat(orderVersionETags.isNotModified("details", "7", 7)).isFalse();
+        assertThat(orderVersionETags.isNotModified("details", "\"77\"", 7)).isFalse();
+    }
+
+    @Test
+    void anyTagOfAListMayMatch() {
+        assertThat(orderVersionETags.isNotModified("details", "\"5\", W/\"7\" ,\"9\"", 7)).isTrue();
+        assertThat(orderVersionETags.isNotModified("details", "\"5\",\"6\"", 7)).isFalse();
+    }
+
+    @Test
+    void wildcardMatchesAnyVersion() {
+        assertThat(orderVersionETags.isNotModified("details", "*", 7)).isTrue();
+    }
+
+    @Test
+    void outcomesAreCountedPerResource() {
+        orderVersionETags.isNotModified("cart-details", "\"7\"", 7);
+        orderVersionETags.isNotModified("cart-details", "\"6\"", 7);
+        orderVersionETags.recordUnconditional("cart-details");
+        orderVersionETags.recordUnconditional("details");
+
+        assertThat(requests("cart-details", "hit")).isEqualTo(1);
+        assertThat(requests("cart-details", "miss")).isEqualTo(1);
+        assertThat(requests("cart-details", "none")).isEqualTo(1);
+        assertThat(requests("details", "none")).isEqualTo(1);
+    }
+
+    private double requests(String resource, String result) {
+        return meterRegistry.get("order.etag.requests").tag("resource", resource).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,84 @@
+package com.retailhub.ordermanagementservice.datasource;
+
+import com.retailhub.ordermanagementservice.support.H2TestDatabase;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private static final int USER_ID = 41;
+    private static final String SELECT_VERSION = "SELECT version FROM user_order_version WHERE user_id = ?";
+
+    private DataSource primaryDataSource;
+    private DataSource replicaDataSource;
+    private DataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        primaryDataSource = H2TestDatabase.create();
+        replicaDataSource = H2TestDatabase.create();
+        routingDataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndEverythingElseToThePrimary() {
+        new JdbcTemplate(primaryDataSource).update("INSERT INTO user_order_version (user_id, version) VALUES (?, 7)", USER_ID);
+        new JdbcTemplate(replicaDataSource).update("INSERT INTO user_order_version (user_id, version) VALUES (?, 3)", USER_ID);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routingDataSource);
+        TransactionTemplate readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+
+        assertThat(readOnlyTransactionTemplate.execute(status -> jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, USER_ID))).isEqualTo(3);
+        assertThat(new TransactionTemplate(transactionManager).execute(status -> jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, USER_ID))).isEqualTo(7);
+        assertThat(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, USER_ID)).isEqualTo(7);
+    }
+
+    @Test
+    void writerReadsFromThePrimaryWithinTheReadYourWritesWindow() {
+        OrderServiceFixture fixture = new OrderServiceFixture(routingDataSource, true, 60_000);
+
+        fixture.orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+
+        assertThat(fixture.orderService.retrieveCartDetailsByDraftStatus(USER_ID)).hasSize(1);
+        assertThat(fixture.orderService.retrieveOrderVersion(USER_ID)).isEqualTo(1);
+        assertThat(fixture.cartDetailsCache.statistics().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void withoutAWindowReadsGoToTheReplica() {
+        OrderServiceFixture fixture = new OrderServiceFixture(routingDataSource, true, 0);
+
+        fixture.orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+
+        assertThat(fixture.orderService.retrieveCartDetailsByDraftStatus(USER_ID)).isEmpty();
+        assertThat(fixture.orderService.retrieveOrderVersion(USER_ID)).isZero();
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject(SELECT_VERSION, Long.class, USER_ID)).isEqualTo(1);
+        assertThat(fixture.cartDetailsCache.statistics().getMissCount()).isZero();
+    }
+
+    @Test
+    void onlyACommittedWriteOpensTheWindow() {
+        ReadYourWritesWindow readYourWritesWindow = new ReadYourWritesWindow(true, 60_000, 10);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(primaryDataSource));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            readYourWritesWindow.recordWrite(USER_ID);
+            status.setRollbackOnly();
+        });
+        assertThat(readYourWritesWindow.readsFromReplica(USER_ID)).isTrue();
+
+        transactionTemplate.executeWithoutResult(status -> readYourWritesWindow.recordWrite(USER_ID));
+        assertThat(readYourWritesWindow.readsFromReplica(USER_ID)).isFalse();
+    }
+}
@@ -0,0 +1,59 @@
+package com.retailhub.ordermanagementservice.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The routing as the application wires it: the Boot-configured {@link JpaTransactionManager}
+ * prepares its connection when the transaction begins, before the read-only flag is published, so
+ * this checks the lazy proxy still defers the choice of pool to the first statement.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "order.datasource.replica.jdbc-url=jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "order.datasource.replica.username=sa",
+        "order.datasource.replica.password=",
+        "order.archive.enabled=false",
+        "order.summary.check.enabled=false"
+})
+class ReplicaDataSourceConfigurationTest {
+
+    private static final String SELECT_DATABASE = "SELECT DATABASE()";
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReadYourWritesWindow readYourWritesWindow;
+
+    @Test
+    void readOnlyTransactionsOfTheApplicationGoToTheReplica() {
+        assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+        TransactionTemplate readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+
+        assertThat(readOnlyTransactionTemplate.execute(status -> jdbcTemplate.queryForObject(SELECT_DATABASE, String.class)))
+                .isEqualToIgnoringCase("replica");
+        assertThat(new TransactionTemplate(transactionManager).execute(status -> jdbcTemplate.queryForObject(SELECT_DATABASE, String.class)))
+                .isEqualToIgnoringCase("primary");
+        assertThat(jdbcTemplate.queryForObject(SELECT_DATABASE, String.class)).isEqualToIgnoringCase("primary");
+    }
+
+    @Test
+    void readsOutsideTheWindowAreKnownToComeFromTheReplica() {
+        assertThat(readYourWritesWindow.readsFromReplica(1)).isTrue();
+    }
+}
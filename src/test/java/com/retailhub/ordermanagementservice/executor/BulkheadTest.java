@@ -0,0 +1,120 @@
+package com.retailhub.ordermanagementservice.executor;
+
+import com.retailhub.ordermanagementservice.metrics.StatementStatistics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private Bulkhead bulkhead;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void workBeyondThreadsAndQueueIsRejected() {
+        bulkhead = new Bulkhead("test", 1, 1, 5_000, false, new SimpleMeterRegistry());
+        CompletableFuture<String> running = bulkhead.submit(this::blockUntilReleased);
+        CompletableFuture<String> queued = bulkhead.submit(this::blockUntilReleased);
+
+        CompletableFuture<String> rejected = bulkhead.submit(() -> "never runs");
+
+        assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(BulkheadFullException.class);
+        release.countDown();
+        assertThat(running.join()).isEqualTo("released");
+        assertThat(queued.join()).isEqualTo("released");
+    }
+
+    @Test
+    void slowWorkTimesOut() {
+        bulkhead = new Bulkhead("test", 1, 1, 50, false, new SimpleMeterRegistry());
+
+        CompletableFuture<String> slow = bulkhead.submit(this::blockUntilReleased);
+
+        assertThatThrownBy(slow::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void timedOutWorkIsInterrupted() throws InterruptedException {
+        bulkhead = new Bulkhead("test", 1, 0, 50, false, new SimpleMeterRegistry());
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> slow = bulkhead.submit(() -> {
+            try {
+                release.await();
+                return "released";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return "interrupted";
+            }
+        });
+
+        assertThatThrownBy(slow::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void plainExecutionIsBoundedAndTimedOutLikeSubmittedWork() throws InterruptedException {
+        bulkhead = new Bulkhead("test", 1, 0, 50, false, new SimpleMeterRegistry());
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        bulkhead.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+
+        assertThatThrownBy(() -> bulkhead.execute(() -> {
+        })).isInstanceOf(BulkheadFullException.class);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void timedOutWorkThatNeverStartedGivesBackItsAdmission() {
+        bulkhead = new Bulkhead("test", 1, 1, 50, false, new SimpleMeterRegistry());
+        CompletableFuture<String> running = bulkhead.submit(this::blockUntilReleased);
+        CompletableFuture<String> queued = bulkhead.submit(() -> "never runs");
+
+        assertThatThrownBy(queued::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(TimeoutException.class);
+        assertThatThrownBy(running::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(bulkhead.submit(() -> "admitted").join()).isEqualTo("admitted");
+    }
+
+    @Test
+    void statementStatisticsFollowTheWork() {
+        bulkhead = new Bulkhead("test", 1, 1, 5_000, true, new SimpleMeterRegistry());
+        StatementStatistics statementStatistics = new StatementStatistics();
+
+        StatementStatistics seenByWorker;
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+            seenByWorker = bulkhead.submit(StatementStatistics::current).join();
+        }
+
+        assertThat(seenByWorker).isSameAs(statementStatistics);
+    }
+
+    private String blockUntilReleased() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
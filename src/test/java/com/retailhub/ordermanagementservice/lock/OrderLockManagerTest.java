@@ -0,0 +1,49 @@
+package com.retailhub.ordermanagementservice.lock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderLockManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderLockManager orderLockManager = new OrderLockManager(meterRegistry, 16, 200);
+
+    @Test
+    void sameOrderWaitsWhileOtherOrdersProceed() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> holder = CompletableFuture.supplyAsync(() -> orderLockManager.withOrderLock(10_001, () -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }));
+        holding.await();
+
+        assertThat(orderLockManager.withOrderLock(10_002, () -> "other order")).isEqualTo("other order");
+        assertThatThrownBy(() -> orderLockManager.withOrderLock(10_001, () -> "same order"))
+                .isInstanceOf(OrderLockTimeoutException.class);
+        assertThatThrownBy(() -> orderLockManager.withOrderLocks(List.of(10_002, 10_001), () -> "both orders"))
+                .isInstanceOf(OrderLockTimeoutException.class);
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertThat(orderLockManager.withOrderLocks(List.of(10_002, 10_001), () -> "both orders")).isEqualTo("both orders");
+        assertThat(meterRegistry.get("order.lock.wait").tag("outcome", "timed.out").timer().count()).isEqualTo(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartLine;
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryMetricsTest {
+
+    @Test
+    void eachNamedQueryIsTimedWithItsRowCounts() {
+        OrderServiceFixture fixture = new OrderServiceFixture();
+        MeterRegistry meterRegistry = fixture.meterRegistry;
+        fixture.orderService.addProductsToCart(cartRequest(0, 7, cartLine(1, 1), cartLine(2, 1)));
+        int orderId = fixture.orderService.retrieveCartDetailsByDraftStatus(7).get(0).getOrderId();
+
+        fixture.orderDetailsRepository.retrieveOrderDetailsByOrderId(orderId);
+
+        assertThat(meterRegistry.get("order.db.query").tag("query", "RETRIEVE_ORDER_DETAILS_BY_ORDER_ID").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("order.db.rows.returned").tag("query", "RETRIEVE_ORDER_DETAILS_BY_ORDER_ID").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("order.db.rows.affected").tag("query", "INSERT_ORDER_DETAILS").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("order.db.rows.returned").tag("query", "RETRIEVE_ORDER_DETAILS_BY_ORDER_IDS").counter().count())
+                .isEqualTo(2);
+    }
+}
@@ -0,0 +1,105 @@
+package com.retailhub.ordermanagementservice.metrics;
+
+import com.retailhub.ordermanagementservice.service.OrderService;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import com.retailhub.ordermanagementservice.util.OrderIdGenerator;
+import org.assertj.core.api.Condition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails when a flow starts making more round trips than its budget in statement-budgets.properties.
+ */
+class StatementBudgetTest {
+
+    private static final int USER_ID = 21;
+
+    private OrderServiceFixture fixture;
+    private OrderService orderService;
+    private Properties budgets;
+    private int orderId;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+        budgets = new Properties();
+        try (InputStream budgetsStream = getClass().getResourceAsStream("/statement-budgets.properties")) {
+            budgets.load(budgetsStream);
+        }
+        orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+        orderService.addProductsToCart(cartRequest(orderIdOfDraft(), USER_ID, 2, 1));
+        orderId = orderIdOfDraft();
+    }
+
+    @Test
+    void writeFlowsStayWithinTheirBudgets() {
+        assertWithinBudget("add-to-cart.new-order", () -> orderService.addProductsToCart(cartRequest(0, USER_ID, 3, 1)));
+        assertWithinBudget("add-to-cart.existing-draft", () -> orderService.addProductsToCart(cartRequest(orderId, USER_ID, 1, 1)));
+        assertWithinBudget("delete-order", () -> orderService.deleteOrderFromCart(orderId, 1));
+        assertWithinBudget("submit-order", () -> orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 2, 1)));
+    }
+
+    @Test
+    void readFlowsStayWithinTheirBudgets() {
+        fixture.cartDetailsCache.evict(USER_ID);
+        assertWithinBudget("cart-details", () -> orderService.retrieveCartDetailsByDraftStatus(USER_ID));
+        assertWithinBudget("cart-details.cached", () -> orderService.retrieveCartDetailsByDraftStatus(USER_ID));
+        assertWithinBudget("cart-details.version", () -> orderService.retrieveOrderVersion(USER_ID));
+        assertWithinBudget("details", () -> orderService.retrieveVersionedOrderDetails(USER_ID));
+        assertWithinBudget("details.page", () -> orderService.retrieveOrderDetailsPage(USER_ID, 0, 100));
+        assertWithinBudget("summary", () -> orderService.retrieveOrderSummary(USER_ID));
+        assertWithinBudget("details.stream", () -> orderService.streamOrderDetails(USER_ID, cartDetailsDTO -> {
+        }));
+    }
+
+    @Test
+    void repeatedQueriesAreReportedAsSuspects() {
+        StatementStatistics statementStatistics = new StatementStatistics();
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+            for (int i = 0; i < 3; i++) {
+                orderService.retrieveOrderDetails(USER_ID);
+            }
+        }
+
+        assertThat(statementStatistics.getRepeatedQueries(3))
+                .hasSize(2)
+                .containsValues(3, 3)
+                .hasKeySatisfying(new Condition<>(sql -> sql.contains("FROM orders"), "header query"))
+                .hasKeySatisfying(new Condition<>(sql -> sql.contains("FROM order_details"), "line query"));
+        assertThat(StatementStatistics.current()).isNull();
+    }
+
+    @Test
+    void statementsOutsideTheRepositoriesAreCounted() {
+        OrderIdGenerator unbufferedGenerator = new OrderIdGenerator(fixture.jdbcTemplate, fixture.transactionManager, 1);
+        StatementStatistics statementStatistics = new StatementStatistics();
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+            unbufferedGenerator.generateOrderId();
+        }
+
+        assertThat(statementStatistics.getStatementCount()).isEqualTo(2);
+    }
+
+    private void assertWithinBudget(String flow, Runnable action) {
+        StatementStatistics statementStatistics = new StatementStatistics();
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+            action.run();
+        }
+        int budget = Integer.parseInt(budgets.getProperty(flow));
+        assertThat(statementStatistics.getStatementCount())
+                .as("statements run by %s", flow)
+                .isLessThanOrEqualTo(budget);
+    }
+
+    private int orderIdOfDraft() {
+        return orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+    }
+}
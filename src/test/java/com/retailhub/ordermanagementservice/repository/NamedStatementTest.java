@@ -0,0 +1,48 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.support.H2TestDatabase;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NamedStatementTest {
+
+    private static final NamedStatement STATEMENT = NamedStatement.of(
+            "SELECT CAST(:left AS INT) - CAST(:right AS INT) + CAST(:left AS INT), CAST(:label AS VARCHAR(20))");
+
+    @Test
+    void replacesEachNameByAPlaceholder() {
+        assertThat(STATEMENT.sql()).isEqualTo("SELECT CAST(? AS INT) - CAST(? AS INT) + CAST(? AS INT), CAST(? AS VARCHAR(20))");
+    }
+
+    @Test
+    void bindsEveryPositionOfAName() throws SQLException {
+        try (Connection connection = H2TestDatabase.create().getConnection();
+             PreparedStatement ps = connection.prepareStatement(STATEMENT.sql())) {
+            STATEMENT.setInt(ps, "left", 10);
+            STATEMENT.setInt(ps, "right", 3);
+            STATEMENT.setString(ps, "label", "total");
+            try (ResultSet rs = ps.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getInt(1)).isEqualTo(17);
+                assertThat(rs.getString(2)).isEqualTo("total");
+            }
+        }
+    }
+
+    @Test
+    void rejectsANameTheStatementDoesNotDeclare() throws SQLException {
+        try (Connection connection = H2TestDatabase.create().getConnection();
+             PreparedStatement ps = connection.prepareStatement(STATEMENT.sql())) {
+            assertThatThrownBy(() -> STATEMENT.setInt(ps, "middle", 1))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining(":middle");
+        }
+    }
+}
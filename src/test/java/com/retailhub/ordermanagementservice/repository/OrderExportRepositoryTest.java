@@ -0,0 +1,117 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.model.OrderExportFilter;
+import com.retailhub.ordermanagementservice.model.OrderExportLine;
+import com.retailhub.ordermanagementservice.support.H2TestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderExportRepositoryTest {
+
+    private static final int FETCH_SIZE = 50;
+
+    private final List<ExecutedQuery> executedQueries = new ArrayList<>();
+    private OrderExportRepository orderExportRepository;
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new RecordingDataSource(H2TestDatabase.create());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO orders (order_id, user_id, total_order_value, order_status) VALUES (1, 7, 5.00, 'D'), (3, 7, 5.00, 'D')");
+        jdbcTemplate.update("INSERT INTO order_details (order_id, product_id, product_name, product_price, quantity) " +
+                "VALUES (1, 1, 'p', 5.00, 1), (3, 1, 'p', 5.00, 1)");
+        jdbcTemplate.update("INSERT INTO orders_archive (order_id, user_id, total_order_value, order_status, line_count, total_quantity) " +
+                "VALUES (2, 7, 10.00, 'A', 2, 2)");
+        jdbcTemplate.update("INSERT INTO order_details_archive (order_id, product_id, product_name, product_price, quantity) " +
+                "VALUES (2, 1, 'p', 5.00, 1), (2, 2, 'q', 5.00, 1)");
+        orderExportRepository = new OrderExportRepository(new NamedParameterJdbcTemplate(dataSource),
+                new QueryMetrics(new SimpleMeterRegistry()), FETCH_SIZE);
+        readOnlyTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @Test
+    void liveAndArchivedLinesAreReadThroughForwardOnlyCursorsAndMergedByOrderId() {
+        executedQueries.clear();
+        List<OrderExportLine> orderExportLines = new ArrayList<>();
+
+        readOnlyTransactionTemplate.executeWithoutResult(status -> orderExportRepository.streamOrderLines(
+                OrderExportFilter.builder().fromOrderId(0).toOrderId(Integer.MAX_VALUE).build(), orderExportLines::add));
+
+        assertThat(orderExportLines).extracting(OrderExportLine::getOrderId, OrderExportLine::getProductId)
+                .containsExactly(tuple(1, 1), tuple(2, 1), tuple(2, 2), tuple(3, 1));
+        assertThat(executedQueries).hasSize(2).allSatisfy(executedQuery -> {
+            assertThat(executedQuery.resultSetType()).isEqualTo(ResultSet.TYPE_FORWARD_ONLY);
+            assertThat(executedQuery.resultSetConcurrency()).isEqualTo(ResultSet.CONCUR_READ_ONLY);
+            assertThat(executedQuery.fetchSize()).isEqualTo(FETCH_SIZE);
+            assertThat(executedQuery.sql()).doesNotContainIgnoringCase("UNION");
+        });
+    }
+
+    private record ExecutedQuery(String sql, int resultSetType, int resultSetConcurrency, int fetchSize) {
+    }
+
+    /**
+     * Notes the cursor settings of every prepared query as it is executed.
+     */
+    private final class RecordingDataSource extends DelegatingDataSource {
+
+        private RecordingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = obtainTargetDataSource().getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (result instanceof PreparedStatement preparedStatement) {
+                            return recordingStatement(preparedStatement, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        private PreparedStatement recordingStatement(PreparedStatement preparedStatement, String sql) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("executeQuery")) {
+                            executedQueries.add(new ExecutedQuery(sql, preparedStatement.getResultSetType(),
+                                    preparedStatement.getResultSetConcurrency(), preparedStatement.getFetchSize()));
+                        }
+                        return invoke(preparedStatement, method, args);
+                    });
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
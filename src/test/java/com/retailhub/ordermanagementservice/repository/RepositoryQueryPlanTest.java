@@ -0,0 +1,121 @@
+package com.retailhub.ordermanagementservice.repository;
+
+import com.retailhub.ordermanagementservice.support.H2TestDatabase;
+import com.retailhub.ordermanagementservice.util.OrderIdGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs EXPLAIN for every SELECT, UPDATE and DELETE declared by the repositories and fails when
+ * H2 would answer it with a full table scan.
+ */
+class RepositoryQueryPlanTest {
+
+    private static final List<Class<?>> QUERY_OWNERS = List.of(
+            OrderHeaderRepository.class, OrderDetailsRepository.class, UserOrderVersionRepository.class, OrderArchiveRepository.class,
+            OrderChangeEventRepository.class, OrderExportRepository.class, UserOrderSummaryRepository.class,
+            OrderIdGenerator.class);
+
+    private static final Pattern NAMED_PARAMETER = Pattern.compile(":(\\w+)");
+
+    private static final Map<String, String> PARAMETER_LITERALS = Map.ofEntries(
+            Map.entry("orderId", "10042"),
+            Map.entry("orderIds", "10042, 10043"),
+            Map.entry("afterOrderId", "10000"),
+            Map.entry("fromOrderId", "10000"),
+            Map.entry("toOrderId", "10099"),
+            Map.entry("userId", "7"),
+            Map.entry("fromUserId", "0"),
+            Map.entry("toUserId", "9"),
+            Map.entry("productId", "3"),
+            Map.entry("quantity", "1"),
+            Map.entry("productPrice", "1.00"),
+            Map.entry("limit", "20"),
+            Map.entry("total", "10.00"),
+            Map.entry("orderStatus", "'D'"),
+            Map.entry("status", "'A'"),
+            Map.entry("expectedStatus", "'D'"),
+            Map.entry("draftStatus", "'D'"),
+            Map.entry("approvedStatus", "'A'"),
+            Map.entry("closedBefore", "TIMESTAMP '2024-01-01 00:00:00'"),
+            Map.entry("afterEventId", "100"),
+            Map.entry("changeType", "'CREATED'"),
+            Map.entry("sequenceName", "'order_id'"),
+            Map.entry("blockSize", "1000"),
+            Map.entry("maxNextValue", "2147482648"));
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void seedDatabase() {
+        jdbcTemplate = new JdbcTemplate(H2TestDatabase.create());
+        for (int orderId = 10000; orderId < 10500; orderId++) {
+            jdbcTemplate.update("INSERT INTO orders (order_id, user_id, total_order_value, order_status) VALUES (?, ?, 10.00, ?)",
+                    orderId, orderId % 50, orderId % 3 == 0 ? "D" : "A");
+            for (int productId = 1; productId <= 3; productId++) {
+                jdbcTemplate.update("INSERT INTO order_details (order_id, product_id, product_name, product_price, quantity) VALUES (?, ?, 'p', 1.00, 1)",
+                        orderId, productId);
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void repositoryQueryUsesAnIndex(String queryName, String sql) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + withLiterals(sql), String.class));
+
+        assertThat(plan).as(queryName + " plan").doesNotContainIgnoringCase("tableScan");
+    }
+
+    static Stream<Object[]> repositoryQueries() throws IllegalAccessException {
+        List<Object[]> queries = new ArrayList<>();
+        for (Class<?> queryOwner : QUERY_OWNERS) {
+            for (Field field : queryOwner.getDeclaredFields()) {
+                if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                String sql = (String) field.get(null);
+                if (sql.indexOf('?') >= 0) {
+                    // statements written with positional placeholders have no names to bind literals to
+                    continue;
+                }
+                String statement = sql.trim().toUpperCase(Locale.ROOT);
+                if (statement.startsWith("SELECT") || statement.startsWith("UPDATE") || statement.startsWith("DELETE")) {
+                    queries.add(new Object[]{queryOwner.getSimpleName() + "." + field.getName(), sql});
+                }
+            }
+        }
+        return queries.stream();
+    }
+
+    private static String withLiterals(String sql) {
+        Matcher matcher = NAMED_PARAMETER.matcher(sql);
+        StringBuilder boundSql = new StringBuilder();
+        while (matcher.find()) {
+            String literal = PARAMETER_LITERALS.get(matcher.group(1));
+            if (literal == null) {
+                fail("No literal configured for parameter :" + matcher.group(1) + " in " + sql);
+            }
+            matcher.appendReplacement(boundSql, Matcher.quoteReplacement(literal));
+        }
+        matcher.appendTail(boundSql);
+        return boundSql.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.model.BulkOrderResult;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartLine;
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkOrderServiceTest {
+
+    private OrderServiceFixture fixture;
+    private OrderService orderService;
+    private BulkOrderService bulkOrderService;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+        bulkOrderService = fixture.bulkOrderService;
+    }
+
+    @Test
+    void bulkAddToCartCreatesAndUpdatesCartsAcrossChunks() {
+        int existingOrderId = orderService.addProductsToCart(cartRequest(0, 41, 1, 1));
+
+        List<BulkOrderResult> results = bulkOrderService.addProductsToCarts(List.of(
+                cartRequest(existingOrderId, 41, 1, 2),
+                cartRequest(0, 42, 1, 1),
+                cartRequest(0, 43, 1, 1),
+                cartRequest(0, 44, 1, 1),
+                cartRequest(existingOrderId, 41, 2, 5)));
+
+        assertThat(results).extracting(BulkOrderResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results).allMatch(BulkOrderResult::isSuccess);
+        assertThat(results.get(0).getOrderId()).isEqualTo(existingOrderId);
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(41).get(0).getCartLineDetailsDTOList())
+                .extracting(CartLineDetailsDTO::getQuantity)
+                .containsExactlyInAnyOrder(3, 5);
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(43)).hasSize(1);
+    }
+
+    @Test
+    void aFailingOrderOnlyFailsItself() {
+        CartDetailsDTO duplicateLines = cartRequest(0, 52, 1, 1);
+        duplicateLines.setCartLineDetailsDTOList(List.of(cartLine(1, 1), cartLine(1, 1)));
+
+        List<BulkOrderResult> results = bulkOrderService.addProductsToCarts(List.of(
+                cartRequest(0, 51, 1, 1), duplicateLines, cartRequest(0, 53, 1, 1)));
+
+        assertThat(results).extracting(BulkOrderResult::isSuccess).containsExactly(true, false, true);
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(51)).hasSize(1);
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(52)).isEmpty();
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(53)).hasSize(1);
+    }
+
+    @Test
+    void bulkSubmitReportsOrdersThatAreNotDraftsOfTheUser() {
+        int firstOrderId = orderService.addProductsToCart(cartRequest(0, 61, 1, 2));
+        int secondOrderId = orderService.addProductsToCart(cartRequest(0, 62, 1, 2));
+
+        List<BulkOrderResult> results = bulkOrderService.submitApprovedOrders(List.of(
+                cartRequest(firstOrderId, 61, 1, 1),
+                cartRequest(secondOrderId, 99, 1, 1),
+                cartRequest(secondOrderId, 62, 1, 1)));
+
+        assertThat(results).extracting(BulkOrderResult::isSuccess).containsExactly(true, false, true);
+        assertThat(orderService.retrieveOrderDetails(61).get(0).getOrderStatus()).isEqualTo(OrderStatus.APPROVED);
+        assertThat(orderService.retrieveOrderDetails(62).get(0).getOrderStatus()).isEqualTo(OrderStatus.APPROVED);
+    }
+
+    @Test
+    void bulkAddReportsAnOrderThatStopsBeingADraftAfterTheOwnershipReadAndLeavesItUntouched() {
+        int racedOrderId = orderService.addProductsToCart(cartRequest(0, 71, 1, 1));
+        int draftOrderId = orderService.addProductsToCart(cartRequest(0, 72, 1, 1));
+        // another node approves the order between the unlocked ownership read and the guarded update
+        OrderHeaderRepository racingOrderHeaderRepository = new OrderHeaderRepository(fixture.jdbcTemplate,
+                new QueryMetrics(fixture.meterRegistry), 100) {
+            @Override
+            public Map<Integer, Integer> retrieveUserIdsByOrderIdsAndStatus(Collection<Integer> orderIds, OrderStatus orderStatus) {
+                Map<Integer, Integer> userIdByOrderId = super.retrieveUserIdsByOrderIdsAndStatus(orderIds, orderStatus);
+                fixture.jdbcTemplate.getJdbcOperations().update("UPDATE orders SET order_status = 'A' WHERE order_id = ?", racedOrderId);
+                return userIdByOrderId;
+            }
+        };
+        BulkOrderService racingBulkOrderService = new BulkOrderService(orderService, racingOrderHeaderRepository,
+                fixture.orderDetailsRepository, fixture.orderIdGenerator, fixture.cartDetailsCache, fixture.userOrderVersionRepository,
+                fixture.orderChangeEventRepository, fixture.userOrderSummaryRepository, fixture.orderLockManager,
+                fixture.readYourWritesWindow, fixture.transactionManager, 100, 5);
+
+        List<BulkOrderResult> results = racingBulkOrderService.addProductsToCarts(List.of(
+                cartRequest(racedOrderId, 71, 1, 5),
+                cartRequest(draftOrderId, 72, 1, 5)));
+
+        assertThat(results).extracting(BulkOrderResult::isSuccess).containsExactly(false, true);
+        assertThat(fixture.jdbcTemplate.getJdbcOperations().queryForObject(
+                "SELECT quantity FROM order_details WHERE order_id = ?", Integer.class, racedOrderId)).isEqualTo(1);
+        assertThat(fixture.jdbcTemplate.getJdbcOperations().queryForObject(
+                "SELECT total_quantity FROM orders WHERE order_id = ?", Integer.class, racedOrderId)).isEqualTo(1);
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(72).get(0).getCartLineDetailsDTOList())
+                .extracting(CartLineDetailsDTO::getQuantity)
+                .containsExactly(6);
+    }
+}
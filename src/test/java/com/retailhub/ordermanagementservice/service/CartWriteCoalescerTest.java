@@ -0,0 +1,158 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.exception.CoalescedWriteTimeoutException;
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.metrics.StatementStatistics;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartWriteCoalescerTest {
+
+    private static final int USER_ID = 71;
+    private static final int PRODUCT_ID = 5;
+    private static final int CLICKS = 32;
+
+    private OrderServiceFixture fixture;
+    private CartWriteCoalescer cartWriteCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        cartWriteCoalescer = coalescer(50, 5000);
+    }
+
+    private CartWriteCoalescer coalescer(long windowMillis, long waitTimeoutMillis) {
+        return new CartWriteCoalescer(fixture.orderService, fixture.orderHeaderRepository,
+                fixture.orderDetailsRepository, fixture.cartDetailsCache, fixture.userOrderVersionRepository, fixture.orderChangeEventRepository, fixture.orderLockManager, fixture.readYourWritesWindow, fixture.transactionManager, fixture.meterRegistry,
+                true, windowMillis, 4, 2, waitTimeoutMillis, 5);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        cartWriteCoalescer.shutdown();
+    }
+
+    @Test
+    void burstOfClicksOnOneLineIsWrittenInFewBatches() throws Exception {
+        int orderId = fixture.orderService.addProductsToCart(cartRequest(0, USER_ID, PRODUCT_ID, 1));
+        double upsertsBefore = upserts();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLICKS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int click = 0; click < CLICKS; click++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cartWriteCoalescer.addProductsToCart(cartRequest(orderId, USER_ID, PRODUCT_ID, 1));
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        CartDetailsDTO cart = fixture.orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0);
+        assertThat(cart.getCartLineDetailsDTOList().get(0).getQuantity()).isEqualTo(1 + CLICKS);
+        // every click targets the same order and so the same stripe; released together, they land in
+        // one or two 50 ms windows, so at least a tenfold reduction holds even with a straggler
+        assertThat(upserts() - upsertsBefore).isLessThanOrEqualTo(CLICKS / 10.0);
+    }
+
+    @Test
+    void callerWhoseFlushIsNotConfirmedInTimeIsRejectedWithoutReplay() throws InterruptedException {
+        int orderId = fixture.orderService.addProductsToCart(cartRequest(0, USER_ID, PRODUCT_ID, 1));
+        CartWriteCoalescer slowCoalescer = coalescer(1000, 50);
+        try {
+            assertThatThrownBy(() -> slowCoalescer.addProductsToCart(cartRequest(orderId, USER_ID, PRODUCT_ID, 1)))
+                    .isInstanceOf(CoalescedWriteTimeoutException.class);
+        } finally {
+            slowCoalescer.shutdown();
+        }
+
+        assertThat(fixture.orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0)
+                .getCartLineDetailsDTOList().get(0).getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void coalescedRequestIsChargedTheStatementsOfItsFlush() {
+        int orderId = fixture.orderService.addProductsToCart(cartRequest(0, USER_ID, PRODUCT_ID, 1));
+
+        StatementStatistics statementStatistics = new StatementStatistics();
+        try (StatementStatistics.Scope ignored = StatementStatistics.open(statementStatistics)) {
+            cartWriteCoalescer.addProductsToCart(cartRequest(orderId, USER_ID, PRODUCT_ID, 1));
+        }
+
+        assertThat(statementStatistics.getStatementCount()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void requestForAnotherUsersOrderFallsBackToTheRegularPath() {
+        int orderId = fixture.orderService.addProductsToCart(cartRequest(0, USER_ID, PRODUCT_ID, 1));
+
+        int newOrderId = cartWriteCoalescer.addProductsToCart(cartRequest(orderId, USER_ID + 1, PRODUCT_ID, 1));
+
+        assertThat(newOrderId).isNotEqualTo(orderId);
+        assertThat(fixture.orderService.retrieveCartDetailsByDraftStatus(USER_ID + 1)).hasSize(1);
+        assertThat(fixture.orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0)
+                .getCartLineDetailsDTOList().get(0).getQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void orderThatStopsBeingADraftAfterTheOwnershipReadIsLeftUntouchedAndReplayed() {
+        int orderId = fixture.orderService.addProductsToCart(cartRequest(0, USER_ID, PRODUCT_ID, 1));
+        // another node approves the order between the unlocked ownership read and the guarded update
+        OrderHeaderRepository racingOrderHeaderRepository = new OrderHeaderRepository(fixture.jdbcTemplate,
+                new QueryMetrics(fixture.meterRegistry), 100) {
+            @Override
+            public Map<Integer, Integer> retrieveUserIdsByOrderIdsAndStatus(Collection<Integer> orderIds, OrderStatus orderStatus) {
+                Map<Integer, Integer> userIdByOrderId = super.retrieveUserIdsByOrderIdsAndStatus(orderIds, orderStatus);
+                fixture.jdbcTemplate.getJdbcOperations().update("UPDATE orders SET order_status = 'A' WHERE order_id = ?", orderId);
+                return userIdByOrderId;
+            }
+        };
+        CartWriteCoalescer racingCoalescer = new CartWriteCoalescer(fixture.orderService, racingOrderHeaderRepository,
+                fixture.orderDetailsRepository, fixture.cartDetailsCache, fixture.userOrderVersionRepository, fixture.orderChangeEventRepository, fixture.orderLockManager, fixture.readYourWritesWindow, fixture.transactionManager, fixture.meterRegistry,
+                true, 10, 4, 2, 5000, 5);
+        double upsertsBefore = upserts();
+        try {
+            int newOrderId = racingCoalescer.addProductsToCart(cartRequest(orderId, USER_ID, PRODUCT_ID, 1));
+
+            assertThat(newOrderId).isNotEqualTo(orderId);
+        } finally {
+            racingCoalescer.shutdown();
+        }
+
+        assertThat(upserts()).isEqualTo(upsertsBefore);
+        assertThat(fixture.jdbcTemplate.getJdbcOperations().queryForObject(
+                "SELECT quantity FROM order_details WHERE order_id = ?", Integer.class, orderId)).isEqualTo(1);
+        assertThat(fixture.jdbcTemplate.getJdbcOperations().queryForObject(
+                "SELECT total_quantity FROM orders WHERE order_id = ?", Integer.class, orderId)).isEqualTo(1);
+        assertThat(fixture.jdbcTemplate.getJdbcOperations().queryForObject(
+                "SELECT COUNT(*) FROM order_change_events WHERE order_id = ?", Integer.class, orderId)).isEqualTo(1);
+    }
+
+    private double upserts() {
+        Timer upsertTimer = fixture.meterRegistry.find("order.db.query").tag("query", "UPSERT_ORDER_DETAILS").timer();
+        return upsertTimer == null ? 0 : upsertTimer.count();
+    }
+}
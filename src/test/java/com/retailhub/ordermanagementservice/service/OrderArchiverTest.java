@@ -0,0 +1,68 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderArchiverTest {
+
+    private static final int USER_ID = 81;
+    private static final Clock A_MINUTE_LATER = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(1));
+
+    private OrderServiceFixture fixture;
+    private OrderService orderService;
+    private JdbcTemplate jdbcTemplate;
+    private int draftOrderId;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+        jdbcTemplate = new JdbcTemplate(fixture.dataSource);
+        for (int productId = 1; productId <= 2; productId++) {
+            int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, productId, 1));
+            orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, productId, 1));
+        }
+        int cancelledOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 3, 1));
+        orderService.deleteOrderFromCart(cancelledOrderId, 3);
+        draftOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 4, 1));
+    }
+
+    @Test
+    void closedOrdersMoveToTheArchiveInBatchesAndStayVisibleInTheDetails() {
+        List<CartDetailsDTO> detailsBeforeArchiving = orderService.retrieveOrderDetails(USER_ID);
+
+        int archived = archiver(0).archive();
+
+        assertThat(archived).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList("SELECT order_id FROM orders", Integer.class)).containsExactly(draftOrderId);
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT order_id FROM order_details", Integer.class)).containsExactly(draftOrderId);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_archive", Integer.class)).isEqualTo(3);
+        assertThat(orderService.retrieveOrderDetails(USER_ID)).containsExactlyInAnyOrderElementsOf(detailsBeforeArchiving);
+        assertThat(fixture.meterRegistry.get("order.archive.orders").counter().count()).isEqualTo(3);
+        assertThat(fixture.meterRegistry.get("order.archive.batch").timer().count()).isEqualTo(2);
+        assertThat(fixture.meterRegistry.get("order.archive.lag.seconds").gauge().value()).isZero();
+    }
+
+    @Test
+    void recentlyClosedOrdersStayLive() {
+        assertThat(archiver(30).archive()).isZero();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class)).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_archive", Integer.class)).isZero();
+    }
+
+    private OrderArchiver archiver(long closedForDays) {
+        return new OrderArchiver(fixture.orderArchiveRepository, fixture.transactionManager, fixture.meterRegistry,
+                true, closedForDays, 2, 10, 0, A_MINUTE_LATER);
+    }
+}
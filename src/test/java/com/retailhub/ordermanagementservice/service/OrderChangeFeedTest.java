@@ -0,0 +1,155 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.OrderChangeEvent;
+import com.retailhub.ordermanagementservice.model.OrderChangeType;
+import com.retailhub.ordermanagementservice.model.OrderChangesPage;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderChangeFeedTest {
+
+    private static final int USER_ID = 91;
+
+    private OrderServiceFixture fixture;
+    private OrderService orderService;
+    private OrderChangeFeed orderChangeFeed;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+        orderChangeFeed = new OrderChangeFeed(fixture.orderChangeEventRepository, 60_000, 5);
+    }
+
+    @Test
+    void everyMutationIsRecordedInCommitOrderWithTheStatusItLeft() {
+        int cancelledOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        orderService.addProductsToCart(cartRequest(cancelledOrderId, USER_ID, 1, 1));
+        orderService.deleteOrderFromCart(cancelledOrderId, 1);
+        int approvedOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 2, 1));
+        orderService.submitApprovedOrder(cartRequest(approvedOrderId, USER_ID, 2, 1));
+
+        OrderChangesPage page = orderChangeFeed.retrieveChanges(0, 100);
+
+        assertThat(page.getEvents())
+                .extracting(OrderChangeEvent::getOrderId, OrderChangeEvent::getUserId, OrderChangeEvent::getChangeType, OrderChangeEvent::getOrderStatus)
+                .containsExactly(
+                        tuple(cancelledOrderId, USER_ID, OrderChangeType.CREATED, OrderStatus.DRAFT),
+                        tuple(cancelledOrderId, USER_ID, OrderChangeType.LINES_ADDED, OrderStatus.DRAFT),
+                        tuple(cancelledOrderId, USER_ID, OrderChangeType.LINE_REMOVED, OrderStatus.CANCELLED),
+                        tuple(approvedOrderId, USER_ID, OrderChangeType.CREATED, OrderStatus.DRAFT),
+                        tuple(approvedOrderId, USER_ID, OrderChangeType.APPROVED, OrderStatus.APPROVED));
+        assertThat(page.getNextCursor()).isEqualTo(page.getEvents().get(4).getEventId());
+    }
+
+    @Test
+    void cursorResumesAfterTheLastEventReturned() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        orderService.addProductsToCart(cartRequest(orderId, USER_ID, 2, 1));
+        orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 1, 1));
+
+        OrderChangesPage firstPage = orderChangeFeed.retrieveChanges(0, 2);
+        OrderChangesPage secondPage = orderChangeFeed.retrieveChanges(firstPage.getNextCursor(), 2);
+        OrderChangesPage emptyPage = orderChangeFeed.retrieveChanges(secondPage.getNextCursor(), 2);
+
+        assertThat(firstPage.getEvents()).extracting(OrderChangeEvent::getChangeType)
+                .containsExactly(OrderChangeType.CREATED, OrderChangeType.LINES_ADDED);
+        assertThat(secondPage.getEvents()).extracting(OrderChangeEvent::getChangeType)
+                .containsExactly(OrderChangeType.APPROVED);
+        assertThat(emptyPage.getEvents()).isEmpty();
+        assertThat(emptyPage.getNextCursor()).isEqualTo(secondPage.getNextCursor());
+    }
+
+    @Test
+    void rolledBackMutationRecordsNoChange() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+
+        new TransactionTemplate(fixture.transactionManager).executeWithoutResult(status -> {
+            orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 1, 1));
+            status.setRollbackOnly();
+        });
+
+        assertThat(orderChangeFeed.retrieveChanges(0, 100).getEvents()).extracting(OrderChangeEvent::getChangeType)
+                .containsExactly(OrderChangeType.CREATED);
+    }
+
+    @Test
+    void pageStopsAtARecentGapUntilItHasAged() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        long createdEventId = orderChangeFeed.retrieveChanges(0, 100).getNextCursor();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(fixture.dataSource);
+        jdbcTemplate.update("INSERT INTO order_change_events " +
+                        "(event_id, order_id, user_id, change_type, order_status, created_at) VALUES (?, ?, ?, 'LINES_ADDED', 'D', CURRENT_TIMESTAMP(3))",
+                createdEventId + 2, orderId, USER_ID);
+
+        OrderChangesPage pageWithinDelay = orderChangeFeed.retrieveChanges(0, 100);
+        jdbcTemplate.update("UPDATE order_change_events SET created_at = TIMESTAMPADD(MINUTE, -2, created_at) WHERE event_id = ?",
+                createdEventId + 2);
+        OrderChangesPage pageAfterDelay = orderChangeFeed.retrieveChanges(createdEventId, 100);
+
+        assertThat(pageWithinDelay.getEvents()).extracting(OrderChangeEvent::getEventId).containsExactly(createdEventId);
+        assertThat(pageAfterDelay.getEvents()).extracting(OrderChangeEvent::getEventId).containsExactly(createdEventId + 2);
+    }
+
+    @Test
+    void eventOfATransactionThatCommitsAfterALaterIdIsNotSkipped() throws Exception {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        long createdEventId = orderChangeFeed.retrieveChanges(0, 100).getNextCursor();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(fixture.transactionManager);
+        CountDownLatch firstRecorded = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> firstTransaction = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                fixture.orderChangeEventRepository.recordChange(orderId, OrderChangeType.LINES_ADDED);
+                firstRecorded.countDown();
+                awaitUninterruptibly(commitFirst);
+            }));
+            assertThat(firstRecorded.await(10, TimeUnit.SECONDS)).isTrue();
+            transactionTemplate.executeWithoutResult(status ->
+                    fixture.orderChangeEventRepository.recordChange(orderId, OrderChangeType.APPROVED));
+
+            OrderChangesPage pageWhileFirstIsOpen = orderChangeFeed.retrieveChanges(createdEventId, 100);
+            commitFirst.countDown();
+            firstTransaction.get(10, TimeUnit.SECONDS);
+            OrderChangesPage pageAfterBothCommitted = orderChangeFeed.retrieveChanges(pageWhileFirstIsOpen.getNextCursor(), 100);
+
+            assertThat(pageWhileFirstIsOpen.getEvents()).isEmpty();
+            assertThat(pageWhileFirstIsOpen.getNextCursor()).isEqualTo(createdEventId);
+            assertThat(pageAfterBothCommitted.getEvents()).extracting(OrderChangeEvent::getEventId, OrderChangeEvent::getChangeType)
+                    .containsExactly(tuple(createdEventId + 1, OrderChangeType.LINES_ADDED), tuple(createdEventId + 2, OrderChangeType.APPROVED));
+        } finally {
+            commitFirst.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void delayNotLongerThanTheTransactionTimeoutIsRejected() {
+        assertThatThrownBy(() -> new OrderChangeFeed(fixture.orderChangeEventRepository, 5000, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
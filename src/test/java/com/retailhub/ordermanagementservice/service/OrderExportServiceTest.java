@@ -0,0 +1,166 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderExportFilter;
+import com.retailhub.ordermanagementservice.model.OrderExportFormat;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import com.retailhub.ordermanagementservice.support.TestCartRequests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderExportServiceTest {
+
+    private static final int USER_ID = 61;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private OrderServiceFixture fixture;
+    private OrderExportService orderExportService;
+    private int earlyDraftOrderId;
+    private int archivedOrderId;
+    private int draftOrderId;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        OrderService orderService = fixture.orderService;
+        earlyDraftOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, cartLine(4, "Cup")));
+        archivedOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, cartLine(2, "Mug, \"large\"")));
+        orderService.addProductsToCart(cartRequest(archivedOrderId, USER_ID, cartLine(1, "Plate")));
+        orderService.submitApprovedOrder(cartRequest(archivedOrderId, USER_ID, cartLine(1, "Plate")));
+        draftOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, cartLine(3, "Bowl")));
+        new OrderArchiver(fixture.orderArchiveRepository, fixture.transactionManager, fixture.meterRegistry, true, 0, 10, 1, 0,
+                Clock.offset(Clock.systemUTC(), Duration.ofMinutes(1))).archive();
+        orderExportService = new OrderExportService(fixture.orderExportRepository, objectMapper, fixture.transactionManager, 2);
+    }
+
+    @Test
+    void csvHasOneRowPerLineOfLiveAndArchivedOrdersInOrderIdOrder() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long exported = orderExportService.exportOrders(filter(0, Integer.MAX_VALUE, null), OrderExportFormat.CSV, false, outputStream);
+
+        String[] rows = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(exported).isEqualTo(4);
+        assertThat(rows).hasSize(5);
+        assertThat(rows[0]).isEqualTo("order_id,user_id,order_status,total_order_value,closed_at,product_id,product_name,product_price,quantity");
+        assertThat(rows[1]).isEqualTo(earlyDraftOrderId + "," + USER_ID + ",DRAFT,5.00,,4,Cup,5.00,1");
+        assertThat(rows[2]).startsWith(archivedOrderId + "," + USER_ID + ",APPROVED,10.00,").endsWith(",1,Plate,5.00,1");
+        assertThat(rows[3]).startsWith(archivedOrderId + ",").endsWith(",2,\"Mug, \"\"large\"\"\",5.00,1");
+        assertThat(rows[4]).isEqualTo(draftOrderId + "," + USER_ID + ",DRAFT,5.00,,3,Bowl,5.00,1");
+    }
+
+    @Test
+    void exportBeyondTheConcurrencyLimitIsRejectedBeforeWritingAnything() throws Exception {
+        OrderExportService singleExportService = new OrderExportService(fixture.orderExportRepository, objectMapper,
+                fixture.transactionManager, 1);
+        CountDownLatch firstExportWriting = new CountDownLatch(1);
+        CountDownLatch finishFirstExport = new CountDownLatch(1);
+        OutputStream blockingOutputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                firstExportWriting.countDown();
+                try {
+                    finishFirstExport.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> firstExport = executor.submit(() -> singleExportService.exportOrders(filter(0, Integer.MAX_VALUE, null),
+                    OrderExportFormat.CSV, false, blockingOutputStream));
+            assertThat(firstExportWriting.await(10, TimeUnit.SECONDS)).isTrue();
+            ByteArrayOutputStream rejectedOutputStream = new ByteArrayOutputStream();
+
+            assertThatThrownBy(() -> singleExportService.exportOrders(filter(0, Integer.MAX_VALUE, null), OrderExportFormat.CSV, false,
+                    rejectedOutputStream)).isInstanceOf(RejectedExecutionException.class);
+            assertThat(rejectedOutputStream.size()).isZero();
+
+            finishFirstExport.countDown();
+            assertThat(firstExport.get(10, TimeUnit.SECONDS)).isEqualTo(4);
+            assertThat(singleExportService.exportOrders(filter(0, Integer.MAX_VALUE, null), OrderExportFormat.CSV, false,
+                    new ByteArrayOutputStream())).isEqualTo(4);
+        } finally {
+            finishFirstExport.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void gzippedNdjsonIsFilteredByStatusAndOrderIdRange() throws IOException {
+        ByteArrayOutputStream approved = new ByteArrayOutputStream();
+        ByteArrayOutputStream outOfRange = new ByteArrayOutputStream();
+
+        orderExportService.exportOrders(filter(0, Integer.MAX_VALUE, OrderStatus.APPROVED), OrderExportFormat.NDJSON, true, approved);
+        orderExportService.exportOrders(filter(archivedOrderId + 1, Integer.MAX_VALUE, OrderStatus.APPROVED), OrderExportFormat.NDJSON, true, outOfRange);
+
+        List<JsonNode> approvedLines = ndjsonLines(approved);
+        assertThat(approvedLines).extracting(line -> line.get("productId").asInt()).containsExactly(1, 2);
+        assertThat(approvedLines).allSatisfy(line -> {
+            assertThat(line.get("orderId").asInt()).isEqualTo(archivedOrderId);
+            assertThat(line.get("orderStatus").asText()).isEqualTo("APPROVED");
+        });
+        assertThat(ndjsonLines(outOfRange)).isEmpty();
+    }
+
+    private List<JsonNode> ndjsonLines(ByteArrayOutputStream gzipped) throws IOException {
+        String ndjson;
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzipped.toByteArray()))) {
+            ndjson = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    private static CartLineDetailsDTO cartLine(int productId, String productName) {
+        CartLineDetailsDTO cartLine = TestCartRequests.cartLine(productId, 1);
+        cartLine.setProductName(productName);
+        return cartLine;
+    }
+
+    private static OrderExportFilter filter(int fromOrderId, int toOrderId, OrderStatus orderStatus) {
+        return OrderExportFilter.builder()
+                .fromOrderId(fromOrderId)
+                .toOrderId(toOrderId)
+                .orderStatus(orderStatus)
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderHistoryPage;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartLine;
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderHistoryPagingTest {
+
+    private static final int USER_ID = 91;
+    private static final int OTHER_USER_ID = 92;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderServiceFixture().orderService;
+    }
+
+    @Test
+    void followingTheCursorVisitsEveryOrderOnceInOrderIdOrder() {
+        List<Integer> orderIds = addOrders(5);
+
+        List<Integer> visited = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        Integer cursor = 0;
+        while (cursor != null) {
+            OrderHistoryPage page = orderService.retrieveOrderDetailsPage(USER_ID, cursor, 2);
+            page.getOrders().forEach(order -> visited.add(order.getOrderId()));
+            pageSizes.add(page.getOrders().size());
+            cursor = page.getNextCursor();
+        }
+
+        assertThat(visited).isEqualTo(orderIds);
+        assertThat(pageSizes).containsExactly(2, 2, 1);
+    }
+
+    @Test
+    void cursorPointsAtTheLastOrderOfItsPage() {
+        List<Integer> orderIds = addOrders(3);
+
+        OrderHistoryPage firstPage = orderService.retrieveOrderDetailsPage(USER_ID, 0, 2);
+        OrderHistoryPage secondPage = orderService.retrieveOrderDetailsPage(USER_ID, firstPage.getNextCursor(), 2);
+
+        assertThat(firstPage.getNextCursor()).isEqualTo(orderIds.get(1));
+        assertThat(secondPage.getOrders()).extracting(CartDetailsDTO::getOrderId).containsExactly(orderIds.get(2));
+    }
+
+    @Test
+    void pageThatEndsTheHistoryExactlyHasNoCursor() {
+        addOrders(4);
+
+        OrderHistoryPage firstPage = orderService.retrieveOrderDetailsPage(USER_ID, 0, 2);
+        OrderHistoryPage lastPage = orderService.retrieveOrderDetailsPage(USER_ID, firstPage.getNextCursor(), 2);
+
+        assertThat(lastPage.getOrders()).hasSize(2);
+        assertThat(lastPage.getNextCursor()).isNull();
+        assertThat(orderService.retrieveOrderDetailsPage(USER_ID, 0, 10).getNextCursor()).isNull();
+    }
+
+    @Test
+    void pagesCarryTheLinesOfTheirOrders() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, cartLine(1, 2), cartLine(2, 3)));
+
+        OrderHistoryPage page = orderService.retrieveOrderDetailsPage(USER_ID, 0, 10);
+
+        assertThat(page.getOrders()).singleElement().satisfies(order -> {
+            assertThat(order.getOrderId()).isEqualTo(orderId);
+            assertThat(order.getCartLineDetailsDTOList()).extracting("productId", "quantity")
+                    .containsExactlyInAnyOrder(tuple(1, 2), tuple(2, 3));
+        });
+    }
+
+    @Test
+    void streamedHistoryMatchesTheWholeHistory() {
+        addOrders(3);
+        orderService.addProductsToCart(cartRequest(0, USER_ID, cartLine(7, 1), cartLine(8, 2)));
+
+        List<CartDetailsDTO> streamed = new ArrayList<>();
+        orderService.streamOrderDetails(USER_ID, streamed::add);
+
+        assertThat(streamed).extracting(CartDetailsDTO::getOrderId).isSorted();
+        assertThat(streamed).usingRecursiveFieldByFieldElementComparatorIgnoringFields("cartLineDetailsDTOList")
+                .containsExactlyInAnyOrderElementsOf(orderService.retrieveOrderDetails(USER_ID));
+        assertThat(streamed.get(streamed.size() - 1).getCartLineDetailsDTOList()).hasSize(2);
+    }
+
+    /**
+     * Adds {@code count} single-line orders for the user, interleaved with orders of another user,
+     * and returns their ids in ascending order.
+     */
+    private List<Integer> addOrders(int count) {
+        List<Integer> orderIds = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            orderIds.add(orderService.addProductsToCart(cartRequest(0, USER_ID, i, i)));
+            orderService.addProductsToCart(cartRequest(0, OTHER_USER_ID, i, 1));
+        }
+        orderIds.sort(null);
+        return orderIds;
+    }
+}
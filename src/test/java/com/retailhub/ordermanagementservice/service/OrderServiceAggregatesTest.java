@@ -0,0 +1,141 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import com.retailhub.ordermanagementservice.support.TestCartRequests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartLine;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderServiceAggregatesTest {
+
+    private static final int USER_ID = 31;
+
+    private OrderServiceFixture fixture;
+    private OrderService orderService;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+        jdbcTemplate = new JdbcTemplate(fixture.dataSource);
+    }
+
+    @Test
+    void aggregatesFollowEveryLineMutationAndIgnoreTheClientTotal() {
+        orderService.addProductsToCart(cartRequest(0, 1, 2, "4.00"));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+        assertAggregates(orderId, 1, 2, "8.00", OrderStatus.DRAFT);
+
+        orderService.addProductsToCart(cartRequest(orderId, 2, 3, "1.50"));
+        assertAggregates(orderId, 2, 5, "12.50", OrderStatus.DRAFT);
+
+        orderService.deleteOrderFromCart(orderId, 1);
+        assertAggregates(orderId, 1, 3, "4.50", OrderStatus.DRAFT);
+
+        orderService.submitApprovedOrder(cartRequest(orderId, 2, 1, "1.50"));
+        assertAggregates(orderId, 1, 1, "1.50", OrderStatus.APPROVED);
+    }
+
+    @Test
+    void deletingTheLastLineCancelsTheDraft() {
+        orderService.addProductsToCart(cartRequest(0, 1, 2, "4.00"));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+
+        orderService.deleteOrderFromCart(orderId, 1);
+
+        assertAggregates(orderId, 0, 0, "0.00", OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void deletingALineOfAnOrderThatIsNoLongerADraftChangesNothing() {
+        orderService.addProductsToCart(cartRequest(0, 1, 2, "4.00"));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+        orderService.submitApprovedOrder(cartRequest(orderId, 1, 2, "4.00"));
+        long versionBefore = orderService.retrieveOrderVersion(USER_ID);
+
+        orderService.deleteOrderFromCart(orderId, 1);
+
+        assertAggregates(orderId, 1, 2, "8.00", OrderStatus.APPROVED);
+        assertAggregatesMatchLines(orderId);
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isEqualTo(versionBefore);
+    }
+
+    @Test
+    void aggregatesFollowRepeatedAndReaddedProducts() {
+        orderService.addProductsToCart(cartRequest(0, 1, 2, "4.00"));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+        orderService.addProductsToCart(cartRequest(orderId, 2, 1, "1.50"));
+
+        orderService.deleteOrderFromCart(orderId, 1);
+        orderService.deleteOrderFromCart(orderId, 1);
+        assertAggregates(orderId, 1, 1, "1.50", OrderStatus.DRAFT);
+
+        orderService.addProductsToCart(TestCartRequests.cartRequest(orderId, USER_ID,
+                cartLine(1, 1, new BigDecimal("9.99")), cartLine(1, 2, new BigDecimal("9.99")), cartLine(2, 1, new BigDecimal("1.50"))));
+        assertAggregates(orderId, 2, 5, "15.00", OrderStatus.DRAFT);
+        assertAggregatesMatchLines(orderId);
+    }
+
+    @Test
+    void bulkWritesKeepAggregatesInStepWithTheirLines() {
+        orderService.addProductsToCart(cartRequest(0, 1, 2, "4.00"));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+
+        fixture.bulkOrderService.addProductsToCarts(List.of(cartRequest(orderId, 1, 1, "4.00"), cartRequest(orderId, 2, 3, "1.50"),
+                cartRequest(orderId, 2, 1, "1.50")));
+        assertAggregates(orderId, 2, 7, "18.00", OrderStatus.DRAFT);
+
+        fixture.bulkOrderService.submitApprovedOrders(List.of(cartRequest(orderId, 2, 2, "1.50")));
+        assertAggregates(orderId, 2, 5, "15.00", OrderStatus.APPROVED);
+        assertAggregatesMatchLines(orderId);
+    }
+
+    @Test
+    void addingToAnOrderThatIsNotADraftOfTheUserOpensANewOne() {
+        orderService.addProductsToCart(cartRequest(0, 1, 2, "4.00"));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+        orderService.submitApprovedOrder(cartRequest(orderId, 1, 2, "4.00"));
+
+        int newOrderId = orderService.addProductsToCart(cartRequest(orderId, 1, 1, "4.00"));
+
+        assertThat(newOrderId).isNotEqualTo(orderId);
+        assertAggregates(orderId, 1, 2, "8.00", OrderStatus.APPROVED);
+        assertAggregates(newOrderId, 1, 1, "4.00", OrderStatus.DRAFT);
+    }
+
+    private static CartDetailsDTO cartRequest(int orderId, int productId, int quantity, String productPrice) {
+        CartDetailsDTO cartRequest = TestCartRequests.cartRequest(orderId, USER_ID, cartLine(productId, quantity, new BigDecimal(productPrice)));
+        cartRequest.setTotalOrderValue(new BigDecimal("999.99"));
+        return cartRequest;
+    }
+
+    private void assertAggregatesMatchLines(int orderId) {
+        Map<String, Object> lines = jdbcTemplate.queryForMap("SELECT COUNT(CASE WHEN quantity > 0 THEN 1 END) AS line_count, " +
+                "COALESCE(SUM(quantity), 0) AS total_quantity, COALESCE(SUM(product_price * quantity), 0) AS total_order_value " +
+                "FROM order_details WHERE order_id = ?", orderId);
+        Map<String, Object> order = jdbcTemplate.queryForMap(
+                "SELECT line_count, total_quantity, total_order_value FROM orders WHERE order_id = ?", orderId);
+        assertThat(((Number) order.get("line_count")).longValue()).isEqualTo(((Number) lines.get("line_count")).longValue());
+        assertThat(((Number) order.get("total_quantity")).longValue()).isEqualTo(((Number) lines.get("total_quantity")).longValue());
+        assertThat((BigDecimal) order.get("total_order_value")).isEqualByComparingTo((BigDecimal) lines.get("total_order_value"));
+    }
+
+    private void assertAggregates(int orderId, int lineCount, int totalQuantity, String totalOrderValue, OrderStatus orderStatus) {
+        Map<String, Object> order = jdbcTemplate.queryForMap(
+                "SELECT line_count, total_quantity, total_order_value, order_status FROM orders WHERE order_id = ?", orderId);
+        assertThat(order.get("line_count")).isEqualTo(lineCount);
+        assertThat(order.get("total_quantity")).isEqualTo(totalQuantity);
+        assertThat((BigDecimal) order.get("total_order_value")).isEqualByComparingTo(totalOrderValue);
+        assertThat(order.get("order_status")).isEqualTo(orderStatus.getCode());
+    }
+}
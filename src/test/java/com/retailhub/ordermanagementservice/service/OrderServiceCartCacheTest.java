@@ -0,0 +1,87 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.cache.CaffeineCartDetailsCache;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderServiceCartCacheTest {
+
+    private static final int USER_ID = 11;
+
+    private CaffeineCartDetailsCache cartDetailsCache;
+    private OrderService orderService;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        OrderServiceFixture fixture = new OrderServiceFixture();
+        cartDetailsCache = fixture.cartDetailsCache;
+        orderService = fixture.orderService;
+        transactionTemplate = new TransactionTemplate(fixture.transactionManager);
+    }
+
+    @Test
+    void repeatedReadsAreServedFromTheCache() {
+        orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+
+        orderService.retrieveCartDetailsByDraftStatus(USER_ID);
+        orderService.retrieveCartDetailsByDraftStatus(USER_ID);
+        orderService.retrieveCartDetailsByDraftStatus(USER_ID);
+
+        assertThat(cartDetailsCache.statistics().getMissCount()).isEqualTo(1);
+        assertThat(cartDetailsCache.statistics().getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void readAfterEveryMutationSeesTheMutation() {
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(USER_ID)).isEmpty();
+
+        orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+        List<CartDetailsDTO> carts = orderService.retrieveCartDetailsByDraftStatus(USER_ID);
+        assertThat(carts).hasSize(1);
+        int orderId = carts.get(0).getOrderId();
+
+        orderService.addProductsToCart(cartRequest(orderId, USER_ID, 1, 3));
+        assertThat(quantityOf(orderService.retrieveCartDetailsByDraftStatus(USER_ID), 1)).isEqualTo(5);
+
+        orderService.addProductsToCart(cartRequest(orderId, USER_ID, 2, 1));
+        orderService.deleteOrderFromCart(orderId, 1);
+        assertThat(quantityOf(orderService.retrieveCartDetailsByDraftStatus(USER_ID), 1)).isZero();
+
+        orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 2, 4));
+        assertThat(orderService.retrieveCartDetailsByDraftStatus(USER_ID)).isEmpty();
+    }
+
+    @Test
+    void readRacingAnUncommittedMutationIsEvictedOnCommit() {
+        orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.addProductsToCart(cartRequest(orderId, USER_ID, 1, 3));
+            List<CartDetailsDTO> readDuringTransaction = CompletableFuture
+                    .supplyAsync(() -> orderService.retrieveCartDetailsByDraftStatus(USER_ID))
+                    .join();
+            assertThat(quantityOf(readDuringTransaction, 1)).isEqualTo(2);
+        });
+
+        assertThat(quantityOf(orderService.retrieveCartDetailsByDraftStatus(USER_ID), 1)).isEqualTo(5);
+    }
+
+    private static int quantityOf(List<CartDetailsDTO> carts, int productId) {
+        return carts.get(0).getCartLineDetailsDTOList().stream()
+                .filter(cartLine -> cartLine.getProductId() == productId)
+                .mapToInt(CartLineDetailsDTO::getQuantity)
+                .sum();
+    }
+}
@@ -0,0 +1,63 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderServiceConcurrencyTest {
+
+    private static final int USER_ID = 42;
+    private static final int PRODUCT_ID = 7;
+    private static final int THREADS = 8;
+    private static final int INCREMENTS_PER_THREAD = 250;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderServiceFixture().orderService;
+    }
+
+    @Test
+    void concurrentIncrementsOnOneLineAreNeverLost() throws Exception {
+        orderService.addProductsToCart(cartRequest(0, USER_ID, PRODUCT_ID, 1));
+        int orderId = orderService.retrieveCartDetailsByDraftStatus(USER_ID).get(0).getOrderId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                    orderService.addProductsToCart(cartRequest(orderId, USER_ID, PRODUCT_ID, 1));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<CartDetailsDTO> carts = orderService.retrieveCartDetailsByDraftStatus(USER_ID);
+        assertThat(carts).hasSize(1);
+        assertThat(carts.get(0).getCartLineDetailsDTOList())
+                .singleElement()
+                .extracting(CartLineDetailsDTO::getQuantity)
+                .isEqualTo(1 + THREADS * INCREMENTS_PER_THREAD);
+    }
+}
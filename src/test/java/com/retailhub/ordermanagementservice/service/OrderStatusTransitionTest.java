@@ -0,0 +1,67 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.exception.NotFoundException;
+import com.retailhub.ordermanagementservice.exception.OrderStatusConflictException;
+import com.retailhub.ordermanagementservice.model.OrderStatus;
+import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderStatusTransitionTest {
+
+    private static final int USER_ID = 51;
+
+    private OrderService orderService;
+    private OrderHeaderRepository orderHeaderRepository;
+
+    @BeforeEach
+    void setUp() {
+        OrderServiceFixture fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+        orderHeaderRepository = fixture.orderHeaderRepository;
+    }
+
+    @Test
+    void onlyDraftsCanBeClosed() {
+        assertThat(OrderStatus.DRAFT.canTransitionTo(OrderStatus.APPROVED)).isTrue();
+        assertThat(OrderStatus.DRAFT.canTransitionTo(OrderStatus.CANCELLED)).isTrue();
+        assertThat(OrderStatus.APPROVED.canTransitionTo(OrderStatus.CANCELLED)).isFalse();
+        assertThat(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.DRAFT)).isFalse();
+        assertThatThrownBy(() -> orderHeaderRepository.transitionOrderStatus(1, USER_ID, OrderStatus.APPROVED, OrderStatus.CANCELLED))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void secondTransitionOfTheSameDraftMatchesNoRow() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+
+        assertThat(orderHeaderRepository.transitionOrderStatus(orderId, USER_ID, OrderStatus.DRAFT, OrderStatus.APPROVED)).isTrue();
+        assertThat(orderHeaderRepository.transitionOrderStatus(orderId, USER_ID, OrderStatus.DRAFT, OrderStatus.CANCELLED)).isFalse();
+        assertThat(orderHeaderRepository.retrieveOrderStatus(orderId, USER_ID)).contains(OrderStatus.APPROVED);
+    }
+
+    @Test
+    void submittingAClosedOrderIsAConflict() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 1, 1));
+
+        assertThatThrownBy(() -> orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 1, 1)))
+                .isInstanceOf(OrderStatusConflictException.class)
+                .hasMessageContaining("APPROVED");
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isEqualTo(2);
+    }
+
+    @Test
+    void submittingAnUnknownOrderIsNotFound() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+
+        assertThatThrownBy(() -> orderService.submitApprovedOrder(cartRequest(orderId + 1, USER_ID, 1, 1)))
+                .isInstanceOf(NotFoundException.class);
+        assertThat(orderService.retrieveOrderDetails(USER_ID).get(0).getOrderStatus()).isEqualTo(OrderStatus.DRAFT);
+    }
+}
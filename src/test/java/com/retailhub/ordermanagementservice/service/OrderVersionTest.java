@@ -0,0 +1,69 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderVersionTest {
+
+    private static final int USER_ID = 31;
+
+    private OrderServiceFixture fixture;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+    }
+
+    @Test
+    void everyMutationBumpsTheVersionOfItsUser() {
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isZero();
+
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isEqualTo(1);
+
+        orderService.addProductsToCart(cartRequest(orderId, USER_ID, 2, 1));
+        orderService.deleteOrderFromCart(orderId, 1);
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isEqualTo(3);
+
+        orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 2, 1));
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isEqualTo(4);
+        assertThat(orderService.retrieveOrderVersion(USER_ID + 1)).isZero();
+
+        fixture.bulkOrderService.addProductsToCarts(List.of(cartRequest(0, USER_ID, 1, 1), cartRequest(0, USER_ID, 2, 1)));
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isEqualTo(5);
+    }
+
+    @Test
+    void rolledBackMutationLeavesTheVersionUnchanged() {
+        orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(fixture.transactionManager);
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            orderService.addProductsToCart(cartRequest(0, USER_ID, 2, 1));
+            throw new IllegalStateException("rolled back");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(orderService.retrieveOrderVersion(USER_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void cachedCartCarriesTheVersionItWasLoadedAt() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+        assertThat(orderService.retrieveVersionedCartDetailsByDraftStatus(USER_ID).getVersion()).isEqualTo(1);
+
+        orderService.addProductsToCart(cartRequest(orderId, USER_ID, 1, 1));
+
+        assertThat(orderService.retrieveVersionedCartDetailsByDraftStatus(USER_ID).getVersion()).isEqualTo(2);
+        assertThat(orderService.retrieveVersionedOrderDetails(USER_ID).getVersion()).isEqualTo(2);
+    }
+}
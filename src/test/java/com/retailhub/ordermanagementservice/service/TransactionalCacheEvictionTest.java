@@ -0,0 +1,56 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.cache.CaffeineCartDetailsCache;
+import com.retailhub.ordermanagementservice.model.VersionedOrders;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionalCacheEvictionTest {
+
+    private static final int USER_ID = 13;
+
+    private CaffeineCartDetailsCache cartDetailsCache;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        OrderServiceFixture fixture = new OrderServiceFixture();
+        cartDetailsCache = new CaffeineCartDetailsCache(10, 30);
+        transactionTemplate = new TransactionTemplate(fixture.transactionManager);
+    }
+
+    @Test
+    void evictsOnlyOnceTheTransactionHasFinished() {
+        cache(1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            TransactionalCacheEviction.evictAfterCompletion(cartDetailsCache, USER_ID);
+            assertThat(cachedVersion()).isEqualTo(1);
+        });
+
+        assertThat(cachedVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsRightAwayWithoutATransaction() {
+        cache(1);
+
+        TransactionalCacheEviction.evictAfterCompletion(cartDetailsCache, USER_ID);
+
+        assertThat(cachedVersion()).isEqualTo(2);
+    }
+
+    private void cache(long version) {
+        cartDetailsCache.get(USER_ID, userId -> new VersionedOrders(version, List.of()));
+    }
+
+    private long cachedVersion() {
+        return cartDetailsCache.get(USER_ID, userId -> new VersionedOrders(2, List.of())).getVersion();
+    }
+}
@@ -0,0 +1,105 @@
+package com.retailhub.ordermanagementservice.service;
+
+import com.retailhub.ordermanagementservice.model.BulkOrderResult;
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.UserOrderSummary;
+import com.retailhub.ordermanagementservice.support.OrderServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static com.retailhub.ordermanagementservice.support.TestCartRequests.cartRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserOrderSummaryTest {
+
+    private static final int USER_ID = 51;
+
+    private OrderServiceFixture fixture;
+    private OrderService orderService;
+    private UserOrderSummaryRebuilder rebuilder;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new OrderServiceFixture();
+        orderService = fixture.orderService;
+        rebuilder = new UserOrderSummaryRebuilder(fixture.userOrderSummaryRepository, fixture.transactionManager, fixture.meterRegistry,
+                true, false, 20);
+    }
+
+    @Test
+    void summaryFollowsEveryOrderChangeInItsTransaction() {
+        assertSummary(0, 0, "0.00");
+
+        int cancelledOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 2));
+        int approvedOrderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        orderService.addProductsToCart(cartRequest(approvedOrderId, USER_ID, 2, 1));
+        assertSummary(2, 0, "0.00");
+
+        orderService.deleteOrderFromCart(cancelledOrderId, 1);
+        orderService.deleteOrderFromCart(cancelledOrderId, 1);
+        assertSummary(1, 0, "0.00");
+
+        orderService.submitApprovedOrder(cartRequest(approvedOrderId, USER_ID, 2, 3));
+        assertSummary(0, 1, "20.00");
+        assertThat(rebuilder.check()).isZero();
+    }
+
+    @Test
+    void onlyTheDeleteThatCancelsTheDraftClosesTheCart() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        orderService.addProductsToCart(cartRequest(orderId, USER_ID, 2, 1));
+
+        orderService.deleteOrderFromCart(orderId, 1);
+        assertSummary(1, 0, "0.00");
+
+        orderService.deleteOrderFromCart(orderId, 2);
+        assertSummary(0, 0, "0.00");
+
+        orderService.deleteOrderFromCart(orderId, 2);
+        assertSummary(0, 0, "0.00");
+        assertThat(rebuilder.check()).isZero();
+    }
+
+    @Test
+    void bulkWritesKeepTheSummaryConsistentAcrossUsers() {
+        List<CartDetailsDTO> newCarts = List.of(cartRequest(0, USER_ID, 1, 1), cartRequest(0, USER_ID, 2, 1),
+                cartRequest(0, USER_ID + 1, 1, 1));
+        List<Integer> orderIds = fixture.bulkOrderService.addProductsToCarts(newCarts).stream().map(BulkOrderResult::getOrderId).toList();
+
+        fixture.bulkOrderService.submitApprovedOrders(List.of(cartRequest(orderIds.get(0), USER_ID, 1, 2),
+                cartRequest(orderIds.get(2), USER_ID + 1, 1, 1)));
+
+        assertSummary(1, 1, "10.00");
+        assertThat(orderService.retrieveOrderSummary(USER_ID + 1).getApprovedOrders()).isEqualTo(1);
+        assertThat(rebuilder.check()).isZero();
+    }
+
+    @Test
+    void checkReportsDriftAndRebuildRepairsItIncludingArchivedOrders() {
+        int orderId = orderService.addProductsToCart(cartRequest(0, USER_ID, 1, 1));
+        orderService.submitApprovedOrder(cartRequest(orderId, USER_ID, 1, 1));
+        orderService.addProductsToCart(cartRequest(0, USER_ID + 1, 1, 1));
+        new OrderArchiver(fixture.orderArchiveRepository, fixture.transactionManager, fixture.meterRegistry, true, 0, 10, 1, 0,
+                Clock.offset(Clock.systemUTC(), Duration.ofMinutes(1))).archive();
+        new JdbcTemplate(fixture.dataSource).update("UPDATE user_order_summary SET approved_orders = 7 WHERE user_id = ?", USER_ID);
+
+        assertThat(rebuilder.check()).isEqualTo(1);
+        assertThat(fixture.meterRegistry.get("order.summary.drift.users").gauge().value()).isEqualTo(1);
+
+        assertThat(rebuilder.rebuild()).isEqualTo(2);
+        assertSummary(0, 1, "5.00");
+        assertThat(rebuilder.check()).isZero();
+    }
+
+    private void assertSummary(int openCarts, int approvedOrders, String lifetimeValue) {
+        UserOrderSummary summary = orderService.retrieveOrderSummary(USER_ID);
+        assertThat(summary.getOpenCarts()).isEqualTo(openCarts);
+        assertThat(summary.getApprovedOrders()).isEqualTo(approvedOrders);
+        assertThat(summary.getLifetimeValue()).isEqualByComparingTo(lifetimeValue);
+    }
+}
@@ -0,0 +1,64 @@
+package com.retailhub.ordermanagementservice.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailhub.ordermanagementservice.controller.AsyncOrderController;
+import com.retailhub.ordermanagementservice.controller.OrderController;
+import com.retailhub.ordermanagementservice.controller.OrderStreamController;
+import com.retailhub.ordermanagementservice.controller.OrderVersionETags;
+import com.retailhub.ordermanagementservice.exception.GlobalControllerExceptionHandler;
+import com.retailhub.ordermanagementservice.executor.OrderRequestExecutor;
+import com.retailhub.ordermanagementservice.service.CartWriteCoalescer;
+import com.retailhub.ordermanagementservice.service.OrderChangeFeed;
+import com.retailhub.ordermanagementservice.service.OrderExportService;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * The order controllers wired by hand over an {@link OrderServiceFixture}, behind a standalone
+ * {@link MockMvc} with the application's exception handler.
+ */
+public final class OrderControllerFixture {
+
+    public final OrderServiceFixture services;
+    public final CartWriteCoalescer cartWriteCoalescer;
+    public final OrderVersionETags orderVersionETags;
+    public final OrderChangeFeed orderChangeFeed;
+    public final OrderExportService orderExportService;
+    public final ObjectMapper objectMapper = new ObjectMapper();
+    private final int maxHistoryPageSize;
+
+    public OrderControllerFixture(int maxHistoryPageSize) {
+        this.services = new OrderServiceFixture();
+        this.maxHistoryPageSize = maxHistoryPageSize;
+        cartWriteCoalescer = new CartWriteCoalescer(services.orderService, services.orderHeaderRepository,
+                services.orderDetailsRepository, services.cartDetailsCache, services.userOrderVersionRepository,
+                services.orderChangeEventRepository, services.orderLockManager, services.readYourWritesWindow,
+                services.transactionManager, services.meterRegistry, false, 20, 16, 2, 5000, 5);
+        orderVersionETags = new OrderVersionETags(services.meterRegistry);
+        orderChangeFeed = new OrderChangeFeed(services.orderChangeEventRepository, 10_000, 5);
+        orderExportService = new OrderExportService(services.orderExportRepository, objectMapper, services.transactionManager, 2);
+    }
+
+    /**
+     * The endpoints as served with {@code order.async.enabled} off.
+     */
+    public MockMvc mockMvc() {
+        return mockMvc(new OrderController(services.orderService, services.bulkOrderService, cartWriteCoalescer,
+                orderVersionETags, orderChangeFeed, maxHistoryPageSize, 1000));
+    }
+
+    /**
+     * The endpoints as served with {@code order.async.enabled} on, through {@code orderRequestExecutor}.
+     */
+    public MockMvc asyncMockMvc(OrderRequestExecutor orderRequestExecutor) {
+        return mockMvc(new AsyncOrderController(orderRequestExecutor, services.orderService, services.bulkOrderService,
+                cartWriteCoalescer, orderVersionETags, orderChangeFeed, maxHistoryPageSize, 1000));
+    }
+
+    private MockMvc mockMvc(Object orderController) {
+        return MockMvcBuilders.standaloneSetup(orderController,
+                        new OrderStreamController(services.orderService, orderExportService, objectMapper))
+                .setControllerAdvice(new GlobalControllerExceptionHandler())
+                .build();
+    }
+}
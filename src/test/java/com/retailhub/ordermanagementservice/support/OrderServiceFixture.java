@@ -0,0 +1,77 @@
+package com.retailhub.ordermanagementservice.support;
+
+import com.retailhub.ordermanagementservice.cache.CaffeineCartDetailsCache;
+import com.retailhub.ordermanagementservice.datasource.ReadYourWritesWindow;
+import com.retailhub.ordermanagementservice.lock.OrderLockManager;
+import com.retailhub.ordermanagementservice.metrics.QueryMetrics;
+import com.retailhub.ordermanagementservice.metrics.StatementCountingDataSource;
+import com.retailhub.ordermanagementservice.repository.OrderArchiveRepository;
+import com.retailhub.ordermanagementservice.repository.OrderChangeEventRepository;
+import com.retailhub.ordermanagementservice.repository.OrderDetailsRepository;
+import com.retailhub.ordermanagementservice.repository.OrderExportRepository;
+import com.retailhub.ordermanagementservice.repository.OrderHeaderRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderSummaryRepository;
+import com.retailhub.ordermanagementservice.repository.UserOrderVersionRepository;
+import com.retailhub.ordermanagementservice.service.BulkOrderService;
+import com.retailhub.ordermanagementservice.service.OrderService;
+import com.retailhub.ordermanagementservice.util.OrderIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Wires an {@link OrderService} and its collaborators by hand against a fresh H2 database, or
+ * against a given data source such as a primary/replica router. The data source is wrapped in a
+ * {@link StatementCountingDataSource}, as the application's pools are.
+ */
+public final class OrderServiceFixture {
+
+    public final DataSource dataSource;
+    public final NamedParameterJdbcTemplate jdbcTemplate;
+    public final DataSourceTransactionManager transactionManager;
+    public final SimpleMeterRegistry meterRegistry;
+    public final OrderHeaderRepository orderHeaderRepository;
+    public final OrderDetailsRepository orderDetailsRepository;
+    public final UserOrderVersionRepository userOrderVersionRepository;
+    public final OrderArchiveRepository orderArchiveRepository;
+    public final OrderChangeEventRepository orderChangeEventRepository;
+    public final OrderExportRepository orderExportRepository;
+    public final UserOrderSummaryRepository userOrderSummaryRepository;
+    public final CaffeineCartDetailsCache cartDetailsCache;
+    public final OrderIdGenerator orderIdGenerator;
+    public final OrderLockManager orderLockManager;
+    public final ReadYourWritesWindow readYourWritesWindow;
+    public final OrderService orderService;
+    public final BulkOrderService bulkOrderService;
+
+    public OrderServiceFixture() {
+        this(H2TestDatabase.create(), false, 0);
+    }
+
+    public OrderServiceFixture(DataSource dataSource, boolean replicaConfigured, long readYourWritesMillis) {
+        this.dataSource = new StatementCountingDataSource(dataSource);
+        jdbcTemplate = new NamedParameterJdbcTemplate(this.dataSource);
+        transactionManager = new DataSourceTransactionManager(this.dataSource);
+        meterRegistry = new SimpleMeterRegistry();
+        QueryMetrics queryMetrics = new QueryMetrics(meterRegistry);
+        orderHeaderRepository = new OrderHeaderRepository(jdbcTemplate, queryMetrics, 100);
+        orderDetailsRepository = new OrderDetailsRepository(jdbcTemplate, queryMetrics);
+        userOrderVersionRepository = new UserOrderVersionRepository(jdbcTemplate, queryMetrics);
+        orderArchiveRepository = new OrderArchiveRepository(jdbcTemplate, queryMetrics);
+        orderChangeEventRepository = new OrderChangeEventRepository(jdbcTemplate, queryMetrics);
+        orderExportRepository = new OrderExportRepository(jdbcTemplate, queryMetrics, 100);
+        userOrderSummaryRepository = new UserOrderSummaryRepository(jdbcTemplate, queryMetrics);
+        cartDetailsCache = new CaffeineCartDetailsCache(1000, 30);
+        orderIdGenerator = new OrderIdGenerator(jdbcTemplate, transactionManager, 1000);
+        orderLockManager = new OrderLockManager(meterRegistry, 64, 2000);
+        readYourWritesWindow = new ReadYourWritesWindow(replicaConfigured, readYourWritesMillis, 1000);
+        orderService = new OrderService(orderHeaderRepository, orderDetailsRepository, orderIdGenerator, cartDetailsCache,
+                userOrderVersionRepository, orderChangeEventRepository, userOrderSummaryRepository, orderLockManager,
+                readYourWritesWindow, transactionManager, 5);
+        bulkOrderService = new BulkOrderService(orderService, orderHeaderRepository, orderDetailsRepository, orderIdGenerator,
+                cartDetailsCache, userOrderVersionRepository, orderChangeEventRepository, userOrderSummaryRepository, orderLockManager,
+                readYourWritesWindow, transactionManager, 3, 5);
+    }
+}
@@ -0,0 +1,50 @@
+package com.retailhub.ordermanagementservice.support;
+
+import com.retailhub.ordermanagementservice.model.CartDetailsDTO;
+import com.retailhub.ordermanagementservice.model.CartLineDetailsDTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Cart requests for the tests, the counterpart of the benchmarks' {@code CartRequests}. Lines are
+ * named after their product and priced at {@link #PRODUCT_PRICE} unless a price is given; the
+ * request total is the sum of its lines.
+ */
+public final class TestCartRequests {
+
+    public static final BigDecimal PRODUCT_PRICE = new BigDecimal("5.00");
+
+    private TestCartRequests() {
+    }
+
+    public static CartDetailsDTO cartRequest(int orderId, int userId, int productId, int quantity) {
+        return cartRequest(orderId, userId, cartLine(productId, quantity));
+    }
+
+    public static CartDetailsDTO cartRequest(int orderId, int userId, CartLineDetailsDTO... cartLines) {
+        BigDecimal totalOrderValue = BigDecimal.ZERO;
+        for (CartLineDetailsDTO cartLine : cartLines) {
+            totalOrderValue = totalOrderValue.add(cartLine.getProductPrice().multiply(BigDecimal.valueOf(cartLine.getQuantity())));
+        }
+        return CartDetailsDTO.builder()
+                .orderId(orderId)
+                .userId(userId)
+                .totalOrderValue(totalOrderValue)
+                .cartLineDetailsDTOList(List.of(cartLines))
+                .build();
+    }
+
+    public static CartLineDetailsDTO cartLine(int productId, int quantity) {
+        return cartLine(productId, quantity, PRODUCT_PRICE);
+    }
+
+    public static CartLineDetailsDTO cartLine(int productId, int quantity, BigDecimal productPrice) {
+        return CartLineDetailsDTO.builder()
+                .productId(productId)
+                .productName("Product " + productId)
+                .productPrice(productPrice)
+                .quantity(quantity)
+                .build();
+    }
+}
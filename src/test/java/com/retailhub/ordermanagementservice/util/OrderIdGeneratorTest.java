@@ -0,0 +1,118 @@
+package com.retailhub.ordermanagementservice.util;
+
+import com.retailhub.ordermanagementservice.support.H2TestDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderIdGeneratorTest {
+
+    private static final int INSTANCES = 4;
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 5_000;
+
+    @Test
+    void generatesUniqueOrderIdsAcrossThreadsAndInstances() throws Exception {
+        DataSource dataSource = H2TestDatabase.create();
+        List<OrderIdGenerator> generators = IntStream.range(0, INSTANCES)
+                .mapToObj(instance -> newGenerator(dataSource, 1000))
+                .toList();
+        Set<Integer> orderIds = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> {
+            OrderIdGenerator generator = generators.get(thread % INSTANCES);
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                if (!orderIds.add(generator.generateOrderId())) {
+                    duplicates.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(orderIds).hasSize(THREADS * IDS_PER_THREAD);
+        assertThat(orderIds).allMatch(orderId -> orderId >= 10000);
+    }
+
+    @Test
+    void restartedInstanceNeverReissuesOrderIds() {
+        DataSource dataSource = H2TestDatabase.create();
+        OrderIdGenerator beforeRestart = newGenerator(dataSource, 1000);
+        int lastIdBeforeRestart = 0;
+        for (int i = 0; i < 10; i++) {
+            lastIdBeforeRestart = beforeRestart.generateOrderId();
+        }
+
+        OrderIdGenerator afterRestart = newGenerator(dataSource, 1000);
+
+        assertThat(afterRestart.generateOrderId()).isGreaterThan(lastIdBeforeRestart);
+    }
+
+    @Test
+    void leasedIdsAreTakenBeforeTheTransactionAndUnusedOnesAreHandedOutAgain() {
+        DataSource dataSource = H2TestDatabase.create();
+        OrderIdGenerator generator = newGenerator(dataSource, 2);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        int unusedOrderId;
+
+        try (OrderIdGenerator.OrderIdLease orderIds = generator.leaseOrderIds(3)) {
+            transactionTemplate.executeWithoutResult(status -> orderIds.nextOrderId());
+            unusedOrderId = transactionTemplate.execute(status -> orderIds.nextOrderId()) + 1;
+        }
+
+        assertThat(generator.generateOrderId()).isEqualTo(unusedOrderId);
+    }
+
+    @Test
+    void blockIsNeverReservedInsideACallersTransaction() {
+        DataSource dataSource = H2TestDatabase.create();
+        OrderIdGenerator generator = newGenerator(dataSource, 1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> generator.generateOrderId()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static OrderIdGenerator newGenerator(DataSource dataSource, int blockSize) {
+        return new OrderIdGenerator(new NamedParameterJdbcTemplate(dataSource), new DataSourceTransactionManager(dataSource), blockSize);
+    }
+
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = IntStream.range(0, threads)
+                    .<Future<?>>mapToObj(thread -> executor.submit(() -> {
+                        start.await();
+                        task.run(thread);
+                        return null;
+                    }))
+                    .toList();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}